@@ -0,0 +1,133 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 France Telecom
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ *
+ */
+package org.ow2.sirocco.cloudmanager.api.server;
+
+import java.io.IOException;
+import java.security.Principal;
+
+import javax.ejb.EJB;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.ow2.sirocco.cloudmanager.core.api.IUserManager;
+import org.ow2.sirocco.cloudmanager.core.api.exception.CloudProviderException;
+import org.ow2.sirocco.cloudmanager.model.cimi.extension.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Authenticates API requests with the Basic credentials of the users managed
+ * by the user manager, which caches successful verifications, and only lets
+ * through the users having the sirocco-user or sirocco-admin role. The
+ * authenticated user is exposed as the request principal and its role through
+ * {@link HttpServletRequest#isUserInRole(String)}.
+ */
+public class AuthenticationFilter implements Filter {
+    private static Logger logger = LoggerFactory.getLogger(AuthenticationFilter.class.getName());
+
+    private static final String REALM = "sirocco";
+
+    @EJB
+    private IUserManager userManager;
+
+    @Override
+    public void init(final FilterConfig filterConfig) throws ServletException {
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain)
+        throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String authorization = httpRequest.getHeader("Authorization");
+        String userPassword[] = authorization != null ? ResourceBase.decode(authorization) : null;
+        String role = null;
+        if (userPassword != null && userPassword.length == 2) {
+            try {
+                role = this.userManager.authenticate(userPassword[0], userPassword[1]);
+            } catch (CloudProviderException e) {
+                AuthenticationFilter.logger.error("Cannot check credentials of user " + userPassword[0], e);
+            }
+        }
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        if (role == null) {
+            httpResponse.setHeader("WWW-Authenticate", "Basic realm=\"" + AuthenticationFilter.REALM + "\"");
+            httpResponse.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        if (!role.equals(User.USER_ROLE) && !role.equals(User.ADMIN_ROLE)) {
+            httpResponse.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        chain.doFilter(new AuthenticatedRequest(httpRequest, userPassword[0], role), response);
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    private static class AuthenticatedRequest extends HttpServletRequestWrapper {
+        private final String userName;
+
+        private final String role;
+
+        AuthenticatedRequest(final HttpServletRequest request, final String userName, final String role) {
+            super(request);
+            this.userName = userName;
+            this.role = role;
+        }
+
+        @Override
+        public boolean isUserInRole(final String role) {
+            return this.role.equals(role);
+        }
+
+        @Override
+        public String getRemoteUser() {
+            return this.userName;
+        }
+
+        @Override
+        public String getAuthType() {
+            return HttpServletRequest.BASIC_AUTH;
+        }
+
+        @Override
+        public Principal getUserPrincipal() {
+            return new Principal() {
+                @Override
+                public String getName() {
+                    return AuthenticatedRequest.this.userName;
+                }
+            };
+        }
+    }
+
+}
@@ -25,6 +25,8 @@ public class IdentityInterceptor implements Serializable {
             this.identityContext.setUserName(idCtx.getUserName());
             this.identityContext.setTenantId(idCtx.getTenantId());
             this.identityContext.setTenantName(idCtx.getTenantName());
+            // the context outlives the request, resolve its tenant again
+            this.identityContext.clearResolvedTenant();
         }
         return ctx.proceed();
     }
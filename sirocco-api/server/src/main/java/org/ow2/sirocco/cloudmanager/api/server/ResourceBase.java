@@ -4,6 +4,7 @@ import java.util.List;
 
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.SecurityContext;
 import javax.xml.bind.DatatypeConverter;
 
 import org.ow2.sirocco.cloudmanager.core.api.IdentityContext;
@@ -13,6 +14,9 @@ public class ResourceBase {
     @Context
     private HttpHeaders headers;
 
+    @Context
+    private SecurityContext securityContext;
+
     public IdentityContext getIdentityContext() {
         IdentityContext result = new IdentityContext();
         List<String> values = this.headers.getRequestHeader("tenantId");
@@ -23,10 +27,9 @@ public class ResourceBase {
         if (values != null && !values.isEmpty()) {
             result.setTenantName(values.get(0));
         }
-        values = this.headers.getRequestHeader("Authorization");
-        if (values != null && !values.isEmpty()) {
-            String userPassword[] = ResourceBase.decode(values.get(0));
-            result.setUserName(userPassword[0]);
+        // authenticated by AuthenticationFilter
+        if (this.securityContext.getUserPrincipal() != null) {
+            result.setUserName(this.securityContext.getUserPrincipal().getName());
         }
         return result;
     }
@@ -1,6 +1,7 @@
 package org.ow2.sirocco.cloudmanager.connector.amazon;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -31,14 +32,19 @@ import org.jclouds.ec2.options.RunInstancesOptions;
 import org.jclouds.ec2.services.ElasticBlockStoreClient;
 import org.jclouds.rest.RestContext;
 import org.ow2.sirocco.cloudmanager.connector.api.ConnectorException;
+import org.ow2.sirocco.cloudmanager.connector.api.IBatchComputeService;
 import org.ow2.sirocco.cloudmanager.connector.api.ICloudProviderConnector;
 import org.ow2.sirocco.cloudmanager.connector.api.IComputeService;
 import org.ow2.sirocco.cloudmanager.connector.api.IImageService;
+import org.ow2.sirocco.cloudmanager.connector.api.IMachineImageHandler;
 import org.ow2.sirocco.cloudmanager.connector.api.INetworkService;
+import org.ow2.sirocco.cloudmanager.connector.api.IPagedImageService;
 import org.ow2.sirocco.cloudmanager.connector.api.ISystemService;
 import org.ow2.sirocco.cloudmanager.connector.api.IVolumeService;
+import org.ow2.sirocco.cloudmanager.connector.api.ProviderSessionCache;
 import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
 import org.ow2.sirocco.cloudmanager.connector.api.ResourceNotFoundException;
+import org.ow2.sirocco.cloudmanager.connector.api.ResourceStates;
 import org.ow2.sirocco.cloudmanager.model.cimi.Address;
 import org.ow2.sirocco.cloudmanager.model.cimi.DiskTemplate;
 import org.ow2.sirocco.cloudmanager.model.cimi.ForwardingGroup;
@@ -75,12 +81,11 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
 import com.google.inject.Module;
 
 public class AmazonCloudProviderConnector implements ICloudProviderConnector, IComputeService, IVolumeService, INetworkService,
-    IImageService {
+    IImageService, IBatchComputeService, IPagedImageService {
     private static Logger logger = LoggerFactory.getLogger(AmazonCloudProviderConnector.class);
 
     public static final String CLOUD_PROVIDER_TYPE = "amazon";
@@ -89,6 +94,24 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
 
     private static final int THREADPOOL_SIZE = 10;
 
+    /** how long single-id describe requests wait to be merged with concurrent ones */
+    private static final long DESCRIBE_WINDOW_IN_MILLIS = 50;
+
+    /** how long described instances and volumes are reused */
+    private static final long DESCRIBE_CACHE_TTL_IN_MILLIS = 2000;
+
+    private static final int DESCRIBE_MAX_IDS = 200;
+
+    private static final int MACHINE_IMAGE_PAGE_SIZE = 100;
+
+    /** image filters used when public images are listed without search criteria */
+    private static final Map<String, String> DEFAULT_IMAGE_SEARCH_CRITERIA = new HashMap<String, String>();
+
+    static {
+        AmazonCloudProviderConnector.DEFAULT_IMAGE_SEARCH_CRITERIA.put("name", "debian-*2013????");
+        AmazonCloudProviderConnector.DEFAULT_IMAGE_SEARCH_CRITERIA.put("root-device-type", "ebs");
+    }
+
     private static final Map<CloudProviderLocation, String> locationMap = new HashMap<CloudProviderLocation, String>();
 
     static {
@@ -128,27 +151,16 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
             }
         });
 
-    private List<AmazonProvider> providers = new ArrayList<AmazonProvider>();
-
-    private synchronized AmazonProvider getProvider(final ProviderTarget target) {
-        for (AmazonProvider provider : this.providers) {
-            if (provider.cloudProviderAccount.equals(target.getAccount())) {
-                // location can be null?
-                if (provider.cloudProviderLocation != target.getLocation()) {
-                    if (target.getLocation() != null) {
-                        if (provider.cloudProviderLocation.getId().equals(target.getLocation().getId())) {
-                            return provider;
-                        }
-                    }
-                } else {
-                    return provider;
-                }
+    private final ProviderSessionCache<AmazonProvider> providers = new ProviderSessionCache<AmazonProvider>(
+        new ProviderSessionCache.SessionFactory<AmazonProvider>() {
+            @Override
+            public AmazonProvider create(final ProviderTarget target) {
+                return new AmazonProvider(target.getAccount(), target.getLocation());
             }
-        }
+        });
 
-        AmazonProvider provider = new AmazonProvider(target.getAccount(), target.getLocation());
-        this.providers.add(provider);
-        return provider;
+    private AmazonProvider getProvider(final ProviderTarget target) throws ConnectorException {
+        return this.providers.get(target);
     }
 
     @Override
@@ -202,6 +214,12 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
         throw new ConnectorException("unsupported operation");
     }
 
+    @Override
+    public Map<String, Network.State> getNetworkStates(final Collection<String> networkIds, final ProviderTarget target)
+        throws ConnectorException {
+        return ResourceStates.getNetworkStates(this, networkIds, target);
+    }
+
     @Override
     public List<Network> getNetworks(final ProviderTarget target) throws ConnectorException {
         return this.getProvider(target).getNetworks();
@@ -391,6 +409,12 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
         return this.getProvider(target).getVolumeState(volumeId);
     }
 
+    @Override
+    public Map<String, Volume.State> getVolumeStates(final Collection<String> volumeIds, final ProviderTarget target)
+        throws ConnectorException {
+        return this.getProvider(target).getVolumeStates(volumeIds);
+    }
+
     @Override
     public Volume getVolume(final String volumeId, final ProviderTarget target) throws ConnectorException {
         return this.getProvider(target).getVolume(volumeId);
@@ -422,6 +446,12 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
         return this.getProvider(target).createMachine(machineCreate);
     }
 
+    @Override
+    public List<Machine> createMachines(final MachineCreate machineCreate, final int count, final ProviderTarget target)
+        throws ConnectorException {
+        return this.getProvider(target).createMachines(machineCreate, count);
+    }
+
     @Override
     public void startMachine(final String machineId, final ProviderTarget target) throws ConnectorException {
         this.getProvider(target).startMachine(machineId);
@@ -464,6 +494,12 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
         return this.getProvider(target).getMachineState(machineId);
     }
 
+    @Override
+    public Map<String, Machine.State> getMachineStates(final Collection<String> machineIds, final ProviderTarget target)
+        throws ConnectorException {
+        return this.getProvider(target).getMachineStates(machineIds);
+    }
+
     @Override
     public Machine getMachine(final String machineId, final ProviderTarget target) throws ConnectorException {
         return this.getProvider(target).getMachine(machineId);
@@ -502,6 +538,12 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
         return this.getProvider(target).getMachineImages(returnPublicImages, searchCriteria);
     }
 
+    @Override
+    public void getMachineImages(final boolean returnAccountImagesOnly, final Map<String, String> searchCriteria,
+        final ProviderTarget target, final IMachineImageHandler handler) throws ConnectorException {
+        this.getProvider(target).getMachineImages(returnAccountImagesOnly, searchCriteria, handler);
+    }
+
     private static class AmazonProvider {
 
         private final String cloudProviderId;
@@ -524,6 +566,24 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
 
         private Network cimiPublicNetwork;
 
+        private final DescribeCoalescer<AWSRunningInstance> instances = new DescribeCoalescer<AWSRunningInstance>(
+            AmazonCloudProviderConnector.DESCRIBE_WINDOW_IN_MILLIS,
+            AmazonCloudProviderConnector.DESCRIBE_CACHE_TTL_IN_MILLIS, AmazonCloudProviderConnector.DESCRIBE_MAX_IDS) {
+            @Override
+            protected Map<String, AWSRunningInstance> describe(final Collection<String> ids) {
+                return AmazonProvider.this.describeInstances(ids);
+            }
+        };
+
+        private final DescribeCoalescer<org.jclouds.ec2.domain.Volume> volumes =
+            new DescribeCoalescer<org.jclouds.ec2.domain.Volume>(AmazonCloudProviderConnector.DESCRIBE_WINDOW_IN_MILLIS,
+                AmazonCloudProviderConnector.DESCRIBE_CACHE_TTL_IN_MILLIS, AmazonCloudProviderConnector.DESCRIBE_MAX_IDS) {
+                @Override
+                protected Map<String, org.jclouds.ec2.domain.Volume> describe(final Collection<String> ids) {
+                    return AmazonProvider.this.describeVolumes(ids);
+                }
+            };
+
         public AmazonProvider(final CloudProviderAccount cloudProviderAccount, final CloudProviderLocation cloudProviderLocation) {
             this.cloudProviderId = UUID.randomUUID().toString();
             this.cloudProviderLocation = cloudProviderLocation;
@@ -774,6 +834,14 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
         }
 
         public Machine createMachine(final MachineCreate machineCreate) throws ConnectorException {
+            return this.createMachines(machineCreate, 1).get(0);
+        }
+
+        /**
+         * Launches all machines with a single RunInstances request, MinCount and
+         * MaxCount being both set to the number of machines
+         */
+        public List<Machine> createMachines(final MachineCreate machineCreate, final int count) throws ConnectorException {
             final String instanceType = this.findSuitableInstanceType(machineCreate.getMachineTemplate().getMachineConfig());
             if (instanceType == null) {
                 throw new ConnectorException("Not suitable instance type found");
@@ -801,12 +869,15 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
             String imageId = mapping.getProviderAssignedId();
 
             Reservation<? extends AWSRunningInstance> reservation = this.syncClient.getInstanceServices().runInstancesInRegion(
-                this.amazonRegionCode, this.defaultAvailabilityZone, imageId, 1, 1, options);
+                this.amazonRegionCode, this.defaultAvailabilityZone, imageId, count, count, options);
 
-            final Machine machine = new Machine();
-            this.fromAWSRunningInstanceToMachine(Iterables.getFirst(reservation, null), machine);
-
-            return machine;
+            List<Machine> machines = new ArrayList<Machine>();
+            for (AWSRunningInstance instance : reservation) {
+                Machine machine = new Machine();
+                this.fromAWSRunningInstanceToMachine(instance, machine);
+                machines.add(machine);
+            }
+            return machines;
         }
 
         public void startMachine(final String machineId) throws ConnectorException {
@@ -814,6 +885,7 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
             try {
                 Set<? extends InstanceStateChange> startResult = this.syncClient.getInstanceServices().startInstancesInRegion(
                     this.amazonRegionCode, machineId);
+                this.instances.invalidate(machineId);
             } catch (Exception ex) {
                 throw new ConnectorException(ex.getMessage());
             }
@@ -824,6 +896,7 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
                 // XXX set force to true
                 Set<? extends InstanceStateChange> stopResult = this.syncClient.getInstanceServices().stopInstancesInRegion(
                     this.amazonRegionCode, true, machineId);
+                this.instances.invalidate(machineId);
             } catch (Exception ex) {
                 throw new ConnectorException(ex.getMessage());
             }
@@ -836,6 +909,7 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
         public void restartMachine(final String machineId, final boolean force) throws ConnectorException {
             try {
                 this.syncClient.getInstanceServices().rebootInstancesInRegion(this.amazonRegionCode, machineId);
+                this.instances.invalidate(machineId);
             } catch (Exception ex) {
                 throw new ConnectorException(ex.getMessage());
             }
@@ -854,37 +928,77 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
             try {
                 Set<? extends InstanceStateChange> deleteResult = this.syncClient.getInstanceServices()
                     .terminateInstancesInRegion(this.amazonRegionCode, machineId);
+                this.instances.invalidate(machineId);
             } catch (Exception ex) {
                 throw new ConnectorException(ex.getMessage());
             }
         }
 
-        public org.ow2.sirocco.cloudmanager.model.cimi.Machine.State getMachineState(final String machineId)
-            throws ConnectorException {
+        /**
+         * Describes instances with a single DescribeInstances request. EC2
+         * rejects the whole request if one of the instances is gone, in which
+         * case the instances are described one by one.
+         */
+        private Map<String, AWSRunningInstance> describeInstances(final Collection<String> machineIds) {
+            Map<String, AWSRunningInstance> result = new HashMap<String, AWSRunningInstance>();
             try {
-                Reservation<? extends AWSRunningInstance> reservation = Iterables.getFirst(this.syncClient
-                    .getInstanceServices().describeInstancesInRegion(this.amazonRegionCode, machineId), null);
-                return this.fromInstanceStateToMachineState(Iterables.getFirst(reservation, null).getInstanceState());
+                for (Reservation<? extends AWSRunningInstance> reservation : this.syncClient.getInstanceServices()
+                    .describeInstancesInRegion(this.amazonRegionCode, machineIds.toArray(new String[machineIds.size()]))) {
+                    for (AWSRunningInstance instance : reservation) {
+                        result.put(instance.getId(), instance);
+                    }
+                }
+            } catch (org.jclouds.rest.ResourceNotFoundException e) {
+                if (machineIds.size() > 1) {
+                    for (String machineId : machineIds) {
+                        result.putAll(this.describeInstances(Collections.singletonList(machineId)));
+                    }
+                }
+            }
+            return result;
+        }
+
+        private AWSRunningInstance getInstance(final String machineId) throws ConnectorException {
+            AWSRunningInstance instance;
+            try {
+                instance = this.instances.get(machineId);
             } catch (Exception ex) {
                 throw new ConnectorException(ex.getMessage());
             }
+            if (instance == null) {
+                throw new ResourceNotFoundException("Machine with id " + machineId + " does not exist");
+            }
+            return instance;
         }
 
-        public Machine getMachine(final String machineId) throws ConnectorException {
-            try {
-                Reservation<? extends AWSRunningInstance> reservation = Iterables.getFirst(this.syncClient
-                    .getInstanceServices().describeInstancesInRegion(this.amazonRegionCode, machineId), null);
-                if (!reservation.isEmpty()) {
-                    Machine machine = new Machine();
-                    this.fromAWSRunningInstanceToMachine(Iterables.getFirst(reservation, null), machine);
-                    return machine;
-                }
-            } catch (org.jclouds.rest.ResourceNotFoundException e) {
+        public org.ow2.sirocco.cloudmanager.model.cimi.Machine.State getMachineState(final String machineId)
+            throws ConnectorException {
+            return this.fromInstanceStateToMachineState(this.getInstance(machineId).getInstanceState());
+        }
 
+        public Map<String, Machine.State> getMachineStates(final Collection<String> machineIds) throws ConnectorException {
+            Map<String, Machine.State> result = new HashMap<String, Machine.State>();
+            if (machineIds.isEmpty()) {
+                return result;
+            }
+            Map<String, AWSRunningInstance> runningInstances;
+            try {
+                runningInstances = this.describeInstances(machineIds);
             } catch (Exception ex) {
                 throw new ConnectorException(ex.getMessage());
             }
-            throw new ResourceNotFoundException("Machine with id " + machineId + " does not exist");
+            this.instances.purge();
+            this.instances.putAll(runningInstances);
+            for (AWSRunningInstance instance : runningInstances.values()) {
+                result.put(instance.getId(), this.fromInstanceStateToMachineState(instance.getInstanceState()));
+            }
+            return result;
+        }
+
+        public Machine getMachine(final String machineId) throws ConnectorException {
+            Machine machine = new Machine();
+            this.fromAWSRunningInstanceToMachine(this.getInstance(machineId), machine);
+            return machine;
         }
 
         public void addVolumeToMachine(final String machineId, final MachineVolume machineVolume) throws ConnectorException {
@@ -896,6 +1010,8 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
             try {
                 final ElasticBlockStoreClient ebsClient = this.syncClient.getElasticBlockStoreServices();
                 Attachment attachment = ebsClient.attachVolumeInRegion(this.amazonRegionCode, volumeId, machineId, device);
+                this.instances.invalidate(machineId);
+                this.volumes.invalidate(volumeId);
             } catch (Exception ex) {
                 throw new ConnectorException(ex.getMessage());
             }
@@ -908,6 +1024,8 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
                 final ElasticBlockStoreClient ebsClient = this.syncClient.getElasticBlockStoreServices();
                 // XXX set force to true
                 ebsClient.detachVolumeInRegion(this.amazonRegionCode, volumeId, true);
+                this.instances.invalidate(machineId);
+                this.volumes.invalidate(volumeId);
             } catch (Exception ex) {
                 throw new ConnectorException(ex.getMessage());
             }
@@ -964,42 +1082,74 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
             try {
                 final ElasticBlockStoreClient ebsClient = this.syncClient.getElasticBlockStoreServices();
                 ebsClient.deleteVolumeInRegion(this.amazonRegionCode, volumeId);
+                this.volumes.invalidate(volumeId);
             } catch (Exception ex) {
                 throw new ConnectorException(ex.getMessage());
             }
         }
 
-        public State getVolumeState(final String volumeId) throws ConnectorException {
+        /**
+         * Describes volumes with a single DescribeVolumes request, falling back
+         * to one request per volume if one of them is gone
+         */
+        private Map<String, org.jclouds.ec2.domain.Volume> describeVolumes(final Collection<String> volumeIds) {
+            Map<String, org.jclouds.ec2.domain.Volume> result = new HashMap<String, org.jclouds.ec2.domain.Volume>();
             try {
-                Set<org.jclouds.ec2.domain.Volume> ebsVolumes = this.syncClient.getElasticBlockStoreServices()
-                    .describeVolumesInRegion(this.amazonRegionCode, volumeId);
-                if (ebsVolumes.isEmpty()) {
-                    throw new Exception("Volume does not exist");
+                for (org.jclouds.ec2.domain.Volume ebsVolume : this.syncClient.getElasticBlockStoreServices()
+                    .describeVolumesInRegion(this.amazonRegionCode, volumeIds.toArray(new String[volumeIds.size()]))) {
+                    result.put(ebsVolume.getId(), ebsVolume);
+                }
+            } catch (org.jclouds.rest.ResourceNotFoundException e) {
+                if (volumeIds.size() > 1) {
+                    for (String volumeId : volumeIds) {
+                        result.putAll(this.describeVolumes(Collections.singletonList(volumeId)));
+                    }
                 }
-                org.jclouds.ec2.domain.Volume ebsVolume = ebsVolumes.iterator().next();
-                return this.fromEbsVolumeStatusToCimiVolumeState(ebsVolume.getStatus());
+            }
+            return result;
+        }
+
+        private org.jclouds.ec2.domain.Volume getEbsVolume(final String volumeId) throws ConnectorException {
+            org.jclouds.ec2.domain.Volume ebsVolume;
+            try {
+                ebsVolume = this.volumes.get(volumeId);
             } catch (Exception ex) {
+                AmazonCloudProviderConnector.logger.error("getVolume", ex);
                 throw new ConnectorException(ex.getMessage());
             }
+            if (ebsVolume == null) {
+                throw new ResourceNotFoundException("volume with id " + volumeId + " not found");
+            }
+            return ebsVolume;
         }
 
-        public Volume getVolume(final String volumeId) throws ConnectorException {
-            try {
-                Set<org.jclouds.ec2.domain.Volume> ebsVolumes = this.syncClient.getElasticBlockStoreServices()
-                    .describeVolumesInRegion(this.amazonRegionCode, volumeId);
-                if (!ebsVolumes.isEmpty()) {
-                    org.jclouds.ec2.domain.Volume ebsVolume = ebsVolumes.iterator().next();
-                    Volume cimiVolume = new Volume();
-                    this.fromEbsVolumetToCimiVolume(ebsVolume, cimiVolume);
-                    return cimiVolume;
-                }
-            } catch (org.jclouds.rest.ResourceNotFoundException e) {
+        public State getVolumeState(final String volumeId) throws ConnectorException {
+            return this.fromEbsVolumeStatusToCimiVolumeState(this.getEbsVolume(volumeId).getStatus());
+        }
 
+        public Map<String, Volume.State> getVolumeStates(final Collection<String> volumeIds) throws ConnectorException {
+            Map<String, Volume.State> result = new HashMap<String, Volume.State>();
+            if (volumeIds.isEmpty()) {
+                return result;
+            }
+            Map<String, org.jclouds.ec2.domain.Volume> ebsVolumes;
+            try {
+                ebsVolumes = this.describeVolumes(volumeIds);
             } catch (Exception ex) {
-                AmazonCloudProviderConnector.logger.error("getVolume", ex);
                 throw new ConnectorException(ex.getMessage());
             }
-            throw new ResourceNotFoundException("volume with id " + volumeId + " not found");
+            this.volumes.purge();
+            this.volumes.putAll(ebsVolumes);
+            for (org.jclouds.ec2.domain.Volume ebsVolume : ebsVolumes.values()) {
+                result.put(ebsVolume.getId(), this.fromEbsVolumeStatusToCimiVolumeState(ebsVolume.getStatus()));
+            }
+            return result;
+        }
+
+        public Volume getVolume(final String volumeId) throws ConnectorException {
+            Volume cimiVolume = new Volume();
+            this.fromEbsVolumetToCimiVolume(this.getEbsVolume(volumeId), cimiVolume);
+            return cimiVolume;
         }
 
         public void createVolumeImage(final VolumeImage volumeImage) throws ConnectorException {
@@ -1024,43 +1174,85 @@ public class AmazonCloudProviderConnector implements ICloudProviderConnector, IC
 
         public List<MachineImage> getMachineImages(final boolean returnAccountImagesOnly,
             final Map<String, String> searchCriteria) throws ConnectorException {
-            List<MachineImage> result = new ArrayList<>();
+            final List<MachineImage> result = new ArrayList<>();
+            this.getMachineImages(returnAccountImagesOnly, searchCriteria, new IMachineImageHandler() {
+                @Override
+                public void handleMachineImages(final List<MachineImage> machineImages) {
+                    result.addAll(machineImages);
+                }
+            });
+            return result;
+        }
+
+        /**
+         * Lists images with a single DescribeImages request, the search
+         * criteria being passed as EC2 filters (e.g. name, architecture,
+         * root-device-type), and hands them over to the handler page by page
+         */
+        public void getMachineImages(final boolean returnAccountImagesOnly, final Map<String, String> searchCriteria,
+            final IMachineImageHandler handler) throws ConnectorException {
             AWSDescribeImagesOptions options = new AWSDescribeImagesOptions();
             if (returnAccountImagesOnly) {
                 options.ownedBy("self");
             }
-            Multimap<String, String> filters = ArrayListMultimap.create();
-            // filters.put("name", "ubuntu/images/ebs*2013*");
-            filters.put("name", "debian-*2013????");
-            filters.put("root-device-type", "ebs");
-            options.filters(filters);
-            for (Image image : this.syncClient.getAMIServices().describeImagesInRegion(this.amazonRegionCode, options)) {
-                MachineImage machineImage = new MachineImage();
-                machineImage.setName(image.getName());
-                System.out.println(image.getName());
-                machineImage.setType(Type.IMAGE);
-                switch (image.getImageState()) {
-                case AVAILABLE:
-                    machineImage.setState(MachineImage.State.AVAILABLE);
-                    break;
-                case DEREGISTERED:
-                    // ??
-                    continue;
-                case UNRECOGNIZED:
-                    // ??
+            Map<String, String> criteria = searchCriteria;
+            if ((criteria == null || criteria.isEmpty()) && !returnAccountImagesOnly) {
+                criteria = AmazonCloudProviderConnector.DEFAULT_IMAGE_SEARCH_CRITERIA;
+            }
+            if (criteria != null && !criteria.isEmpty()) {
+                Multimap<String, String> filters = ArrayListMultimap.create();
+                for (Map.Entry<String, String> criterion : criteria.entrySet()) {
+                    filters.put(criterion.getKey(), criterion.getValue());
+                }
+                options.filters(filters);
+            }
+            Set<? extends Image> images;
+            try {
+                images = this.syncClient.getAMIServices().describeImagesInRegion(this.amazonRegionCode, options);
+            } catch (Exception ex) {
+                throw new ConnectorException(ex.getMessage());
+            }
+            List<MachineImage> page = new ArrayList<MachineImage>(AmazonCloudProviderConnector.MACHINE_IMAGE_PAGE_SIZE);
+            for (Image image : images) {
+                MachineImage machineImage = this.fromImageToMachineImage(image);
+                if (machineImage == null) {
                     continue;
-                default:
-                    break;
-
                 }
-                ProviderMapping providerMapping = new ProviderMapping();
-                providerMapping.setProviderAssignedId(image.getId());
-                providerMapping.setProviderAccount(this.cloudProviderAccount);
-                providerMapping.setProviderLocation(this.cloudProviderLocation);
-                machineImage.setProviderMappings(Collections.singletonList(providerMapping));
-                result.add(machineImage);
+                page.add(machineImage);
+                if (page.size() == AmazonCloudProviderConnector.MACHINE_IMAGE_PAGE_SIZE) {
+                    handler.handleMachineImages(page);
+                    page = new ArrayList<MachineImage>(AmazonCloudProviderConnector.MACHINE_IMAGE_PAGE_SIZE);
+                }
             }
-            return result;
+            if (!page.isEmpty()) {
+                handler.handleMachineImages(page);
+            }
+        }
+
+        private MachineImage fromImageToMachineImage(final Image image) {
+            MachineImage machineImage = new MachineImage();
+            machineImage.setName(image.getName());
+            machineImage.setType(Type.IMAGE);
+            switch (image.getImageState()) {
+            case AVAILABLE:
+                machineImage.setState(MachineImage.State.AVAILABLE);
+                break;
+            case DEREGISTERED:
+                // ??
+                return null;
+            case UNRECOGNIZED:
+                // ??
+                return null;
+            default:
+                break;
+
+            }
+            ProviderMapping providerMapping = new ProviderMapping();
+            providerMapping.setProviderAssignedId(image.getId());
+            providerMapping.setProviderAccount(this.cloudProviderAccount);
+            providerMapping.setProviderLocation(this.cloudProviderLocation);
+            machineImage.setProviderMappings(Collections.singletonList(providerMapping));
+            return machineImage;
         }
 
         public List<Network> getNetworks() {
@@ -0,0 +1,152 @@
+package org.ow2.sirocco.cloudmanager.connector.amazon;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Merges the single-id describe requests of a region into bulk describe calls.
+ * The first caller that misses the cache opens a batch, waits a short window
+ * for concurrent callers to add their ids and then describes the whole batch
+ * at once. Described resources are cached for a short time so that a state
+ * poll followed by a read of the same resource costs a single provider call.
+ * Ids found to be missing are not cached: EC2 describe calls are eventually
+ * consistent and may not return a resource created a moment ago.
+ *
+ * @param <T> the provider resource type
+ */
+abstract class DescribeCoalescer<T> {
+    private final long windowInMillis;
+
+    private final long ttlInMillis;
+
+    private final int maxBatchSize;
+
+    private final ConcurrentMap<String, CachedResource<T>> cache = new ConcurrentHashMap<String, CachedResource<T>>();
+
+    private final Object lock = new Object();
+
+    private Batch<T> openBatch;
+
+    DescribeCoalescer(final long windowInMillis, final long ttlInMillis, final int maxBatchSize) {
+        this.windowInMillis = windowInMillis;
+        this.ttlInMillis = ttlInMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Describes the given resources with a single provider call. Resources
+     * that do not exist must be absent from the returned map.
+     */
+    protected abstract Map<String, T> describe(Collection<String> ids) throws Exception;
+
+    private static class CachedResource<T> {
+        final T resource;
+
+        final long expirationTime;
+
+        CachedResource(final T resource, final long ttlInMillis) {
+            this.resource = resource;
+            this.expirationTime = System.currentTimeMillis() + ttlInMillis;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > this.expirationTime;
+        }
+    }
+
+    private static class Batch<T> {
+        final Set<String> ids = new LinkedHashSet<String>();
+
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Map<String, T> resources;
+
+        Exception failure;
+    }
+
+    /**
+     * Returns the resource with the given id, or null if it does not exist
+     */
+    T get(final String id) throws Exception {
+        CachedResource<T> cached = this.cache.get(id);
+        if (cached != null && !cached.isExpired()) {
+            return cached.resource;
+        }
+        Batch<T> batch;
+        boolean leader = false;
+        synchronized (this.lock) {
+            if (this.openBatch == null || this.openBatch.ids.size() >= this.maxBatchSize) {
+                this.openBatch = new Batch<T>();
+                leader = true;
+            }
+            batch = this.openBatch;
+            batch.ids.add(id);
+        }
+        if (leader) {
+            try {
+                Thread.sleep(this.windowInMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this.lock) {
+                if (this.openBatch == batch) {
+                    this.openBatch = null;
+                }
+            }
+            try {
+                batch.resources = this.describe(batch.ids);
+                for (String batchId : batch.ids) {
+                    T resource = batch.resources.get(batchId);
+                    if (resource != null) {
+                        this.cache.put(batchId, new CachedResource<T>(resource, this.ttlInMillis));
+                    } else {
+                        this.cache.remove(batchId);
+                    }
+                }
+            } catch (Exception e) {
+                batch.failure = e;
+            } finally {
+                batch.done.countDown();
+            }
+        } else {
+            batch.done.await();
+        }
+        if (batch.failure != null) {
+            throw batch.failure;
+        }
+        return batch.resources.get(id);
+    }
+
+    /**
+     * Caches resources described by a bulk call made outside of the coalescer
+     */
+    void putAll(final Map<String, T> resources) {
+        for (Map.Entry<String, T> entry : resources.entrySet()) {
+            this.cache.put(entry.getKey(), new CachedResource<T>(entry.getValue(), this.ttlInMillis));
+        }
+    }
+
+    /**
+     * Drops the cached state of a resource, to be called after an operation
+     * changing it
+     */
+    void invalidate(final String id) {
+        this.cache.remove(id);
+    }
+
+    /**
+     * Drops the expired resources
+     */
+    void purge() {
+        for (Map.Entry<String, CachedResource<T>> entry : this.cache.entrySet()) {
+            if (entry.getValue().isExpired()) {
+                this.cache.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
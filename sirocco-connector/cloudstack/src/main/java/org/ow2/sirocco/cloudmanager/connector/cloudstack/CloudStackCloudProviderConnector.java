@@ -3,6 +3,7 @@ package org.ow2.sirocco.cloudmanager.connector.cloudstack;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -38,8 +39,10 @@ import org.ow2.sirocco.cloudmanager.connector.api.IImageService;
 import org.ow2.sirocco.cloudmanager.connector.api.INetworkService;
 import org.ow2.sirocco.cloudmanager.connector.api.ISystemService;
 import org.ow2.sirocco.cloudmanager.connector.api.IVolumeService;
+import org.ow2.sirocco.cloudmanager.connector.api.ProviderSessionCache;
 import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
 import org.ow2.sirocco.cloudmanager.connector.api.ResourceNotFoundException;
+import org.ow2.sirocco.cloudmanager.connector.api.ResourceStates;
 import org.ow2.sirocco.cloudmanager.model.cimi.Address;
 import org.ow2.sirocco.cloudmanager.model.cimi.DiskTemplate;
 import org.ow2.sirocco.cloudmanager.model.cimi.ForwardingGroup;
@@ -86,27 +89,16 @@ public class CloudStackCloudProviderConnector implements ICloudProviderConnector
     INetworkService, IImageService {
     private static Logger logger = LoggerFactory.getLogger(CloudStackCloudProviderConnector.class);
 
-    private List<CloudStackProvider> providers = new ArrayList<CloudStackProvider>();
-
-    private synchronized CloudStackProvider getProvider(final ProviderTarget target) {
-        for (CloudStackProvider provider : this.providers) {
-            if (provider.cloudProviderAccount.equals(target.getAccount())) {
-                // location can be null?
-                if (provider.cloudProviderLocation != target.getLocation()) {
-                    if (target.getLocation() != null) {
-                        if (provider.cloudProviderLocation.getId().equals(target.getLocation().getId())) {
-                            return provider;
-                        }
-                    }
-                } else {
-                    return provider;
-                }
+    private final ProviderSessionCache<CloudStackProvider> providers = new ProviderSessionCache<CloudStackProvider>(
+        new ProviderSessionCache.SessionFactory<CloudStackProvider>() {
+            @Override
+            public CloudStackProvider create(final ProviderTarget target) {
+                return new CloudStackProvider(target);
             }
-        }
+        });
 
-        CloudStackProvider provider = new CloudStackProvider(target);
-        this.providers.add(provider);
-        return provider;
+    private CloudStackProvider getProvider(final ProviderTarget target) throws ConnectorException {
+        return this.providers.get(target);
     }
 
     @Override
@@ -160,6 +152,12 @@ public class CloudStackCloudProviderConnector implements ICloudProviderConnector
         return this.getProvider(target).getNetworkState(networkId);
     }
 
+    @Override
+    public Map<String, Network.State> getNetworkStates(final Collection<String> networkIds, final ProviderTarget target)
+        throws ConnectorException {
+        return this.getProvider(target).getNetworkStates(networkIds);
+    }
+
     @Override
     public List<Network> getNetworks(final ProviderTarget target) throws ConnectorException {
         return this.getProvider(target).getNetworks();
@@ -349,6 +347,12 @@ public class CloudStackCloudProviderConnector implements ICloudProviderConnector
         return this.getProvider(target).getVolumeState(volumeId);
     }
 
+    @Override
+    public Map<String, Volume.State> getVolumeStates(final Collection<String> volumeIds, final ProviderTarget target)
+        throws ConnectorException {
+        return ResourceStates.getVolumeStates(this, volumeIds, target);
+    }
+
     @Override
     public Volume getVolume(final String volumeId, final ProviderTarget target) throws ConnectorException {
         return this.getProvider(target).getVolume(volumeId);
@@ -422,6 +426,12 @@ public class CloudStackCloudProviderConnector implements ICloudProviderConnector
         return this.getProvider(target).getMachineState(machineId);
     }
 
+    @Override
+    public Map<String, Machine.State> getMachineStates(final Collection<String> machineIds, final ProviderTarget target)
+        throws ConnectorException {
+        return this.getProvider(target).getMachineStates(machineIds);
+    }
+
     @Override
     public Machine getMachine(final String machineId, final ProviderTarget target) throws ConnectorException {
         return this.getProvider(target).getMachine(machineId);
@@ -764,6 +774,19 @@ public class CloudStackCloudProviderConnector implements ICloudProviderConnector
             return this.fromVMStateToMachineState(vm.getState());
         }
 
+        public Map<String, Machine.State> getMachineStates(final Collection<String> machineIds) {
+            Map<String, Machine.State> result = new HashMap<String, Machine.State>();
+            if (machineIds.isEmpty()) {
+                return result;
+            }
+            for (VirtualMachine vm : this.vmClient.listVirtualMachines()) {
+                if (machineIds.contains(vm.getId())) {
+                    result.put(vm.getId(), this.fromVMStateToMachineState(vm.getState()));
+                }
+            }
+            return result;
+        }
+
         public Machine getMachine(final String machineId) throws ConnectorException {
             VirtualMachine vm = this.vmClient.getVirtualMachine(machineId);
             if (vm == null) {
@@ -955,6 +978,19 @@ public class CloudStackCloudProviderConnector implements ICloudProviderConnector
             return this.fromCloudStackNetworkStateToCimiNetworkState(cloudStackNetwork.getState());
         }
 
+        public Map<String, Network.State> getNetworkStates(final Collection<String> networkIds) {
+            Map<String, Network.State> result = new HashMap<String, Network.State>();
+            if (networkIds.isEmpty()) {
+                return result;
+            }
+            for (org.jclouds.cloudstack.domain.Network net : this.networkClient.listNetworks()) {
+                if (networkIds.contains(net.getId())) {
+                    result.put(net.getId(), this.fromCloudStackNetworkStateToCimiNetworkState(net.getState()));
+                }
+            }
+            return result;
+        }
+
         public Network getNetwork(final String networkId) throws ConnectorException {
             Network network = new Network();
             this.fromCloudStackNetworkToCimiNetwork(networkId, network);
@@ -0,0 +1,53 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 France Telecom
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ *
+ */
+package org.ow2.sirocco.cloudmanager.connector.api;
+
+import java.util.List;
+
+import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineCreate;
+
+/**
+ * Optional extension of a {@link IComputeService} able to create several
+ * identical machines with a single provider request. Compute services that do
+ * not implement this interface are asked to create the machines one by one.
+ */
+public interface IBatchComputeService {
+
+    /**
+     * Creates identical machines. A provider may create fewer machines than
+     * requested, e.g. when it reaches a quota: the machines that were created
+     * are returned and the missing ones are failed by the caller. An exception
+     * is thrown when no machine could be created.
+     * 
+     * @param machineCreate the machine creation parameters shared by all
+     *        machines
+     * @param count the number of machines to create
+     * @param target
+     * @return the created machines, at most count
+     * @throws ConnectorException
+     */
+    List<Machine> createMachines(MachineCreate machineCreate, int count, ProviderTarget target) throws ConnectorException;
+
+}
@@ -50,6 +50,9 @@ import org.ow2.sirocco.cloudmanager.model.cimi.extension.Quota;
  * Note that a connector might raise an UnsupportedOperation exception for one
  * of these services if the underlying IaaS provider does not support the
  * corresponding IaaS resources.
+ * <p>
+ * A connector able to push resource state changes may also implement
+ * {@link IProviderEventSource}.
  */
 public interface ICloudProviderConnector {
 
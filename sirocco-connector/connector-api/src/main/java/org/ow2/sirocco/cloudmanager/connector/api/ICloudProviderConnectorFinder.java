@@ -44,4 +44,9 @@ public interface ICloudProviderConnectorFinder {
      */
     ICloudProviderConnector getCloudProviderConnector(final String cloudProviderType);
 
+    /**
+     * Reloads the connectors after a change of the cloud provider profiles
+     */
+    void reload();
+
 }
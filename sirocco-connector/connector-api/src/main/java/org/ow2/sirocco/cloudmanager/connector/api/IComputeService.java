@@ -25,7 +25,9 @@
 
 package org.ow2.sirocco.cloudmanager.connector.api;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
 import org.ow2.sirocco.cloudmanager.model.cimi.MachineConfiguration;
@@ -137,6 +139,20 @@ public interface IComputeService {
     Machine.State getMachineState(final String machineId, ProviderTarget target) throws ResourceNotFoundException,
         ConnectorException;
 
+    /**
+     * Gets the state of several machines, if possible with a single request to
+     * the provider. Machines that cannot be found are absent from the returned
+     * map. Connectors without native bulk support can delegate to
+     * {@link ResourceStates#getMachineStates(IComputeService, Collection, ProviderTarget)}
+     * 
+     * @param machineIds
+     * @param target
+     * @return map of machine states keyed by machine id
+     * @throws ConnectorException
+     */
+    Map<String, Machine.State> getMachineStates(Collection<String> machineIds, ProviderTarget target)
+        throws ConnectorException;
+
     /**
      * Gets a machine
      * 
@@ -49,7 +49,7 @@ public interface IImageService {
      * Gets all machine images
      * 
      * @param returnPublicImages if true include public images
-     * @param searchCriteria placeholder for search criteria
+     * @param searchCriteria provider specific search criteria, may be null
      * @param target provider target
      * @return list of machine images available from the provider account
      */
@@ -0,0 +1,44 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 France Telecom
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ *
+ */
+package org.ow2.sirocco.cloudmanager.connector.api;
+
+import java.util.List;
+
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineImage;
+
+/**
+ * Receives the machine images listed by a {@link IPagedImageService} one page
+ * at a time.
+ */
+public interface IMachineImageHandler {
+
+    /**
+     * Called for each page of machine images, in listing order
+     * 
+     * @param machineImages the machine images of the page
+     * @throws ConnectorException raised to stop the listing
+     */
+    void handleMachineImages(List<MachineImage> machineImages) throws ConnectorException;
+
+}
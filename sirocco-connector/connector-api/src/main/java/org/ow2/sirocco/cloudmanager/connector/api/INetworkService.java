@@ -25,6 +25,7 @@
 
 package org.ow2.sirocco.cloudmanager.connector.api;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -80,6 +81,20 @@ public interface INetworkService {
      */
     Network.State getNetworkState(String networkId, ProviderTarget target) throws ConnectorException;
 
+    /**
+     * Gets the state of several networks, if possible with a single request to
+     * the provider. Networks that cannot be found are absent from the returned
+     * map. Connectors without native bulk support can delegate to
+     * {@link ResourceStates#getNetworkStates(INetworkService, Collection, ProviderTarget)}
+     * 
+     * @param networkIds
+     * @param target
+     * @return map of network states keyed by network id
+     * @throws ConnectorException
+     */
+    Map<String, Network.State> getNetworkStates(Collection<String> networkIds, ProviderTarget target)
+        throws ConnectorException;
+
     /**
      * Gets all networks
      * 
@@ -0,0 +1,49 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 France Telecom
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ *
+ */
+package org.ow2.sirocco.cloudmanager.connector.api;
+
+import java.util.Map;
+
+/**
+ * Optional extension of a {@link IImageService} able to hand over large image
+ * catalogs page by page instead of building the whole list in memory. Image
+ * services that do not implement this interface are asked for the complete
+ * list.
+ */
+public interface IPagedImageService {
+
+    /**
+     * Lists machine images page by page
+     * 
+     * @param returnAccountImagesOnly if true only return the images owned by
+     *        the account
+     * @param searchCriteria provider specific search criteria, may be null
+     * @param target provider target
+     * @param handler the handler called for each page of machine images
+     * @throws ConnectorException
+     */
+    void getMachineImages(boolean returnAccountImagesOnly, Map<String, String> searchCriteria, ProviderTarget target,
+        IMachineImageHandler handler) throws ConnectorException;
+
+}
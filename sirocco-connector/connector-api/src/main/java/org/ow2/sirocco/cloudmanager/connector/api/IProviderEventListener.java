@@ -0,0 +1,40 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 France Telecom
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ *
+ */
+package org.ow2.sirocco.cloudmanager.connector.api;
+
+/**
+ * Receives the resource state changes pushed by a {@link IProviderEventSource}.
+ * Implementations must return quickly as they are called from connector
+ * threads.
+ */
+public interface IProviderEventListener {
+
+    /**
+     * Called when the state of a provider resource has changed
+     * 
+     * @param event the state change
+     */
+    void onResourceStateChange(ResourceStateChangeEvent event);
+
+}
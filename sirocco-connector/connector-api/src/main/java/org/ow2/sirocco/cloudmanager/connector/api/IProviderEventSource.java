@@ -0,0 +1,53 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 France Telecom
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ *
+ */
+package org.ow2.sirocco.cloudmanager.connector.api;
+
+/**
+ * Optional extension of a {@link ICloudProviderConnector} able to push the
+ * state changes of provider resources, for instance from provider notification
+ * queues or asynchronous task callbacks. When a connector implements this
+ * interface, the resource watcher subscribes to each provider target it polls
+ * and only falls back to polling when no notification arrives in time.
+ */
+public interface IProviderEventSource {
+
+    /**
+     * Starts notifying the state changes of the resources of a provider target
+     * 
+     * @param target the provider account and location to watch
+     * @param listener the listener notified of state changes
+     * @throws ConnectorException raised if notifications cannot be set up for
+     *         this target
+     */
+    void subscribe(ProviderTarget target, IProviderEventListener listener) throws ConnectorException;
+
+    /**
+     * Stops notifying the state changes of the resources of a provider target
+     * 
+     * @param target the provider account and location
+     * @param listener the listener to remove
+     */
+    void unsubscribe(ProviderTarget target, IProviderEventListener listener);
+
+}
@@ -25,6 +25,9 @@
 
 package org.ow2.sirocco.cloudmanager.connector.api;
 
+import java.util.Collection;
+import java.util.Map;
+
 import org.ow2.sirocco.cloudmanager.model.cimi.Volume;
 import org.ow2.sirocco.cloudmanager.model.cimi.VolumeCreate;
 import org.ow2.sirocco.cloudmanager.model.cimi.VolumeImage;
@@ -65,6 +68,19 @@ public interface IVolumeService {
      */
     Volume.State getVolumeState(String volumeId, ProviderTarget target) throws ResourceNotFoundException, ConnectorException;
 
+    /**
+     * Gets the state of several volumes, if possible with a single request to
+     * the provider. Volumes that cannot be found are absent from the returned
+     * map. Connectors without native bulk support can delegate to
+     * {@link ResourceStates#getVolumeStates(IVolumeService, Collection, ProviderTarget)}
+     * 
+     * @param volumeIds
+     * @param target
+     * @return map of volume states keyed by volume id
+     * @throws ConnectorException
+     */
+    Map<String, Volume.State> getVolumeStates(Collection<String> volumeIds, ProviderTarget target) throws ConnectorException;
+
     /**
      * Gets a volume
      * 
@@ -0,0 +1,285 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.connector.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Cache of the provider sessions (authenticated API clients) of a connector,
+ * keyed by cloud provider account and location. Lookups do not lock: a
+ * session is created only once even when several threads ask for it at the
+ * same time, the others waiting for its creation. Sessions are recreated
+ * shortly before their token expires, and are evicted after an idle timeout
+ * or, beyond the maximum size, least recently used first. A session may thus
+ * be dropped at any time and must only hold state that can be rebuilt from
+ * the provider; a connector whose sessions are the only copy of its resources
+ * disables eviction with {@link #UNBOUNDED_SIZE} and {@link #NO_IDLE_TIMEOUT}.
+ * 
+ * @param <P> session type
+ */
+public class ProviderSessionCache<P> {
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    public static final long DEFAULT_IDLE_TIMEOUT_IN_MILLIS = 60 * 60 * 1000;
+
+    /**
+     * Maximum size of a cache that never evicts its least recently used sessions
+     */
+    public static final int UNBOUNDED_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * Idle timeout of a cache that never evicts idle sessions
+     */
+    public static final long NO_IDLE_TIMEOUT = Long.MAX_VALUE;
+
+    /**
+     * Sessions expiring within this delay are recreated rather than returned
+     */
+    private static final long EXPIRATION_MARGIN_IN_MILLIS = 60 * 1000;
+
+    private static final long SWEEP_PERIOD_IN_MILLIS = 60 * 1000;
+
+    /**
+     * Creates the sessions of a connector
+     * 
+     * @param <P> session type
+     */
+    public abstract static class SessionFactory<P> {
+        /**
+         * Creates a session to the given provider account and location
+         */
+        public abstract P create(ProviderTarget target) throws ConnectorException;
+
+        /**
+         * Returns the time in milliseconds at which the credentials of a session
+         * expire, or 0 if they do not expire
+         */
+        public long getExpirationTime(final P session) {
+            return 0;
+        }
+    }
+
+    private static class Key {
+        private final Integer accountId;
+
+        private final Integer locationId;
+
+        Key(final ProviderTarget target) {
+            this.accountId = target.getAccount().getId();
+            this.locationId = target.getLocation() != null ? target.getLocation().getId() : null;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((this.accountId == null) ? 0 : this.accountId.hashCode());
+            result = prime * result + ((this.locationId == null) ? 0 : this.locationId.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return (this.accountId == null ? other.accountId == null : this.accountId.equals(other.accountId))
+                && (this.locationId == null ? other.locationId == null : this.locationId.equals(other.locationId));
+        }
+    }
+
+    private static class Entry<P> {
+        private final FutureTask<P> session;
+
+        private volatile long expirationTime;
+
+        private volatile long lastAccessTime;
+
+        Entry(final FutureTask<P> session, final long now) {
+            this.session = session;
+            this.lastAccessTime = now;
+        }
+    }
+
+    private final ConcurrentMap<Key, Entry<P>> sessions = new ConcurrentHashMap<>();
+
+    private final SessionFactory<P> factory;
+
+    private final int maxSize;
+
+    private final long idleTimeoutInMillis;
+
+    private volatile long lastSweepTime = System.currentTimeMillis();
+
+    public ProviderSessionCache(final SessionFactory<P> factory) {
+        this(factory, ProviderSessionCache.DEFAULT_MAX_SIZE, ProviderSessionCache.DEFAULT_IDLE_TIMEOUT_IN_MILLIS);
+    }
+
+    public ProviderSessionCache(final SessionFactory<P> factory, final int maxSize, final long idleTimeoutInMillis) {
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.idleTimeoutInMillis = idleTimeoutInMillis;
+    }
+
+    /**
+     * Returns the session of the given provider account and location, creating
+     * it if there is none or if its credentials are about to expire
+     */
+    public P get(final ProviderTarget target) throws ConnectorException {
+        if (target.getAccount() == null) {
+            throw new ConnectorException("target.account is null");
+        }
+        Key key = new Key(target);
+        while (true) {
+            long now = System.currentTimeMillis();
+            Entry<P> entry = this.sessions.get(key);
+            boolean created = false;
+            if (entry == null) {
+                Entry<P> newEntry = new Entry<>(new FutureTask<>(this.creation(target)), now);
+                entry = this.sessions.putIfAbsent(key, newEntry);
+                if (entry == null) {
+                    entry = newEntry;
+                    entry.session.run();
+                    created = true;
+                    this.evict(now);
+                }
+            }
+            P session = this.await(key, entry);
+            if (!created && entry.expirationTime != 0
+                && now >= entry.expirationTime - ProviderSessionCache.EXPIRATION_MARGIN_IN_MILLIS) {
+                // the next lookup creates a new session
+                this.sessions.remove(key, entry);
+                continue;
+            }
+            entry.lastAccessTime = now;
+            if (now - this.lastSweepTime > ProviderSessionCache.SWEEP_PERIOD_IN_MILLIS) {
+                this.evict(now);
+            }
+            return session;
+        }
+    }
+
+    private Callable<P> creation(final ProviderTarget target) {
+        return new Callable<P>() {
+            @Override
+            public P call() throws Exception {
+                return ProviderSessionCache.this.factory.create(target);
+            }
+        };
+    }
+
+    private P await(final Key key, final Entry<P> entry) throws ConnectorException {
+        try {
+            P session = entry.session.get();
+            if (entry.expirationTime == 0) {
+                entry.expirationTime = this.factory.getExpirationTime(session);
+            }
+            return session;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectorException(e);
+        } catch (ExecutionException e) {
+            // do not keep failed creations, the next lookup tries again
+            this.sessions.remove(key, entry);
+            Throwable cause = e.getCause();
+            if (cause instanceof ConnectorException) {
+                throw (ConnectorException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ConnectorException(cause);
+        }
+    }
+
+    /**
+     * Removes the idle sessions then, if the cache is still too large, the least
+     * recently used ones
+     */
+    private void evict(final long now) {
+        this.lastSweepTime = now;
+        for (Map.Entry<Key, Entry<P>> entry : this.sessions.entrySet()) {
+            if (now - entry.getValue().lastAccessTime > this.idleTimeoutInMillis) {
+                this.sessions.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        int excess = this.sessions.size() - this.maxSize;
+        if (excess > 0) {
+            // access times are copied since they keep changing while sorting
+            final Map<Key, Long> accessTimes = new HashMap<>();
+            for (Map.Entry<Key, Entry<P>> entry : this.sessions.entrySet()) {
+                accessTimes.put(entry.getKey(), entry.getValue().lastAccessTime);
+            }
+            List<Key> keys = new ArrayList<>(accessTimes.keySet());
+            Collections.sort(keys, new Comparator<Key>() {
+                @Override
+                public int compare(final Key k1, final Key k2) {
+                    return accessTimes.get(k1).compareTo(accessTimes.get(k2));
+                }
+            });
+            for (int i = 0; i < excess && i < keys.size(); i++) {
+                this.sessions.remove(keys.get(i));
+            }
+        }
+    }
+
+    /**
+     * Removes the session of the given provider account and location, e.g.
+     * after a change of the account credentials
+     */
+    public void invalidate(final ProviderTarget target) {
+        this.sessions.remove(new Key(target));
+    }
+
+    /**
+     * Removes all the sessions
+     */
+    public void invalidateAll() {
+        this.sessions.clear();
+    }
+
+    /**
+     * Returns the number of cached sessions
+     */
+    public int size() {
+        return this.sessions.size();
+    }
+
+}
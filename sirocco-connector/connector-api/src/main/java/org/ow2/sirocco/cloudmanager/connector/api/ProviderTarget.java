@@ -68,4 +68,39 @@ public class ProviderTarget {
         return this;
     }
 
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((this.account == null) ? 0 : this.account.hashCode());
+        result = prime * result + ((this.location == null) ? 0 : this.location.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || this.getClass() != obj.getClass()) {
+            return false;
+        }
+        ProviderTarget other = (ProviderTarget) obj;
+        if (this.account == null) {
+            if (other.account != null) {
+                return false;
+            }
+        } else if (!this.account.equals(other.account)) {
+            return false;
+        }
+        if (this.location == null) {
+            if (other.location != null) {
+                return false;
+            }
+        } else if (!this.location.equals(other.location)) {
+            return false;
+        }
+        return true;
+    }
+
 }
@@ -0,0 +1,75 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 France Telecom
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ *
+ */
+package org.ow2.sirocco.cloudmanager.connector.api;
+
+/**
+ * State change of a provider resource pushed by a {@link IProviderEventSource}
+ */
+public class ResourceStateChangeEvent {
+    private final ProviderTarget target;
+
+    private final Class<?> resourceType;
+
+    private final String providerAssignedId;
+
+    private final Enum<?> state;
+
+    /**
+     * Creates a state change event
+     * 
+     * @param target provider account and location of the resource
+     * @param resourceType type of the resource, e.g. Machine.class
+     * @param providerAssignedId provider id of the resource
+     * @param state new state of the resource, e.g. Machine.State.STARTED
+     */
+    public ResourceStateChangeEvent(final ProviderTarget target, final Class<?> resourceType,
+        final String providerAssignedId, final Enum<?> state) {
+        this.target = target;
+        this.resourceType = resourceType;
+        this.providerAssignedId = providerAssignedId;
+        this.state = state;
+    }
+
+    public ProviderTarget getTarget() {
+        return this.target;
+    }
+
+    public Class<?> getResourceType() {
+        return this.resourceType;
+    }
+
+    public String getProviderAssignedId() {
+        return this.providerAssignedId;
+    }
+
+    public Enum<?> getState() {
+        return this.state;
+    }
+
+    @Override
+    public String toString() {
+        return this.resourceType.getSimpleName() + " " + this.providerAssignedId + " -> " + this.state;
+    }
+
+}
@@ -0,0 +1,84 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 France Telecom
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ *
+ */
+package org.ow2.sirocco.cloudmanager.connector.api;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
+import org.ow2.sirocco.cloudmanager.model.cimi.Network;
+import org.ow2.sirocco.cloudmanager.model.cimi.Volume;
+
+/**
+ * Fallback implementations of the bulk state operations for connectors whose
+ * provider API does not allow to fetch the state of several resources at once.
+ * Each resource is queried individually and resources that cannot be found are
+ * left out of the result.
+ */
+public final class ResourceStates {
+
+    private ResourceStates() {
+    }
+
+    public static Map<String, Machine.State> getMachineStates(final IComputeService computeService,
+        final Collection<String> machineIds, final ProviderTarget target) throws ConnectorException {
+        Map<String, Machine.State> result = new HashMap<String, Machine.State>();
+        for (String machineId : machineIds) {
+            try {
+                result.put(machineId, computeService.getMachineState(machineId, target));
+            } catch (ResourceNotFoundException e) {
+                // absent from result
+            }
+        }
+        return result;
+    }
+
+    public static Map<String, Volume.State> getVolumeStates(final IVolumeService volumeService,
+        final Collection<String> volumeIds, final ProviderTarget target) throws ConnectorException {
+        Map<String, Volume.State> result = new HashMap<String, Volume.State>();
+        for (String volumeId : volumeIds) {
+            try {
+                result.put(volumeId, volumeService.getVolumeState(volumeId, target));
+            } catch (ResourceNotFoundException e) {
+                // absent from result
+            }
+        }
+        return result;
+    }
+
+    public static Map<String, Network.State> getNetworkStates(final INetworkService networkService,
+        final Collection<String> networkIds, final ProviderTarget target) throws ConnectorException {
+        Map<String, Network.State> result = new HashMap<String, Network.State>();
+        for (String networkId : networkIds) {
+            try {
+                result.put(networkId, networkService.getNetworkState(networkId, target));
+            } catch (ResourceNotFoundException e) {
+                // absent from result
+            }
+        }
+        return result;
+    }
+
+}
@@ -27,6 +27,7 @@ package org.ow2.sirocco.cloudmanager.connector.mock;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -37,17 +38,28 @@ import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.ow2.sirocco.cloudmanager.connector.api.BadStateException;
 import org.ow2.sirocco.cloudmanager.connector.api.ConnectorException;
+import org.ow2.sirocco.cloudmanager.connector.api.IBatchComputeService;
 import org.ow2.sirocco.cloudmanager.connector.api.ICloudProviderConnector;
 import org.ow2.sirocco.cloudmanager.connector.api.IComputeService;
 import org.ow2.sirocco.cloudmanager.connector.api.IImageService;
 import org.ow2.sirocco.cloudmanager.connector.api.INetworkService;
+import org.ow2.sirocco.cloudmanager.connector.api.IProviderEventListener;
+import org.ow2.sirocco.cloudmanager.connector.api.IProviderEventSource;
 import org.ow2.sirocco.cloudmanager.connector.api.ISystemService;
 import org.ow2.sirocco.cloudmanager.connector.api.IVolumeService;
+import org.ow2.sirocco.cloudmanager.connector.api.ProviderSessionCache;
 import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
 import org.ow2.sirocco.cloudmanager.connector.api.ResourceNotFoundException;
+import org.ow2.sirocco.cloudmanager.connector.api.ResourceStateChangeEvent;
 import org.ow2.sirocco.cloudmanager.model.cimi.Address;
 import org.ow2.sirocco.cloudmanager.model.cimi.CloudCollectionItem;
 import org.ow2.sirocco.cloudmanager.model.cimi.CloudResource;
@@ -110,35 +122,58 @@ import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 
 public class MockCloudProviderConnector implements ICloudProviderConnector, IComputeService, ISystemService, IVolumeService,
-    INetworkService, IImageService {
+    INetworkService, IImageService, IProviderEventSource, IBatchComputeService {
 
     private static Logger logger = LoggerFactory.getLogger(MockCloudProviderConnector.class);
 
     private static final int ENTITY_LIFECYCLE_OPERATION_TIME_IN_MILLISECONDS = 1;
 
-    private List<MockProvider> mockProviders = new ArrayList<MockProvider>();
+    /**
+     * Delay of state change notifications, long enough for the resource watch
+     * of the operation to be started when the notification comes
+     */
+    private static final int EVENT_NOTIFICATION_DELAY_IN_MILLISECONDS = 500;
 
-    private synchronized MockProvider getProvider(final ProviderTarget target) {
-        for (MockProvider provider : this.mockProviders) {
-            if (provider.cloudProviderAccount.equals(target.getAccount())) {
-                // location can be null?
-                if (provider.cloudProviderLocation != target.getLocation()) {
-                    if (target.getLocation() != null) {
-                        if (provider.cloudProviderLocation.getId().equals(target.getLocation().getId())) {
-                            return provider;
-                        }
-                    }
-                } else {
-                    return provider;
-                }
+    private static volatile boolean eventsDropped;
+
+    /**
+     * Number of machines the mock providers still accept to create, negative
+     * for no limit
+     */
+    private static final AtomicInteger machineQuota = new AtomicInteger(-1);
+
+    private static final ScheduledExecutorService eventNotifier = Executors
+        .newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread thread = new Thread(r, "mock-connector-events");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+    /**
+     * The mock providers hold the resources of the mock cloud: they are never
+     * evicted
+     */
+    private final ProviderSessionCache<MockProvider> mockProviders = new ProviderSessionCache<MockProvider>(
+        new ProviderSessionCache.SessionFactory<MockProvider>() {
+            @Override
+            public MockProvider create(final ProviderTarget target) {
+                MockProvider provider = new MockProvider();
+                provider.cloudProviderAccount = target.getAccount();
+                provider.cloudProviderLocation = target.getLocation();
+                return provider;
             }
-        }
+        }, ProviderSessionCache.UNBOUNDED_SIZE, ProviderSessionCache.NO_IDLE_TIMEOUT);
 
-        MockProvider provider = new MockProvider();
-        provider.cloudProviderAccount = target.getAccount();
-        provider.cloudProviderLocation = target.getLocation();
-        this.mockProviders.add(provider);
-        return provider;
+    private MockProvider getProvider(final ProviderTarget target) {
+        try {
+            return this.mockProviders.get(target);
+        } catch (ConnectorException e) {
+            // mock providers are created without failing
+            throw new IllegalArgumentException(e.getMessage());
+        }
     }
 
     @Override
@@ -153,6 +188,48 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
         return this.getProvider(target).quota;
     }
 
+    /**
+     * Drops the state change notifications instead of sending them, to simulate
+     * lost provider events in tests
+     */
+    public static void setEventsDropped(final boolean eventsDropped) {
+        MockCloudProviderConnector.eventsDropped = eventsDropped;
+    }
+
+    /**
+     * Limits the number of machines the mock providers accept to create from
+     * now on, a negative quota removing the limit. Tests use it to simulate a
+     * provider quota.
+     */
+    public static void setMachineQuota(final int machineQuota) {
+        MockCloudProviderConnector.machineQuota.set(machineQuota);
+    }
+
+    private static void consumeMachineQuota() throws ConnectorException {
+        while (true) {
+            int quota = MockCloudProviderConnector.machineQuota.get();
+            if (quota < 0) {
+                return;
+            }
+            if (quota == 0) {
+                throw new ConnectorException("Machine quota exceeded");
+            }
+            if (MockCloudProviderConnector.machineQuota.compareAndSet(quota, quota - 1)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(final ProviderTarget target, final IProviderEventListener listener) throws ConnectorException {
+        this.getProvider(target).listeners.add(listener);
+    }
+
+    @Override
+    public void unsubscribe(final ProviderTarget target, final IProviderEventListener listener) {
+        this.getProvider(target).listeners.remove(listener);
+    }
+
     @Override
     public IComputeService getComputeService() throws ConnectorException {
         return this;
@@ -180,7 +257,9 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
 
     @Override
     public Network createNetwork(final NetworkCreate networkCreate, final ProviderTarget target) throws ConnectorException {
-        return this.getProvider(target).createNetwork(networkCreate);
+        Network network = this.getProvider(target).createNetwork(networkCreate);
+        this.getProvider(target).notifyStateChange(Network.class, network.getProviderAssignedId());
+        return network;
     }
 
     @Override
@@ -193,6 +272,12 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
         return this.getProvider(target).getNetworkState(networkId);
     }
 
+    @Override
+    public Map<String, Network.State> getNetworkStates(final Collection<String> networkIds, final ProviderTarget target)
+        throws ConnectorException {
+        return this.getProvider(target).getNetworkStates(networkIds);
+    }
+
     @Override
     public List<Network> getNetworks(final ProviderTarget target) throws ConnectorException {
         return this.getProvider(target).getNetworks();
@@ -201,16 +286,19 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
     @Override
     public void deleteNetwork(final String networkId, final ProviderTarget target) throws ConnectorException {
         this.getProvider(target).deleteNetwork(networkId);
+        this.getProvider(target).notifyStateChange(Network.class, networkId);
     }
 
     @Override
     public void startNetwork(final String networkId, final ProviderTarget target) throws ConnectorException {
         this.getProvider(target).startNetwork(networkId);
+        this.getProvider(target).notifyStateChange(Network.class, networkId);
     }
 
     @Override
     public void stopNetwork(final String networkId, final ProviderTarget target) throws ConnectorException {
         this.getProvider(target).stopNetwork(networkId);
+        this.getProvider(target).notifyStateChange(Network.class, networkId);
     }
 
     @Override
@@ -356,12 +444,15 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
 
     @Override
     public Volume createVolume(final VolumeCreate volumeCreate, final ProviderTarget target) throws ConnectorException {
-        return this.getProvider(target).createVolume(volumeCreate);
+        Volume volume = this.getProvider(target).createVolume(volumeCreate);
+        this.getProvider(target).notifyStateChange(Volume.class, volume.getProviderAssignedId());
+        return volume;
     }
 
     @Override
     public void deleteVolume(final String volumeId, final ProviderTarget target) throws ConnectorException {
         this.getProvider(target).deleteVolume(volumeId);
+        this.getProvider(target).notifyStateChange(Volume.class, volumeId);
     }
 
     @Override
@@ -369,6 +460,12 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
         return this.getProvider(target).getVolumeState(volumeId);
     }
 
+    @Override
+    public Map<String, Volume.State> getVolumeStates(final Collection<String> volumeIds, final ProviderTarget target)
+        throws ConnectorException {
+        return this.getProvider(target).getVolumeStates(volumeIds);
+    }
+
     @Override
     public Volume getVolume(final String volumeId, final ProviderTarget target) throws ConnectorException {
         return this.getProvider(target).getVolume(volumeId);
@@ -472,38 +569,64 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
 
     @Override
     public Machine createMachine(final MachineCreate machineCreate, final ProviderTarget target) throws ConnectorException {
-        return this.getProvider(target).createMachine(machineCreate);
+        MockCloudProviderConnector.consumeMachineQuota();
+        Machine machine = this.getProvider(target).createMachine(machineCreate);
+        this.getProvider(target).notifyStateChange(Machine.class, machine.getProviderAssignedId());
+        return machine;
+    }
+
+    @Override
+    public List<Machine> createMachines(final MachineCreate machineCreate, final int count, final ProviderTarget target)
+        throws ConnectorException {
+        List<Machine> machines = new ArrayList<Machine>();
+        try {
+            for (int i = 0; i < count; i++) {
+                machines.add(this.createMachine(machineCreate, target));
+            }
+        } catch (ConnectorException e) {
+            // like a provider reaching its quota, return the machines created so far
+            if (machines.isEmpty()) {
+                throw e;
+            }
+        }
+        return machines;
     }
 
     @Override
     public void startMachine(final String machineId, final ProviderTarget target) throws ConnectorException {
         this.getProvider(target).startMachine(machineId);
+        this.getProvider(target).notifyStateChange(Machine.class, machineId);
     }
 
     @Override
     public void stopMachine(final String machineId, final boolean force, final ProviderTarget target) throws ConnectorException {
         this.getProvider(target).stopMachine(machineId, force);
+        this.getProvider(target).notifyStateChange(Machine.class, machineId);
     }
 
     @Override
     public void suspendMachine(final String machineId, final ProviderTarget target) throws ConnectorException {
         this.getProvider(target).suspendMachine(machineId);
+        this.getProvider(target).notifyStateChange(Machine.class, machineId);
     }
 
     @Override
     public void restartMachine(final String machineId, final boolean force, final ProviderTarget target)
         throws ConnectorException {
         this.getProvider(target).restartMachine(machineId, force);
+        this.getProvider(target).notifyStateChange(Machine.class, machineId);
     }
 
     @Override
     public void pauseMachine(final String machineId, final ProviderTarget target) throws ConnectorException {
         this.getProvider(target).pauseMachine(machineId);
+        this.getProvider(target).notifyStateChange(Machine.class, machineId);
     }
 
     @Override
     public void deleteMachine(final String machineId, final ProviderTarget target) throws ConnectorException {
         this.getProvider(target).deleteMachine(machineId);
+        this.getProvider(target).notifyStateChange(Machine.class, machineId);
     }
 
     @Override
@@ -517,6 +640,12 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
         return this.getProvider(target).getMachineState(machineId);
     }
 
+    @Override
+    public Map<String, State> getMachineStates(final Collection<String> machineIds, final ProviderTarget target)
+        throws ConnectorException {
+        return this.getProvider(target).getMachineStates(machineIds);
+    }
+
     @Override
     public Machine getMachine(final String machineId, final ProviderTarget target) throws ConnectorException {
         return this.getProvider(target).getMachine(machineId);
@@ -526,12 +655,14 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
     public void addVolumeToMachine(final String machineId, final MachineVolume machineVolume, final ProviderTarget target)
         throws ConnectorException {
         this.getProvider(target).addVolumeToMachine(machineId, machineVolume);
+        this.getProvider(target).notifyStateChange(Machine.class, machineId);
     }
 
     @Override
     public void removeVolumeFromMachine(final String machineId, final MachineVolume machineVolume, final ProviderTarget target)
         throws ConnectorException {
         this.getProvider(target).removeVolumeFromMachine(machineId, machineVolume);
+        this.getProvider(target).notifyStateChange(Machine.class, machineId);
     }
 
     @Override
@@ -600,6 +731,8 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
 
         private Random random = new Random();
 
+        private List<IProviderEventListener> listeners = new CopyOnWriteArrayList<IProviderEventListener>();
+
         MockProvider() {
             Network publicNetwork = new Network();
             publicNetwork.setNetworkType(Network.Type.PUBLIC);
@@ -644,6 +777,47 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
             resourceQuotas.add(this.cpuCountQuota);
         }
 
+        /**
+         * Notifies subscribed listeners of the state reached by a resource once
+         * the simulated lifecycle operation is done
+         */
+        void notifyStateChange(final Class<?> resourceType, final String resourceId) {
+            if (this.listeners.isEmpty() || MockCloudProviderConnector.eventsDropped) {
+                return;
+            }
+            MockCloudProviderConnector.eventNotifier.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    Enum<?> state;
+                    try {
+                        state = MockProvider.this.getResourceState(resourceType, resourceId);
+                    } catch (ConnectorException e) {
+                        return;
+                    }
+                    ResourceStateChangeEvent event = new ResourceStateChangeEvent(new ProviderTarget().account(
+                        MockProvider.this.cloudProviderAccount).location(MockProvider.this.cloudProviderLocation),
+                        resourceType, resourceId, state);
+                    for (IProviderEventListener listener : MockProvider.this.listeners) {
+                        try {
+                            listener.onResourceStateChange(event);
+                        } catch (Exception e) {
+                            MockCloudProviderConnector.logger.error("Event listener failed", e);
+                        }
+                    }
+                }
+            }, MockCloudProviderConnector.EVENT_NOTIFICATION_DELAY_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+        }
+
+        private Enum<?> getResourceState(final Class<?> resourceType, final String resourceId) throws ConnectorException {
+            if (resourceType == Machine.class) {
+                return this.getMachine(resourceId).getState();
+            } else if (resourceType == Volume.class) {
+                return this.getVolume(resourceId).getState();
+            } else {
+                return this.getNetwork(resourceId).getState();
+            }
+        }
+
         private boolean actionDone(final Resource resource) {
             if (resource.getUpdated() == null) {
                 return false;
@@ -686,6 +860,17 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
             return this.getVolume(volumeId).getState();
         }
 
+        public synchronized Map<String, Volume.State> getVolumeStates(final Collection<String> volumeIds)
+            throws ConnectorException {
+            Map<String, Volume.State> result = new HashMap<String, Volume.State>();
+            for (String volumeId : volumeIds) {
+                if (this.volumes.containsKey(volumeId)) {
+                    result.put(volumeId, this.getVolume(volumeId).getState());
+                }
+            }
+            return result;
+        }
+
         public synchronized Volume getVolume(final String volumeId) throws ConnectorException {
             Volume volume = this.volumes.get(volumeId);
             if (volume == null) {
@@ -943,6 +1128,16 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
             return this.getMachine(machineId).getState();
         }
 
+        public synchronized Map<String, State> getMachineStates(final Collection<String> machineIds) throws ConnectorException {
+            Map<String, State> result = new HashMap<String, State>();
+            for (String machineId : machineIds) {
+                if (this.machines.containsKey(machineId)) {
+                    result.put(machineId, this.getMachine(machineId).getState());
+                }
+            }
+            return result;
+        }
+
         public synchronized Machine getMachine(final String machineId) throws ConnectorException {
             Machine machine = this.machines.get(machineId);
             if (machine == null) {
@@ -1698,6 +1893,16 @@ public class MockCloudProviderConnector implements ICloudProviderConnector, ICom
             return this.getNetwork(networkId).getState();
         }
 
+        public Map<String, Network.State> getNetworkStates(final Collection<String> networkIds) throws ConnectorException {
+            Map<String, Network.State> result = new HashMap<String, Network.State>();
+            for (String networkId : networkIds) {
+                if (this.networks.containsKey(networkId)) {
+                    result.put(networkId, this.getNetwork(networkId).getState());
+                }
+            }
+            return result;
+        }
+
         public Network getNetwork(final String networkId) throws ConnectorException {
             final Network network = this.networks.get(networkId);
             if (network == null) {
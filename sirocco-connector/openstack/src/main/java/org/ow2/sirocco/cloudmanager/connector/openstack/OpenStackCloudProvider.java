@@ -23,15 +23,21 @@
 
 package org.ow2.sirocco.cloudmanager.connector.openstack;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.codec.binary.Base64;
 import org.ow2.sirocco.cloudmanager.connector.api.ConnectorException;
@@ -72,6 +78,7 @@ import org.ow2.sirocco.cloudmanager.model.utils.Unit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.woorea.openstack.base.client.OpenStackRequest;
 import com.woorea.openstack.base.client.OpenStackResponseException;
 import com.woorea.openstack.base.client.OpenStackSimpleTokenProvider;
 import com.woorea.openstack.keystone.Keystone;
@@ -85,7 +92,6 @@ import com.woorea.openstack.nova.model.FloatingIp;
 import com.woorea.openstack.nova.model.FloatingIpPools;
 import com.woorea.openstack.nova.model.FloatingIps;
 import com.woorea.openstack.nova.model.Image;
-import com.woorea.openstack.nova.model.Images;
 import com.woorea.openstack.nova.model.KeyPair;
 import com.woorea.openstack.nova.model.Limits.AbsoluteLimit;
 import com.woorea.openstack.nova.model.SchedulerHints;
@@ -93,6 +99,7 @@ import com.woorea.openstack.nova.model.Server;
 import com.woorea.openstack.nova.model.Server.Addresses;
 import com.woorea.openstack.nova.model.ServerForCreate;
 import com.woorea.openstack.nova.model.ServerForCreateWithSchedulerHints;
+import com.woorea.openstack.nova.model.Servers;
 import com.woorea.openstack.nova.model.VolumeAttachment;
 import com.woorea.openstack.nova.model.VolumeAttachments;
 import com.woorea.openstack.nova.model.VolumeForCreate;
@@ -105,6 +112,14 @@ public class OpenStackCloudProvider {
 
     private static int DEFAULT_RESOURCE_STATE_CHANGE_WAIT_TIME_IN_SECONDS = 240;
 
+    private static int DEFAULT_METADATA_CACHE_TTL_IN_SECONDS = 300;
+
+    /** changes-since is evaluated against the Nova clock: look back a little further to absorb clock skew */
+    private static final long CHANGES_SINCE_MARGIN_IN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** servers/detail page size, Nova truncates larger pages to its osapi_max_limit anyway */
+    private static final int SERVER_LIST_PAGE_SIZE = 1000;
+
     private CloudProviderAccount cloudProviderAccount;
 
     private CloudProviderLocation cloudProviderLocation;
@@ -121,6 +136,13 @@ public class OpenStackCloudProvider {
 
     private final Calendar expirationDate;
 
+    private OpenStackMetadataCache metadataCache;
+
+    /** last known state of the servers of the tenant, refreshed by getMachineStates */
+    private final ConcurrentMap<String, Machine.State> machineStates = new ConcurrentHashMap<String, Machine.State>();
+
+    private volatile long lastMachineStatePollTime;
+
     public OpenStackCloudProvider(final ProviderTarget target) throws ConnectorException {
         this.cloudProviderAccount = target.getAccount();
         this.cloudProviderLocation = target.getLocation();
@@ -186,6 +208,18 @@ public class OpenStackCloudProvider {
             // throw new ConnectorException("message=" + e.getMessage(), e);
         }
 
+        int metadataCacheTtl = OpenStackCloudProvider.DEFAULT_METADATA_CACHE_TTL_IN_SECONDS;
+        if (properties.get("metadataCacheTtlInSeconds") != null) {
+            try {
+                metadataCacheTtl = Integer.parseInt(properties.get("metadataCacheTtlInSeconds"));
+            } catch (NumberFormatException e) {
+                OpenStackCloudProvider.logger.warn("Illegal metadataCacheTtlInSeconds property: "
+                    + properties.get("metadataCacheTtlInSeconds"));
+            }
+        }
+        this.metadataCache = new OpenStackMetadataCache(this.novaClient, this.quantum,
+            TimeUnit.SECONDS.toMillis(metadataCacheTtl));
+
         // check how to trace REST call (On/Off)
         /*novaClient.enableLogging(Logger.getLogger("nova"), 100 * 1024);*/
 
@@ -257,11 +291,12 @@ public class OpenStackCloudProvider {
         machine.setProviderAssignedId(serverId);
         machine.setName(server.getName());
         machine.setState(this.fromServerStatusToMachineState(server.getStatus()));
+        this.machineStates.put(serverId, machine.getState());
 
         // HW
         // Flavor flavor = server.getFlavor();
         // doesn't work (lazy instantiation)
-        Flavor flavor = this.novaClient.flavors().show(server.getFlavor().getId()).execute();
+        Flavor flavor = this.metadataCache.getFlavor(server.getFlavor().getId());
         /*logger.info("flavor: " + flavor);*/
 
         machine.setCpu(new Integer(flavor.getVcpus()));
@@ -339,7 +374,17 @@ public class OpenStackCloudProvider {
     }
 
     public Machine createMachine(final MachineCreate machineCreate) throws ConnectorException, InterruptedException {
-        OpenStackCloudProvider.logger.info("creating Machine for " + this.cloudProviderAccount.getLogin());
+        return this.createMachines(machineCreate, 1).get(0);
+    }
+
+    /**
+     * Boots all machines with a single Nova request using min_count and
+     * max_count. Nova only returns the first server of a multiple boot so the
+     * servers are then looked up by the name prefix they share.
+     */
+    public List<Machine> createMachines(final MachineCreate machineCreate, final int count) throws ConnectorException,
+        InterruptedException {
+        OpenStackCloudProvider.logger.info("creating " + count + " Machine(s) for " + this.cloudProviderAccount.getLogin());
 
         ServerForCreate serverForCreate = new ServerForCreate();
 
@@ -351,6 +396,10 @@ public class OpenStackCloudProvider {
             serverName = "sirocco-" + UUID.randomUUID();
         }
         serverForCreate.setName(serverName);
+        if (count > 1) {
+            serverForCreate.setMin(count);
+            serverForCreate.setMax(count);
+        }
 
         // flavor
         String flavorId = this.findSuitableFlavor(machineCreate.getMachineTemplate().getMachineConfig());
@@ -433,24 +482,45 @@ public class OpenStackCloudProvider {
                 serverForCreate, schedulerHints);
             server = this.novaClient.servers().boot(serverForCreateWithSchedulerHints).execute();
         }
-        Machine machine = new Machine();
+        List<Server> servers = new ArrayList<Server>();
+        servers.add(server);
+        List<Machine> machines = new ArrayList<Machine>();
         try {
-            server = this.novaClient.servers().show(server.getId()).execute(); /*get detailed information about the server*/
-
-            // public IP
-            /*if (allocateFloatingIp) {
-                this.addFloatingIPToMachine(server.getId());
-            }*/
-
-            this.fromServerToMachine(server.getId(), machine);
-        } catch (OpenStackResponseException ex) {
-            this.cleanUpGhostServer(server);
+            if (count > 1) {
+                // the server returned by the boot stays in the list, to be cleaned up
+                // on failure whatever the lookup finds
+                for (Server createdServer : this.listServers("name", "^" + OpenStackCloudProvider.escapeRegex(serverName))) {
+                    if (createdServer.getName().startsWith(serverName) && !createdServer.getId().equals(server.getId())) {
+                        servers.add(createdServer);
+                    }
+                }
+            }
+            if (servers.size() != count) {
+                throw new ConnectorException("Nova created " + servers.size() + " server(s) instead of " + count);
+            }
+            for (Server createdServer : servers) {
+                Machine machine = new Machine();
+
+                // public IP: no floating IP is allocated at creation, one can be
+                // attached afterwards with allocateAddress and addAddressToMachine
+
+                // the machine state watcher fetches the full server once it has left BUILD
+                machine.setProviderAssignedId(createdServer.getId());
+                machine.setName(createdServer.getName() != null ? createdServer.getName() : serverForCreate.getName());
+                machine.setState(Machine.State.CREATING);
+                this.machineStates.put(createdServer.getId(), Machine.State.CREATING);
+                machines.add(machine);
+            }
+        } catch (OpenStackResponseException | ConnectorException ex) {
+            for (Server createdServer : servers) {
+                this.cleanUpGhostServer(createdServer);
+            }
             throw (ex);
         } /*catch (InterruptedException ex) {
             this.cleanUpGhostServer(server);
             throw (ex);
           }*/
-        return machine;
+        return machines;
     }
 
     private void cleanUpGhostServer(final Server server) {
@@ -471,7 +541,92 @@ public class OpenStackCloudProvider {
     public Machine.State getMachineState(final String machineId) {
         // Server server = getServer(machineId);
         Server server = this.novaClient.servers().show(machineId).execute();
-        return this.fromServerStatusToMachineState(server.getStatus());
+        Machine.State state = this.fromServerStatusToMachineState(server.getStatus());
+        this.machineStates.put(machineId, state);
+        return state;
+    }
+
+    /**
+     * Returns the state of the given servers with a single servers/detail call.
+     * Once every requested server is known, only the servers changed since the
+     * previous poll are listed; a full listing is done otherwise. Listings are
+     * paged until Nova returns an empty page so that a server is never deemed
+     * deleted because it fell beyond osapi_max_limit. Servers that do not exist
+     * anymore are absent from the returned map.
+     */
+    public Map<String, Machine.State> getMachineStates(final Collection<String> machineIds) {
+        long pollTime = System.currentTimeMillis();
+        if (this.lastMachineStatePollTime == 0 || !this.machineStates.keySet().containsAll(machineIds)) {
+            Map<String, Machine.State> states = new HashMap<String, Machine.State>();
+            for (Server server : this.listServers(null, null)) {
+                states.put(server.getId(), this.fromServerStatusToMachineState(server.getStatus()));
+            }
+            this.machineStates.keySet().retainAll(states.keySet());
+            this.machineStates.putAll(states);
+        } else {
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+            dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+            String changesSince = dateFormat.format(new Date(this.lastMachineStatePollTime
+                - OpenStackCloudProvider.CHANGES_SINCE_MARGIN_IN_MILLIS));
+            for (Server server : this.listServers("changes-since", changesSince)) {
+                Machine.State state = this.fromServerStatusToMachineState(server.getStatus());
+                if (state == Machine.State.DELETED) {
+                    this.machineStates.remove(server.getId());
+                } else {
+                    this.machineStates.put(server.getId(), state);
+                }
+            }
+        }
+        this.lastMachineStatePollTime = pollTime;
+
+        Map<String, Machine.State> result = new HashMap<String, Machine.State>();
+        for (String machineId : machineIds) {
+            Machine.State state = this.machineStates.get(machineId);
+            if (state != null) {
+                result.put(machineId, state);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Escapes the regular expression metacharacters of a server name, Nova
+     * matching the name filter as a regular expression
+     */
+    private static String escapeRegex(final String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (char c : name.toCharArray()) {
+            if ("\\^$.|?*+()[]{}".indexOf(c) != -1) {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Lists the servers of the tenant, optionally filtered by a query
+     * parameter, following the marker until the listing is exhausted
+     */
+    private List<Server> listServers(final String filterName, final String filterValue) {
+        List<Server> servers = new ArrayList<Server>();
+        String marker = null;
+        do {
+            OpenStackRequest<Servers> request = this.novaClient.servers().list(true)
+                .queryParam("limit", OpenStackCloudProvider.SERVER_LIST_PAGE_SIZE);
+            if (marker != null) {
+                request.queryParam("marker", marker);
+            }
+            if (filterName != null) {
+                request.queryParam(filterName, filterValue);
+            }
+            marker = null;
+            for (Server server : request.execute()) {
+                servers.add(server);
+                marker = server.getId();
+            }
+        } while (marker != null);
+        return servers;
     }
 
     public void deleteMachine(final String machineId) {
@@ -537,54 +692,12 @@ public class OpenStackCloudProvider {
     }*/
 
     private String findSuitableFlavor(final MachineConfiguration machineConfig) {
-        for (Flavor flavor : this.novaClient.flavors().list(true).execute()) {
-            long memoryInKBytes = machineConfig.getMemory();
-            long flavorMemoryInKBytes = flavor.getRam() * 1024;
-            /*System.out.println(
-                    "memoryInKBytes=" + memoryInKBytes 
-                    + ", flavorMemoryInKBytes=" + flavorMemoryInKBytes
-                    );*/
-            if (memoryInKBytes == flavorMemoryInKBytes) {
-                Integer flavorCpu = new Integer(flavor.getVcpus());
-                /*if (machineConfig.getCpu() == flavor.getVcpus()) {
-                  System.out.println(
-                        "Cpu()=" + machineConfig.getCpu() 
-                        + ", flavorCpu=" + flavorCpu
-                        );*/
-                if (machineConfig.getCpu().intValue() == flavorCpu.intValue()) {
-                    /*System.out.println(
-                            "machineConfig.getDisks().size()=" + machineConfig.getDisks().size()
-                            );*/
-                    /*if (machineConfig.getDisks().size() == 0) { 
-                        return flavor.getId();
-                    }
-                    else */
-                    if (machineConfig.getDisks().size() == 1 && flavor.getEphemeral() == 0) {
-                        long diskSizeInKBytes = machineConfig.getDisks().get(0).getCapacity();
-                        long flavorDiskSizeInKBytes = Long.parseLong(flavor.getDisk()) * 1000 * 1000;
-                        if (diskSizeInKBytes == flavorDiskSizeInKBytes) {
-                            return flavor.getId();
-                        }
-                    } else if (machineConfig.getDisks().size() == 2 && flavor.getEphemeral() > 0) {
-                        long diskSizeInKBytes = machineConfig.getDisks().get(0).getCapacity();
-                        long flavorDiskSizeInKBytes = Long.parseLong(flavor.getDisk()) * 1000 * 1000;
-                        if (diskSizeInKBytes == flavorDiskSizeInKBytes) {
-                            diskSizeInKBytes = machineConfig.getDisks().get(1).getCapacity();
-                            flavorDiskSizeInKBytes = flavor.getEphemeral().longValue() * 1000 * 1000;
-                            if (diskSizeInKBytes == flavorDiskSizeInKBytes) {
-                                return flavor.getId();
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return null;
+        return this.metadataCache.findFlavorId(machineConfig);
     }
 
     public List<MachineConfiguration> getMachineConfigs() {
         List<MachineConfiguration> result = new ArrayList<>();
-        for (Flavor flavor : this.novaClient.flavors().list(true).execute()) {
+        for (Flavor flavor : this.metadataCache.getFlavors()) {
             MachineConfiguration machineConfig = new MachineConfiguration();
             machineConfig.setName(flavor.getName());
             machineConfig.setCpu(Integer.parseInt(flavor.getVcpus()));
@@ -627,37 +740,6 @@ public class OpenStackCloudProvider {
         return newKeyPair.getName();
     }
 
-    private String addFloatingIPToMachine(final String serverId) throws InterruptedException {
-        int waitTimeInSeconds = OpenStackCloudProvider.DEFAULT_RESOURCE_STATE_CHANGE_WAIT_TIME_IN_SECONDS;
-        do {
-            Server server = this.novaClient.servers().show(serverId).execute();
-            if (!server.getStatus().equalsIgnoreCase("BUILD")) {
-                break;
-            }
-            Thread.sleep(1000);
-        } while (waitTimeInSeconds-- > 0);
-
-        // assumption: first FloatingIpPools is used to allocate floating IP
-        FloatingIpPoolsExtension floatingIpPoolsExtension = new FloatingIpPoolsExtension(this.novaClient);
-        FloatingIpPools pools = floatingIpPoolsExtension.list().execute();
-        FloatingIp floatingIp = this.novaClient.floatingIps().allocate(pools.getList().get(0).getName()).execute();
-        OpenStackCloudProvider.logger.info("Allocating floating IP " + floatingIp.getIp());
-        this.novaClient.servers().associateFloatingIp(serverId, floatingIp.getIp()).execute();
-
-        // Check if it is safe not to wait that the floating IP shows up in the
-        // server detail
-        /*do {
-            Server server = novaClient.servers().show(serverId).execute();  
-            if (this.findIpAddressOnServer(server, floatingIp.getIp())) {
-                logger.info("Floating IP " + floatingIp.getIp() + " attached to server " + serverId);
-                break;
-            }
-            Thread.sleep(1000);
-        } while (waitTimeInSeconds-- > 0);*/
-
-        return floatingIp.getIp();
-    }
-
     private boolean findIpAddressOnServer(final Server server, final String ip) {
         for (String networkType : server.getAddresses().getAddresses().keySet()) {
             Collection<Addresses.Address> addresses = server.getAddresses().getAddresses().get(networkType);
@@ -762,6 +844,16 @@ public class OpenStackCloudProvider {
         return this.fromNovaVolumeStatusToCimiVolumeState(novaVolume.getStatus());
     }
 
+    public Map<String, Volume.State> getVolumeStates(final Collection<String> volumeIds) {
+        Map<String, Volume.State> result = new HashMap<String, Volume.State>();
+        for (com.woorea.openstack.nova.model.Volume novaVolume : this.novaClient.volumes().list(true).execute()) {
+            if (volumeIds.contains(novaVolume.getId())) {
+                result.put(novaVolume.getId(), this.fromNovaVolumeStatusToCimiVolumeState(novaVolume.getStatus()));
+            }
+        }
+        return result;
+    }
+
     public void deleteVolume(final String volumeId) {
         this.novaClient.volumes().delete(volumeId).execute();
     }
@@ -834,11 +926,16 @@ public class OpenStackCloudProvider {
         if (this.quantum == null) {
             throw new ConnectorException("Neutron is not available in the Service Catalog");
         }
+        Network network = this.metadataCache.getNetworkByName(networkName);
+        if (network != null) {
+            return network;
+        }
 
-        com.woorea.openstack.quantum.model.Networks openStackNetworks = this.quantum.networks().list().execute();
-        for (com.woorea.openstack.quantum.model.Network openStackNetwork : openStackNetworks) {
+        for (com.woorea.openstack.quantum.model.Network openStackNetwork : this.metadataCache.getNetworks()) {
             if (openStackNetwork.getName().equals(networkName)) {
-                return this.getNetwork(openStackNetwork.getId());
+                network = this.getNetwork(openStackNetwork.getId());
+                this.metadataCache.putNetworkByName(networkName, network);
+                return network;
             }
         }
         throw new ConnectorException("Cannot find network for network name:" + networkName);
@@ -870,15 +967,9 @@ public class OpenStackCloudProvider {
             .execute();
         final Network cimiNetwork = new Network();
 
+        // subnets can be added to a network that is not ACTIVE yet, the network
+        // state watcher of the manager waits for the network to become ACTIVE
         try {
-            do {
-                openStackNetwork = this.quantum.networks().show(openStackNetwork.getId()).execute();
-                if (openStackNetwork.getStatus().equalsIgnoreCase("ACTIVE")) {
-                    break;
-                }
-                Thread.sleep(1000);
-            } while (OpenStackCloudProvider.DEFAULT_RESOURCE_STATE_CHANGE_WAIT_TIME_IN_SECONDS-- > 0);
-
             for (SubnetConfig subnetConfig : networkCreate.getNetworkTemplate().getNetworkConfig().getSubnets()) {
                 SubnetForCreate subnetForCreate = new SubnetForCreate();
                 subnetForCreate.setName(subnetConfig.getName());
@@ -908,10 +999,8 @@ public class OpenStackCloudProvider {
         } catch (OpenStackResponseException ex) {
             this.cleanUpGhostNetwork(openStackNetwork);
             throw (ex);
-        } catch (InterruptedException ex) {
-            this.cleanUpGhostNetwork(openStackNetwork);
-            throw (ex);
         }
+        this.metadataCache.invalidateNetworks();
         return cimiNetwork;
     }
 
@@ -948,6 +1037,20 @@ public class OpenStackCloudProvider {
         return this.fromNovaNetworkStatusToCimiNetworkState(openStackNetwork.getStatus());
     }
 
+    public Map<String, Network.State> getNetworkStates(final Collection<String> networkIds) throws ConnectorException {
+        if (this.quantum == null) {
+            throw new ConnectorException("Neutron is not available in the Service Catalog");
+        }
+
+        Map<String, Network.State> result = new HashMap<String, Network.State>();
+        for (com.woorea.openstack.quantum.model.Network openStackNetwork : this.quantum.networks().list().execute()) {
+            if (networkIds.contains(openStackNetwork.getId())) {
+                result.put(openStackNetwork.getId(), this.fromNovaNetworkStatusToCimiNetworkState(openStackNetwork.getStatus()));
+            }
+        }
+        return result;
+    }
+
     public List<Network> getNetworks() throws ConnectorException {
         if (this.quantum == null) {
             throw new ConnectorException("Neutron is not available in the Service Catalog");
@@ -955,8 +1058,7 @@ public class OpenStackCloudProvider {
 
         ArrayList<Network> networks = new ArrayList<Network>();
 
-        com.woorea.openstack.quantum.model.Networks openStackNetworks = this.quantum.networks().list().execute();
-        for (com.woorea.openstack.quantum.model.Network openStackNetwork : openStackNetworks) {
+        for (com.woorea.openstack.quantum.model.Network openStackNetwork : this.metadataCache.getNetworks()) {
             /*System.out.println("--- network: " + openStackNetwork);*/
             if (openStackNetwork.getRouterExternal().equalsIgnoreCase("true")) {
                 continue;
@@ -973,6 +1075,7 @@ public class OpenStackCloudProvider {
 
         /* FIXME woorea Bug : err 409 ignored when trying to delete a network attached to servers */
         this.quantum.networks().delete(networkId).execute();
+        this.metadataCache.invalidateNetworks();
     }
 
     //
@@ -1013,9 +1116,7 @@ public class OpenStackCloudProvider {
 
     private com.woorea.openstack.nova.model.SecurityGroup getOpenstackSecurityGroupsByName(final String securityGroupName)
         throws ResourceNotFoundException {
-        com.woorea.openstack.nova.model.SecurityGroups openStackSecurityGroups = this.novaClient.securityGroups()
-            .listSecurityGroups().execute();
-        for (com.woorea.openstack.nova.model.SecurityGroup openStackSecurityGroup : openStackSecurityGroups) {
+        for (com.woorea.openstack.nova.model.SecurityGroup openStackSecurityGroup : this.metadataCache.getSecurityGroups()) {
             if (openStackSecurityGroup.getName().equals(securityGroupName)) {
                 return openStackSecurityGroup;
             }
@@ -1028,6 +1129,7 @@ public class OpenStackCloudProvider {
 
         com.woorea.openstack.nova.model.SecurityGroup openStackSecurityGroup = this.novaClient.securityGroups()
             .createSecurityGroup(create.getName(), create.getDescription()).execute();
+        this.metadataCache.invalidateSecurityGroups();
 
         return openStackSecurityGroup.getId();
     }
@@ -1044,9 +1146,7 @@ public class OpenStackCloudProvider {
     public List<SecurityGroup> getSecurityGroups() throws ConnectorException {
         ArrayList<SecurityGroup> securityGroups = new ArrayList<SecurityGroup>();
 
-        com.woorea.openstack.nova.model.SecurityGroups openStackSecurityGroups = this.novaClient.securityGroups()
-            .listSecurityGroups().execute();
-        for (com.woorea.openstack.nova.model.SecurityGroup openStackSecurityGroup : openStackSecurityGroups) {
+        for (com.woorea.openstack.nova.model.SecurityGroup openStackSecurityGroup : this.metadataCache.getSecurityGroups()) {
             securityGroups.add(this.getSecurityGroup(openStackSecurityGroup.getId()));
         }
         return securityGroups;
@@ -1055,6 +1155,7 @@ public class OpenStackCloudProvider {
     public void deleteSecurityGroup(final String groupId) throws ConnectorException {
         OpenStackCloudProvider.logger.info("deleting SecurityGroup for " + this.cloudProviderAccount.getLogin());
         this.novaClient.securityGroups().deleteSecurityGroup(groupId).execute();
+        this.metadataCache.invalidateSecurityGroups();
     }
 
     public String addRuleToSecurityGroup(final String groupId, final SecurityGroupRule rule) {
@@ -1276,8 +1377,12 @@ public class OpenStackCloudProvider {
     }
 
     public MachineImage getMachineImage(final String machineImageId) {
-        MachineImage machineImage = new MachineImage();
         Image image = this.novaClient.images().show(machineImageId).execute();
+        return this.fromNovaImageToCimiMachineImage(image);
+    }
+
+    private MachineImage fromNovaImageToCimiMachineImage(final Image image) {
+        MachineImage machineImage = new MachineImage();
         machineImage.setName(image.getName());
         machineImage.setState(this.fromNovaImageStatusToCimiMachineImageState(image.getStatus()));
         machineImage.setType(Type.IMAGE);
@@ -1291,17 +1396,16 @@ public class OpenStackCloudProvider {
 
     public List<MachineImage> getMachineImages(final boolean returnPublicImages, final Map<String, String> searchCriteria) {
         List<MachineImage> result = new ArrayList<MachineImage>();
-        Images images = this.novaClient.images().list(true).execute();
-        for (Image image : images) {
+        for (Image image : this.metadataCache.getImages()) {
             // no distinction between between images and snaphots in Havana
-            MachineImage machineImage = this.getMachineImage(image.getId());
-            result.add(machineImage);
+            result.add(this.fromNovaImageToCimiMachineImage(image));
         }
         return result;
     }
 
     public void deleteMachineImage(final String machineImageId) {
         this.novaClient.images().delete(machineImageId).execute();
+        this.metadataCache.invalidateImages();
     }
 
     public Quota getQuota() {
@@ -23,20 +23,20 @@
 
 package org.ow2.sirocco.cloudmanager.connector.openstack;
 
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.ow2.sirocco.cloudmanager.connector.api.ConnectorException;
+import org.ow2.sirocco.cloudmanager.connector.api.IBatchComputeService;
 import org.ow2.sirocco.cloudmanager.connector.api.ICloudProviderConnector;
 import org.ow2.sirocco.cloudmanager.connector.api.IComputeService;
 import org.ow2.sirocco.cloudmanager.connector.api.IImageService;
 import org.ow2.sirocco.cloudmanager.connector.api.INetworkService;
 import org.ow2.sirocco.cloudmanager.connector.api.ISystemService;
 import org.ow2.sirocco.cloudmanager.connector.api.IVolumeService;
+import org.ow2.sirocco.cloudmanager.connector.api.ProviderSessionCache;
 import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
 import org.ow2.sirocco.cloudmanager.connector.api.ResourceNotFoundException;
 import org.ow2.sirocco.cloudmanager.model.cimi.Address;
@@ -68,43 +68,27 @@ import org.slf4j.LoggerFactory;
 import com.woorea.openstack.base.client.OpenStackResponseException;
 
 public class OpenStackCloudProviderConnector implements ICloudProviderConnector, IComputeService, IVolumeService,
-    INetworkService, IImageService {
+    INetworkService, IImageService, IBatchComputeService {
     private static Logger logger = LoggerFactory.getLogger(OpenStackCloudProviderConnector.class);
 
-    private List<OpenStackCloudProvider> openstackCPs = new ArrayList<OpenStackCloudProvider>();
+    private final ProviderSessionCache<OpenStackCloudProvider> openstackCPs = new ProviderSessionCache<OpenStackCloudProvider>(
+        new ProviderSessionCache.SessionFactory<OpenStackCloudProvider>() {
+            @Override
+            public OpenStackCloudProvider create(final ProviderTarget target) throws ConnectorException {
+                return new OpenStackCloudProvider(target);
+            }
+
+            @Override
+            public long getExpirationTime(final OpenStackCloudProvider provider) {
+                return provider.getExpirationDate().getTimeInMillis();
+            }
+        });
 
-    private synchronized OpenStackCloudProvider getProvider(final ProviderTarget target) throws ConnectorException {
+    private OpenStackCloudProvider getProvider(final ProviderTarget target) throws ConnectorException {
         if (target.getAccount() == null || target.getLocation() == null) {
             throw new ConnectorException("target.account or target.location is null");
         }
-        for (Iterator<OpenStackCloudProvider> it = this.openstackCPs.iterator(); it.hasNext();) {
-            OpenStackCloudProvider provider = it.next();
-
-            Calendar now = Calendar.getInstance();
-
-            if (provider.getExpirationDate().before(now)) {
-                OpenStackCloudProviderConnector.logger.info("OpenStackCloudProvider "
-                    + provider.getCloudProviderAccount().getCloudProvider().getDescription() + " token expired");
-                it.remove();
-                // TODO close provider
-                continue;
-            }
-            if (provider.getCloudProviderAccount().equals(target.getAccount())) {
-                // location can be null?
-                if (provider.getCloudProviderLocation() != target.getLocation()) {
-                    if (target.getLocation() != null) {
-                        if (provider.getCloudProviderLocation().getId().equals(target.getLocation().getId())) {
-                            return provider;
-                        }
-                    }
-                } else {
-                    return provider;
-                }
-            }
-        }
-        OpenStackCloudProvider provider = new OpenStackCloudProvider(target);
-        this.openstackCPs.add(provider);
-        return provider;
+        return this.openstackCPs.get(target);
     }
 
     @Override
@@ -172,6 +156,18 @@ public class OpenStackCloudProviderConnector implements ICloudProviderConnector,
         }
     }
 
+    @Override
+    public List<Machine> createMachines(final MachineCreate machineCreate, final int count, final ProviderTarget target)
+        throws ConnectorException {
+        try {
+            return this.getProvider(target).createMachines(machineCreate, count);
+        } catch (OpenStackResponseException e) {
+            throw new ConnectorException("cause=" + e.getStatus() + ", message=" + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            throw new ConnectorException("message=" + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void deleteMachine(final String machineId, final ProviderTarget target) throws ResourceNotFoundException,
         ConnectorException {
@@ -214,6 +210,16 @@ public class OpenStackCloudProviderConnector implements ICloudProviderConnector,
         }
     }
 
+    @Override
+    public Map<String, Machine.State> getMachineStates(final Collection<String> machineIds, final ProviderTarget target)
+        throws ConnectorException {
+        try {
+            return this.getProvider(target).getMachineStates(machineIds);
+        } catch (OpenStackResponseException e) {
+            throw new ConnectorException("cause=" + e.getStatus() + ", message=" + e.getMessage(), e);
+        }
+    }
+
     @Override
     public void restartMachine(final String machineId, final boolean force, final ProviderTarget target)
         throws ResourceNotFoundException, ConnectorException {
@@ -348,6 +354,16 @@ public class OpenStackCloudProviderConnector implements ICloudProviderConnector,
         }
     }
 
+    @Override
+    public Map<String, Volume.State> getVolumeStates(final Collection<String> volumeIds, final ProviderTarget target)
+        throws ConnectorException {
+        try {
+            return this.getProvider(target).getVolumeStates(volumeIds);
+        } catch (OpenStackResponseException e) {
+            throw new ConnectorException("cause=" + e.getStatus() + ", message=" + e.getMessage(), e);
+        }
+    }
+
     @Override
     public Volume getVolume(final String volumeId, final ProviderTarget target) throws ResourceNotFoundException,
         ConnectorException {
@@ -429,6 +445,16 @@ public class OpenStackCloudProviderConnector implements ICloudProviderConnector,
         }
     }
 
+    @Override
+    public Map<String, State> getNetworkStates(final Collection<String> networkIds, final ProviderTarget target)
+        throws ConnectorException {
+        try {
+            return this.getProvider(target).getNetworkStates(networkIds);
+        } catch (OpenStackResponseException e) {
+            throw new ConnectorException("cause=" + e.getStatus() + ", message=" + e.getMessage(), e);
+        }
+    }
+
     @Override
     public List<Network> getNetworks(final ProviderTarget target) throws ConnectorException {
         try {
@@ -0,0 +1,252 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 France Telecom
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+
+package org.ow2.sirocco.cloudmanager.connector.openstack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineConfiguration;
+import org.ow2.sirocco.cloudmanager.model.cimi.Network;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.woorea.openstack.nova.Nova;
+import com.woorea.openstack.nova.model.Flavor;
+import com.woorea.openstack.nova.model.Image;
+import com.woorea.openstack.nova.model.SecurityGroup;
+import com.woorea.openstack.quantum.Quantum;
+
+/**
+ * Flavors, images, networks and security groups of an OpenStack provider
+ * session. Each kind of metadata is listed once and kept for the configured
+ * time to live; the provider invalidates a kind whenever it creates or
+ * deletes such a resource itself. Flavors are indexed by id and by hardware
+ * specification so that matching a machine configuration needs no HTTP call.
+ */
+final class OpenStackMetadataCache {
+    private static Logger logger = LoggerFactory.getLogger(OpenStackMetadataCache.class);
+
+    private final Nova novaClient;
+
+    private final Quantum quantum;
+
+    private final long ttlInMillis;
+
+    private volatile FlavorIndex flavors;
+
+    private volatile Snapshot<Image> images;
+
+    private volatile Snapshot<com.woorea.openstack.quantum.model.Network> networks;
+
+    private volatile Snapshot<SecurityGroup> securityGroups;
+
+    private final ConcurrentMap<String, Snapshot<Network>> networksByName =
+        new ConcurrentHashMap<String, Snapshot<Network>>();
+
+    OpenStackMetadataCache(final Nova novaClient, final Quantum quantum, final long ttlInMillis) {
+        this.novaClient = novaClient;
+        this.quantum = quantum;
+        this.ttlInMillis = ttlInMillis;
+    }
+
+    private static class Snapshot<T> {
+        final List<T> items;
+
+        final long expirationTime;
+
+        Snapshot(final List<T> items, final long ttlInMillis) {
+            this.items = Collections.unmodifiableList(items);
+            this.expirationTime = System.currentTimeMillis() + ttlInMillis;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > this.expirationTime;
+        }
+    }
+
+    private static class FlavorIndex extends Snapshot<Flavor> {
+        final Map<String, Flavor> byId = new HashMap<String, Flavor>();
+
+        final Map<String, Flavor> bySpec = new HashMap<String, Flavor>();
+
+        FlavorIndex(final List<Flavor> flavors, final long ttlInMillis) {
+            super(flavors, ttlInMillis);
+            for (Flavor flavor : flavors) {
+                this.byId.put(flavor.getId(), flavor);
+                String spec = FlavorIndex.spec(flavor);
+                if (spec == null) {
+                    // still reachable by id, never matched against a machine configuration
+                    OpenStackMetadataCache.logger.warn("Flavor " + flavor.getId() + " has an incomplete specification (ram="
+                        + flavor.getRam() + ", vcpus=" + flavor.getVcpus() + ", disk=" + flavor.getDisk() + ", ephemeral="
+                        + flavor.getEphemeral() + "), not indexed by specification");
+                    continue;
+                }
+                // first listed flavor wins, as with a sequential scan
+                if (!this.bySpec.containsKey(spec)) {
+                    this.bySpec.put(spec, flavor);
+                }
+            }
+        }
+
+        static String spec(final Flavor flavor) {
+            if (flavor.getRam() == null || flavor.getVcpus() == null || flavor.getDisk() == null
+                || flavor.getEphemeral() == null) {
+                return null;
+            }
+            try {
+                return FlavorIndex.spec(flavor.getRam() * 1024L, Integer.parseInt(flavor.getVcpus().trim()),
+                    Long.parseLong(flavor.getDisk().trim()) * 1000 * 1000, flavor.getEphemeral().longValue() * 1000 * 1000);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        static String spec(final long memoryInKBytes, final int cpu, final long diskSizeInKBytes,
+            final long ephemeralDiskSizeInKBytes) {
+            return memoryInKBytes + "/" + cpu + "/" + diskSizeInKBytes + "/" + ephemeralDiskSizeInKBytes;
+        }
+    }
+
+    private FlavorIndex flavorIndex() {
+        FlavorIndex index = this.flavors;
+        if (index == null || index.isExpired()) {
+            List<Flavor> list = new ArrayList<Flavor>();
+            for (Flavor flavor : this.novaClient.flavors().list(true).execute()) {
+                list.add(flavor);
+            }
+            index = new FlavorIndex(list, this.ttlInMillis);
+            this.flavors = index;
+        }
+        return index;
+    }
+
+    List<Flavor> getFlavors() {
+        return this.flavorIndex().items;
+    }
+
+    Flavor getFlavor(final String flavorId) {
+        Flavor flavor = this.flavorIndex().byId.get(flavorId);
+        if (flavor == null) {
+            // flavor created after the last listing: fetch it alone rather than re-listing every flavor on each
+            // unknown id, the index catches up when its time to live expires
+            flavor = this.novaClient.flavors().show(flavorId).execute();
+        }
+        return flavor;
+    }
+
+    /**
+     * Returns the id of the flavor matching exactly the memory, cpu and disks
+     * of the given machine configuration, or null if there is none
+     */
+    String findFlavorId(final MachineConfiguration machineConfig) {
+        if (machineConfig.getDisks() == null || machineConfig.getDisks().isEmpty() || machineConfig.getDisks().size() > 2) {
+            return null;
+        }
+        long ephemeralDiskSizeInKBytes = 0;
+        if (machineConfig.getDisks().size() == 2) {
+            ephemeralDiskSizeInKBytes = machineConfig.getDisks().get(1).getCapacity();
+            if (ephemeralDiskSizeInKBytes <= 0) {
+                return null;
+            }
+        }
+        String spec = FlavorIndex.spec(machineConfig.getMemory(), machineConfig.getCpu(), machineConfig.getDisks().get(0)
+            .getCapacity(), ephemeralDiskSizeInKBytes);
+        Flavor flavor = this.flavorIndex().bySpec.get(spec);
+        return flavor != null ? flavor.getId() : null;
+    }
+
+    List<Image> getImages() {
+        Snapshot<Image> snapshot = this.images;
+        if (snapshot == null || snapshot.isExpired()) {
+            List<Image> list = new ArrayList<Image>();
+            for (Image image : this.novaClient.images().list(true).execute()) {
+                list.add(image);
+            }
+            snapshot = new Snapshot<Image>(list, this.ttlInMillis);
+            this.images = snapshot;
+        }
+        return snapshot.items;
+    }
+
+    void invalidateImages() {
+        this.images = null;
+    }
+
+    List<com.woorea.openstack.quantum.model.Network> getNetworks() {
+        Snapshot<com.woorea.openstack.quantum.model.Network> snapshot = this.networks;
+        if (snapshot == null || snapshot.isExpired()) {
+            List<com.woorea.openstack.quantum.model.Network> list =
+                new ArrayList<com.woorea.openstack.quantum.model.Network>();
+            for (com.woorea.openstack.quantum.model.Network network : this.quantum.networks().list().execute()) {
+                list.add(network);
+            }
+            snapshot = new Snapshot<com.woorea.openstack.quantum.model.Network>(list, this.ttlInMillis);
+            this.networks = snapshot;
+        }
+        return snapshot.items;
+    }
+
+    /**
+     * Returns the network previously resolved for this name, or null if it is
+     * unknown or expired
+     */
+    Network getNetworkByName(final String networkName) {
+        Snapshot<Network> snapshot = this.networksByName.get(networkName);
+        if (snapshot == null || snapshot.isExpired()) {
+            return null;
+        }
+        return snapshot.items.get(0);
+    }
+
+    void putNetworkByName(final String networkName, final Network network) {
+        this.networksByName.put(networkName, new Snapshot<Network>(Collections.singletonList(network), this.ttlInMillis));
+    }
+
+    void invalidateNetworks() {
+        this.networks = null;
+        this.networksByName.clear();
+    }
+
+    List<SecurityGroup> getSecurityGroups() {
+        Snapshot<SecurityGroup> snapshot = this.securityGroups;
+        if (snapshot == null || snapshot.isExpired()) {
+            List<SecurityGroup> list = new ArrayList<SecurityGroup>();
+            for (SecurityGroup securityGroup : this.novaClient.securityGroups().listSecurityGroups().execute()) {
+                list.add(securityGroup);
+            }
+            snapshot = new Snapshot<SecurityGroup>(list, this.ttlInMillis);
+            this.securityGroups = snapshot;
+        }
+        return snapshot.items;
+    }
+
+    void invalidateSecurityGroups() {
+        this.securityGroups = null;
+    }
+}
@@ -23,7 +23,7 @@
 
 package org.ow2.sirocco.cloudmanager.connector.vcd;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -36,8 +36,10 @@ import org.ow2.sirocco.cloudmanager.connector.api.IImageService;
 import org.ow2.sirocco.cloudmanager.connector.api.INetworkService;
 import org.ow2.sirocco.cloudmanager.connector.api.ISystemService;
 import org.ow2.sirocco.cloudmanager.connector.api.IVolumeService;
+import org.ow2.sirocco.cloudmanager.connector.api.ProviderSessionCache;
 import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
 import org.ow2.sirocco.cloudmanager.connector.api.ResourceNotFoundException;
+import org.ow2.sirocco.cloudmanager.connector.api.ResourceStates;
 import org.ow2.sirocco.cloudmanager.model.cimi.Address;
 import org.ow2.sirocco.cloudmanager.model.cimi.CloudCollectionItem;
 import org.ow2.sirocco.cloudmanager.model.cimi.ForwardingGroup;
@@ -65,36 +67,19 @@ import org.ow2.sirocco.cloudmanager.model.cimi.system.SystemCreate;
 public class VcdCloudProviderConnector implements ICloudProviderConnector, IComputeService, ISystemService, INetworkService,
     IImageService {
 
-    private List<VcdCloudProvider> vcdCPs = new ArrayList<VcdCloudProvider>();
+    private final ProviderSessionCache<VcdCloudProvider> vcdCPs = new ProviderSessionCache<VcdCloudProvider>(
+        new ProviderSessionCache.SessionFactory<VcdCloudProvider>() {
+            @Override
+            public VcdCloudProvider create(final ProviderTarget target) throws ConnectorException {
+                return new VcdCloudProvider(target);
+            }
+        });
 
-    private synchronized VcdCloudProvider getProvider(final ProviderTarget target) throws ConnectorException {
+    private VcdCloudProvider getProvider(final ProviderTarget target) throws ConnectorException {
         if (target.getAccount() == null || target.getLocation() == null) {
             throw new ConnectorException("target.account or target.location is null");
         }
-        for (VcdCloudProvider provider : this.vcdCPs) {
-            /*
-             * if
-             * (provider.getCloudProviderAccount().equals(target.getAccount())
-             * &&
-             * provider.getCloudProviderLocation().equals(target.getLocation()))
-             * { return provider; }
-             */
-            if (provider.getCloudProviderAccount().equals(target.getAccount())) {
-                // location can be null?
-                if (provider.getCloudProviderLocation() != target.getLocation()) {
-                    if (target.getLocation() != null) {
-                        if (provider.getCloudProviderLocation().getId().equals(target.getLocation().getId())) {
-                            return provider;
-                        }
-                    }
-                } else {
-                    return provider;
-                }
-            }
-        }
-        VcdCloudProvider provider = new VcdCloudProvider(target);
-        this.vcdCPs.add(provider);
-        return provider;
+        return this.vcdCPs.get(target);
     }
 
     @Override
@@ -278,6 +263,12 @@ public class VcdCloudProviderConnector implements ICloudProviderConnector, IComp
         return this.getProvider(target).getMachineState(machineId);
     }
 
+    @Override
+    public Map<String, State> getMachineStates(final Collection<String> machineIds, final ProviderTarget target)
+        throws ConnectorException {
+        return ResourceStates.getMachineStates(this, machineIds, target);
+    }
+
     @Override
     public Machine getMachine(final String machineId, final ProviderTarget target) throws ResourceNotFoundException,
         ConnectorException {
@@ -334,6 +325,12 @@ public class VcdCloudProviderConnector implements ICloudProviderConnector, IComp
         throw new ConnectorException("unsupported operation");
     }
 
+    @Override
+    public Map<String, org.ow2.sirocco.cloudmanager.model.cimi.Network.State> getNetworkStates(
+        final Collection<String> networkIds, final ProviderTarget target) throws ConnectorException {
+        throw new ConnectorException("unsupported operation");
+    }
+
     @Override
     public Network createNetwork(final NetworkCreate networkCreate, final ProviderTarget target) throws ConnectorException {
         throw new ConnectorException("unsupported operation");
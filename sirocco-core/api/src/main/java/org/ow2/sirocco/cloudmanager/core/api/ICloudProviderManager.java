@@ -76,6 +76,8 @@ public interface ICloudProviderManager {
 
         private boolean importNetworks = true;
 
+        private Map<String, String> machineImageSearchCriteria;
+
         public CreateCloudProviderAccountOptions importMachineConfigs(final boolean importMachineConfigs) {
             this.importMachineConfigs = importMachineConfigs;
             return this;
@@ -96,6 +98,11 @@ public interface ICloudProviderManager {
             return this;
         }
 
+        public CreateCloudProviderAccountOptions machineImageSearchCriteria(final Map<String, String> searchCriteria) {
+            this.machineImageSearchCriteria = searchCriteria;
+            return this;
+        }
+
         public boolean isImportMachineConfigs() {
             return this.importMachineConfigs;
         }
@@ -112,6 +119,10 @@ public interface ICloudProviderManager {
             return this.importNetworks;
         }
 
+        public Map<String, String> getMachineImageSearchCriteria() {
+            return this.machineImageSearchCriteria;
+        }
+
     }
 
     CloudProvider createCloudProvider(String type, String description) throws CloudProviderException;
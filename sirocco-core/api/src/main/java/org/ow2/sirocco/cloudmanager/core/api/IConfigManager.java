@@ -33,6 +33,48 @@ public interface IConfigManager {
 
     final String HTTP_NON_PROXY_HOSTS = "http.nonProxyHosts";
 
+    /**
+     * Prefix of the keys of resource state polling policies. Keys have the form
+     * pollPolicy.&lt;resourceType&gt;[.&lt;action&gt;[.&lt;providerType&gt;]], e.g.
+     * pollPolicy.machineImage.capture.openstack, and values the form
+     * &lt;initialInterval&gt;,&lt;maxInterval&gt;,&lt;timeout&gt; in seconds. Setting an
+     * empty value removes the policy.
+     */
+    final String POLL_POLICY_PREFIX = "pollPolicy.";
+
+    /**
+     * Prefix of the keys of provider API rate limits. Keys have the form
+     * rateLimit.&lt;providerType&gt;[.&lt;accountId&gt;], e.g. rateLimit.amazon.12,
+     * and values the form &lt;requestsPerSecond&gt;,&lt;burst&gt;,&lt;maxInFlight&gt;.
+     * Setting an empty value removes the limit.
+     */
+    final String RATE_LIMIT_PREFIX = "rateLimit.";
+
+    /**
+     * Number of jobs or resources purged per transaction by the reaper
+     */
+    final String REAPER_BATCH_SIZE = "reaper.batchSize";
+
+    /**
+     * Number of days a deleted resource is kept before being purged
+     */
+    final String RESOURCE_RETENTION_DAYS = "reaper.resourceRetentionDays";
+
+    /**
+     * Directory where the reaper writes the compressed archives of the purged
+     * jobs and resources. Nothing is archived if not set.
+     */
+    final String ARCHIVE_DIRECTORY = "reaper.archiveDirectory";
+
+    /**
+     * Algorithm of the stored user password hashes: MD5 (default), the digest
+     * checked by the container jdbc realm that authenticates remote EJB
+     * clients, or PBKDF2, to be set once that realm has been replaced with a
+     * PBKDF2-aware login module. With PBKDF2, MD5 hashes are upgraded on the
+     * next successful API login.
+     */
+    final String PASSWORD_HASH_ALGORITHM = "security.passwordHashAlgorithm";
+
     void setConfigParameter(String key, String value) throws InvalidRequestException;
 
     Map<String, String> getConfigParameters();
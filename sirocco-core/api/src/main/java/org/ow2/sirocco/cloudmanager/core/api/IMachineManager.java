@@ -103,6 +103,14 @@ public interface IMachineManager {
     Job createMachine(MachineCreate machineCreate) throws ResourceConflictException, InvalidRequestException,
         CloudProviderException;
 
+    /**
+     * Creates identical machines with a single provider request when the
+     * connector supports it. The returned job is the parent of the creation
+     * jobs of the machines.
+     */
+    Job createMachines(MachineCreate machineCreate, int count) throws ResourceConflictException, InvalidRequestException,
+        CloudProviderException;
+
     void syncMachine(int machineId, Machine machine) throws CloudProviderException;
 
     void refreshMachine(final int machineId) throws CloudProviderException;
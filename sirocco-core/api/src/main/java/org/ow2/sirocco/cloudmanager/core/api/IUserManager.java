@@ -28,4 +28,13 @@ public interface IUserManager {
     User updateUser(String id, Map<String, Object> updatedAttributes) throws CloudProviderException;
 
     void deleteUser(String userId) throws CloudProviderException;
+
+    /**
+     * Checks the password of a user. Successful checks are cached for a short
+     * time so that this method can be called on every request.
+     * 
+     * @return the role of the user if the user exists and the password is
+     *         valid, null otherwise
+     */
+    String authenticate(String userName, String password) throws CloudProviderException;
 }
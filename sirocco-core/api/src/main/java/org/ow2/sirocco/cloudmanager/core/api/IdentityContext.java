@@ -17,11 +17,18 @@ public class IdentityContext implements Serializable {
 
     private String userName;
 
+    private Integer resolvedTenantId;
+
+    private String resolvedTenantUuid;
+
     public String getTenantId() {
         return this.tenantId;
     }
 
     public void setTenantId(final String tenantId) {
+        if (!IdentityContext.equals(this.tenantId, tenantId)) {
+            this.clearResolvedTenant();
+        }
         this.tenantId = tenantId;
     }
 
@@ -30,6 +37,9 @@ public class IdentityContext implements Serializable {
     }
 
     public void setTenantName(final String tenantName) {
+        if (!IdentityContext.equals(this.tenantName, tenantName)) {
+            this.clearResolvedTenant();
+        }
         this.tenantName = tenantName;
     }
 
@@ -38,7 +48,44 @@ public class IdentityContext implements Serializable {
     }
 
     public void setUserName(final String userName) {
+        if (!IdentityContext.equals(this.userName, userName)) {
+            this.clearResolvedTenant();
+        }
         this.userName = userName;
     }
 
+    /**
+     * Returns the id of the tenant this context resolves to, or null if not
+     * resolved yet during the current request
+     */
+    public Integer getResolvedTenantId() {
+        return this.resolvedTenantId;
+    }
+
+    /**
+     * Returns the uuid of the tenant this context resolves to, or null if not
+     * resolved yet during the current request
+     */
+    public String getResolvedTenantUuid() {
+        return this.resolvedTenantUuid;
+    }
+
+    /**
+     * Remembers the tenant this context resolves to until the end of the
+     * current request or until the identity changes
+     */
+    public void setResolvedTenant(final Integer tenantId, final String tenantUuid) {
+        this.resolvedTenantId = tenantId;
+        this.resolvedTenantUuid = tenantUuid;
+    }
+
+    public void clearResolvedTenant() {
+        this.resolvedTenantId = null;
+        this.resolvedTenantUuid = null;
+    }
+
+    private static boolean equals(final String s1, final String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
 }
@@ -30,14 +30,37 @@ import java.util.List;
  * Utility class to specify query parameters
  */
 public class QueryParams {
+    /**
+     * How the total number of items matching a query is computed
+     */
+    public static enum CountMode {
+        /**
+         * Exact count, computed by a separate query over all matching items
+         */
+        EXACT,
+        /**
+         * No count, the count of the result is -1
+         */
+        NONE,
+        /**
+         * Lower bound computed from the returned page: the number of items up
+         * to the end of the page, plus one if more items follow
+         */
+        ESTIMATE
+    }
+
     private final Integer first;
 
     private final Integer last;
 
     private final String marker;
 
+    private final String cursor;
+
     private final Integer limit;
 
+    private final CountMode countMode;
+
     private final List<String> filters;
 
     private final List<String> attributes;
@@ -56,8 +79,12 @@ public class QueryParams {
 
         private String marker;
 
+        private String cursor;
+
         private Integer limit;
 
+        private CountMode countMode = CountMode.EXACT;
+
         private List<String> filters = new ArrayList<>();
 
         private List<String> attributes = new ArrayList<>();
@@ -104,6 +131,17 @@ public class QueryParams {
             return this;
         }
 
+        /**
+         * Sets the cursor returned with the previous page by
+         * {@link QueryResult#getNextCursor()}. Indicates that the query should
+         * return the items following that page. If a cursor is specified, the
+         * first, last and marker parameters are ignored.
+         */
+        public Builder cursor(final String val) {
+            this.cursor = val;
+            return this;
+        }
+
         /**
          * Maximum number of items to returns. If a limit is specified, the
          * first and last parameters are ignored.
@@ -113,6 +151,15 @@ public class QueryParams {
             return this;
         }
 
+        /**
+         * Sets how the total number of matching items is computed. Defaults to
+         * {@link CountMode#EXACT}.
+         */
+        public Builder countMode(final CountMode val) {
+            this.countMode = val;
+            return this;
+        }
+
         /**
          * Provides filters compliant with the DMTF CIMI filter syntax. Provided
          * filters are ANDed together.
@@ -179,7 +226,9 @@ public class QueryParams {
         this.first = builder.first;
         this.last = builder.last;
         this.marker = builder.marker;
+        this.cursor = builder.cursor;
         this.limit = builder.limit;
+        this.countMode = builder.countMode;
         this.filters = builder.filters;
         this.attributes = builder.attributes;
         this.providerUuid = builder.providerUuid;
@@ -211,6 +260,14 @@ public class QueryParams {
         return this.marker;
     }
 
+    /**
+     * Cursor returned with the previous page if any. If a cursor is specified,
+     * the first, last and marker parameters are ignored.
+     */
+    public String getCursor() {
+        return this.cursor;
+    }
+
     /**
      * Maximum number of items to returns. If a limit is specified, the first
      * and last parameters are ignored.
@@ -219,6 +276,13 @@ public class QueryParams {
         return this.limit;
     }
 
+    /**
+     * How the total number of matching items is computed
+     */
+    public CountMode getCountMode() {
+        return this.countMode;
+    }
+
     /**
      * Filters compliant with the DMTF CIMI filter syntax.
      */
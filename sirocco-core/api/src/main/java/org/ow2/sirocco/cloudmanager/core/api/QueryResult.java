@@ -38,6 +38,8 @@ public class QueryResult<E> implements Serializable {
 
     private List<E> items;
 
+    private String nextCursor;
+
     public QueryResult(final int count, final List<E> items) {
         super();
         this.count = count;
@@ -60,4 +62,16 @@ public class QueryResult<E> implements Serializable {
         this.items = items;
     }
 
+    /**
+     * Returns the cursor to pass to {@link QueryParams.Builder#cursor(String)}
+     * to get the next page, or null if this page is the last one
+     */
+    public String getNextCursor() {
+        return this.nextCursor;
+    }
+
+    public void setNextCursor(final String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
 }
@@ -4,8 +4,17 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
 import javax.ejb.Singleton;
+import javax.ejb.Startup;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
@@ -17,41 +26,133 @@ import org.ow2.sirocco.cloudmanager.model.cimi.extension.CloudProviderProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Registry of the connectors of the cloud provider profiles. Connectors
+ * declared as ICloudProviderConnector services are discovered at startup and
+ * bound to the profiles whose connector class they implement; other connector
+ * classes are instantiated by reflection. Looking a connector up is a single
+ * concurrent map read.
+ */
 @Singleton
+@Startup
+@Lock(LockType.READ)
 public class CloudProviderConnectorFinder implements ICloudProviderConnectorFinder {
     private static Logger logger = LoggerFactory.getLogger(CloudProviderConnectorFinder.class.getName());
 
-    private Map<String, ICloudProviderConnector> connectors = new HashMap<>();
+    /**
+     * Throttled connectors by cloud provider type
+     */
+    private final ConcurrentMap<String, ConnectorBinding> connectors = new ConcurrentHashMap<>();
+
+    /**
+     * Connectors found by the service loader, by class name
+     */
+    private final Map<String, ICloudProviderConnector> discoveredConnectors = new HashMap<>();
 
     @PersistenceContext(unitName = "siroccoPersistenceUnit", type = PersistenceContextType.TRANSACTION)
     private EntityManager em;
 
-    @Override
-    public List<ICloudProviderConnector> listCloudProviderConnectors() {
-        return new ArrayList<ICloudProviderConnector>(this.connectors.values());
+    @EJB
+    private ProviderThrottleManager providerThrottleManager;
+
+    /**
+     * Connector bound to a cloud provider type, with its class name so that the
+     * class and the connector are always updated together
+     */
+    private static class ConnectorBinding {
+        final String connectorClass;
+
+        final ICloudProviderConnector connector;
+
+        ConnectorBinding(final String connectorClass, final ICloudProviderConnector connector) {
+            this.connectorClass = connectorClass;
+            this.connector = connector;
+        }
+    }
+
+    @PostConstruct
+    private void init() {
+        try {
+            for (ICloudProviderConnector connector : ServiceLoader.load(ICloudProviderConnector.class)) {
+                this.discoveredConnectors.put(connector.getClass().getName(), connector);
+            }
+        } catch (ServiceConfigurationError e) {
+            CloudProviderConnectorFinder.logger.error("Failed to discover connectors", e);
+        }
+        CloudProviderConnectorFinder.logger.info("Discovered connectors: " + this.discoveredConnectors.keySet());
+        try {
+            this.reload();
+        } catch (RuntimeException e) {
+            CloudProviderConnectorFinder.logger.error("Failed to load the connectors of the cloud provider profiles", e);
+        }
     }
 
     @Override
-    public ICloudProviderConnector getCloudProviderConnector(final String cloudProviderType) {
-        if (this.connectors.get(cloudProviderType) == null) {
-            CloudProviderProfile profile = null;
+    public void reload() {
+        for (CloudProviderProfile profile : this.em.createQuery("SELECT p FROM CloudProviderProfile p",
+            CloudProviderProfile.class).getResultList()) {
+            this.register(profile);
+        }
+    }
+
+    /**
+     * Binds a connector to the type of a profile, unless one of the same class
+     * is already bound so that its provider sessions are kept. Concurrent
+     * registrations of a type all return the connector that got bound.
+     */
+    private ICloudProviderConnector register(final CloudProviderProfile profile) {
+        String connectorClass = profile.getConnectorClass();
+        ConnectorBinding current = this.connectors.get(profile.getType());
+        if (current != null && current.connectorClass.equals(connectorClass)) {
+            return current.connector;
+        }
+        ICloudProviderConnector connector = this.discoveredConnectors.get(connectorClass);
+        if (connector == null) {
             try {
-                profile = (CloudProviderProfile) this.em.createQuery("SELECT p FROM CloudProviderProfile p WHERE p.type=:type")
-                    .setParameter("type", cloudProviderType).getSingleResult();
-            } catch (NoResultException e) {
-                CloudProviderConnectorFinder.logger.error("Unknown cloud provider type", e);
+                connector = (ICloudProviderConnector) Class.forName(connectorClass).newInstance();
+            } catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
+                CloudProviderConnectorFinder.logger.error("Failed to create connector for type " + profile.getType(), e);
                 return null;
             }
-            ICloudProviderConnector connector;
-            try {
-                connector = (ICloudProviderConnector) Class.forName(profile.getConnectorClass()).newInstance();
-                this.connectors.put(cloudProviderType, connector);
-            } catch (InstantiationException | IllegalAccessException | ClassNotFoundException e) {
-                CloudProviderConnectorFinder.logger.error("Failed to create connector for type " + cloudProviderType, e);
+        }
+        ConnectorBinding binding = new ConnectorBinding(connectorClass, this.providerThrottleManager.throttle(connector));
+        while (true) {
+            if (current == null ? this.connectors.putIfAbsent(profile.getType(), binding) == null : this.connectors.replace(
+                profile.getType(), current, binding)) {
+                return binding.connector;
+            }
+            current = this.connectors.get(profile.getType());
+            if (current != null && current.connectorClass.equals(connectorClass)) {
+                return current.connector;
             }
         }
+    }
+
+    @Override
+    public List<ICloudProviderConnector> listCloudProviderConnectors() {
+        List<ICloudProviderConnector> result = new ArrayList<ICloudProviderConnector>();
+        for (ConnectorBinding binding : this.connectors.values()) {
+            result.add(binding.connector);
+        }
+        return result;
+    }
 
-        return this.connectors.get(cloudProviderType);
+    @Override
+    public ICloudProviderConnector getCloudProviderConnector(final String cloudProviderType) {
+        ConnectorBinding binding = this.connectors.get(cloudProviderType);
+        if (binding != null) {
+            return binding.connector;
+        }
+        // profile created since the last reload
+        CloudProviderProfile profile;
+        try {
+            profile = this.em.createQuery("SELECT p FROM CloudProviderProfile p WHERE p.type=:type", CloudProviderProfile.class)
+                .setParameter("type", cloudProviderType).getSingleResult();
+        } catch (NoResultException e) {
+            CloudProviderConnectorFinder.logger.error("Unknown cloud provider type", e);
+            return null;
+        }
+        return this.register(profile);
     }
 
 }
@@ -46,6 +46,9 @@ import javax.persistence.PersistenceContextType;
 import org.ow2.sirocco.cloudmanager.connector.api.ConnectorException;
 import org.ow2.sirocco.cloudmanager.connector.api.ICloudProviderConnector;
 import org.ow2.sirocco.cloudmanager.connector.api.ICloudProviderConnectorFinder;
+import org.ow2.sirocco.cloudmanager.connector.api.IImageService;
+import org.ow2.sirocco.cloudmanager.connector.api.IMachineImageHandler;
+import org.ow2.sirocco.cloudmanager.connector.api.IPagedImageService;
 import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
 import org.ow2.sirocco.cloudmanager.core.api.ICloudProviderManager;
 import org.ow2.sirocco.cloudmanager.core.api.IMachineImageManager;
@@ -60,6 +63,7 @@ import org.ow2.sirocco.cloudmanager.core.api.exception.ResourceConflictException
 import org.ow2.sirocco.cloudmanager.core.api.exception.ResourceNotFoundException;
 import org.ow2.sirocco.cloudmanager.core.api.remote.IRemoteCloudProviderManager;
 import org.ow2.sirocco.cloudmanager.model.cimi.CloudEntityCreate;
+import org.ow2.sirocco.cloudmanager.model.cimi.Job;
 import org.ow2.sirocco.cloudmanager.model.cimi.MachineConfiguration;
 import org.ow2.sirocco.cloudmanager.model.cimi.MachineImage;
 import org.ow2.sirocco.cloudmanager.model.cimi.Network;
@@ -229,14 +233,27 @@ public class CloudProviderManager implements ICloudProviderManager {
             }
         }
         if (options.isImportMachineImages()) {
-            for (CloudProviderLocation location : provider.getCloudProviderLocations()) {
+            for (final CloudProviderLocation location : provider.getCloudProviderLocations()) {
                 try {
-                    List<MachineImage> images = connector.getImageService().getMachineImages(
-                        options.isImportOnlyOwnerMachineImages(), null,
-                        new ProviderTarget().account(account).location(location));
-                    for (MachineImage image : images) {
-                        image.setLocation(location);
-                        this.machineImageManager.createMachineImage(image);
+                    IImageService imageService = connector.getImageService();
+                    ProviderTarget target = new ProviderTarget().account(account).location(location);
+                    if (imageService instanceof IPagedImageService) {
+                        ((IPagedImageService) imageService).getMachineImages(options.isImportOnlyOwnerMachineImages(),
+                            options.getMachineImageSearchCriteria(), target, new IMachineImageHandler() {
+                                @Override
+                                public void handleMachineImages(final List<MachineImage> machineImages)
+                                    throws ConnectorException {
+                                    try {
+                                        CloudProviderManager.this.importMachineImages(machineImages, location);
+                                    } catch (CloudProviderException e) {
+                                        throw new ConnectorException(e.getMessage(), e);
+                                    }
+                                }
+                            });
+                    } else {
+                        this.importMachineImages(
+                            imageService.getMachineImages(options.isImportOnlyOwnerMachineImages(),
+                                options.getMachineImageSearchCriteria(), target), location);
                     }
                 } catch (Exception e) {
                     CloudProviderManager.logger.error("Import MachineImages failure", e);
@@ -273,6 +290,21 @@ public class CloudProviderManager implements ICloudProviderManager {
         return account;
     }
 
+    /**
+     * Creates the machine images of a provider location and detaches them
+     * once written so that importing a large catalog does not fill the
+     * persistence context
+     */
+    private void importMachineImages(final List<MachineImage> images, final CloudProviderLocation location)
+        throws CloudProviderException {
+        for (MachineImage image : images) {
+            image.setLocation(location);
+            Job job = this.machineImageManager.createMachineImage(image);
+            this.em.detach(job);
+            this.em.detach(image);
+        }
+    }
+
     private boolean isCloudProviderAccountValid(final CloudProviderAccount cpa) {
 
         if (cpa.getLogin() == null) {
@@ -553,6 +585,7 @@ public class CloudProviderManager implements ICloudProviderManager {
             throw new ResourceConflictException("CloudProviderProfile of type " + providerProfile.getType() + " already exists");
         }
         this.em.persist(providerProfile);
+        this.connectorFinder.reload();
         return providerProfile;
     }
 
@@ -34,6 +34,9 @@ import javax.persistence.PersistenceContextType;
 
 import org.ow2.sirocco.cloudmanager.core.api.IConfigManager;
 import org.ow2.sirocco.cloudmanager.core.api.exception.InvalidRequestException;
+import org.ow2.sirocco.cloudmanager.core.impl.throttle.RateLimit;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.PollPolicy;
+import org.ow2.sirocco.cloudmanager.core.utils.PasswordHasher;
 import org.ow2.sirocco.cloudmanager.model.utils.SiroccoConfiguration;
 
 @Stateless
@@ -42,14 +45,31 @@ public class ConfigManager implements IConfigManager {
     @PersistenceContext(unitName = "siroccoPersistenceUnit", type = PersistenceContextType.TRANSACTION)
     private EntityManager em;
 
+    /**
+     * Id of the configuration row, looked up once so that the configuration is
+     * then read by primary key from the shared cache
+     */
+    private static volatile Integer configId;
+
     private SiroccoConfiguration getConfig() {
+        Integer id = ConfigManager.configId;
+        if (id != null) {
+            SiroccoConfiguration config = this.em.find(SiroccoConfiguration.class, id);
+            if (config != null) {
+                return config;
+            }
+        }
         @SuppressWarnings("unchecked")
         List<SiroccoConfiguration> l = this.em.createQuery("SELECT c FROM SiroccoConfiguration c").getResultList();
+        SiroccoConfiguration config;
         if (l.size() > 0) {
-            return l.get(0);
+            config = l.get(0);
+        } else {
+            config = new SiroccoConfiguration();
+            this.em.persist(config);
+            this.em.flush();
         }
-        SiroccoConfiguration config = new SiroccoConfiguration();
-        this.em.persist(config);
+        ConfigManager.configId = config.getId();
         return config;
     }
 
@@ -69,12 +89,82 @@ public class ConfigManager implements IConfigManager {
             config.setHttpNonProxyHosts(value);
             System.setProperty("http.nonProxyHosts", value);
             break;
+        case IConfigManager.REAPER_BATCH_SIZE:
+            config.setReaperBatchSize(this.checkPositiveInteger(key, value));
+            break;
+        case IConfigManager.RESOURCE_RETENTION_DAYS:
+            config.setResourceRetentionDays(this.checkPositiveInteger(key, value));
+            break;
+        case IConfigManager.ARCHIVE_DIRECTORY:
+            config.setArchiveDirectory(value == null || value.isEmpty() ? null : value);
+            break;
+        case IConfigManager.PASSWORD_HASH_ALGORITHM:
+            config.setPasswordHashAlgorithm(this.checkPasswordHashAlgorithm(key, value));
+            break;
         default:
+            if (key.startsWith(IConfigManager.POLL_POLICY_PREFIX)) {
+                this.setPollPolicy(config, key.substring(IConfigManager.POLL_POLICY_PREFIX.length()), value);
+                break;
+            }
+            if (key.startsWith(IConfigManager.RATE_LIMIT_PREFIX)) {
+                this.setRateLimit(config, key.substring(IConfigManager.RATE_LIMIT_PREFIX.length()), value);
+                break;
+            }
             throw new InvalidRequestException("Invalid parameter " + key);
         }
 
     }
 
+    private String checkPositiveInteger(final String key, final String value) throws InvalidRequestException {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (Integer.parseInt(value) > 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+        }
+        throw new InvalidRequestException("Invalid value " + value + " of parameter " + key);
+    }
+
+    private String checkPasswordHashAlgorithm(final String key, final String value) throws InvalidRequestException {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        if (value.equalsIgnoreCase(PasswordHasher.MD5) || value.equalsIgnoreCase(PasswordHasher.PBKDF2)) {
+            return value.toUpperCase();
+        }
+        throw new InvalidRequestException("Invalid value " + value + " of parameter " + key + ", expected "
+            + PasswordHasher.MD5 + " or " + PasswordHasher.PBKDF2);
+    }
+
+    private void setPollPolicy(final SiroccoConfiguration config, final String policyKey, final String value)
+        throws InvalidRequestException {
+        if (value == null || value.isEmpty()) {
+            config.getPollPolicies().remove(policyKey);
+            return;
+        }
+        try {
+            config.getPollPolicies().put(policyKey, PollPolicy.valueOf(value).toString());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException(e.getMessage());
+        }
+    }
+
+    private void setRateLimit(final SiroccoConfiguration config, final String rateLimitKey, final String value)
+        throws InvalidRequestException {
+        if (value == null || value.isEmpty()) {
+            config.getRateLimits().remove(rateLimitKey);
+            return;
+        }
+        try {
+            config.getRateLimits().put(rateLimitKey, RateLimit.valueOf(value).toString());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException(e.getMessage());
+        }
+    }
+
     @Override
     public Map<String, String> getConfigParameters() {
         SiroccoConfiguration config = this.getConfig();
@@ -82,6 +172,16 @@ public class ConfigManager implements IConfigManager {
         result.put(IConfigManager.HTTP_PROXY_HOST, config.getHttpProxyHost());
         result.put(IConfigManager.HTTP_PROXY_PORT, config.getHttpProxyPort());
         result.put(IConfigManager.HTTP_NON_PROXY_HOSTS, config.getHttpNonProxyHosts());
+        result.put(IConfigManager.REAPER_BATCH_SIZE, config.getReaperBatchSize());
+        result.put(IConfigManager.RESOURCE_RETENTION_DAYS, config.getResourceRetentionDays());
+        result.put(IConfigManager.ARCHIVE_DIRECTORY, config.getArchiveDirectory());
+        result.put(IConfigManager.PASSWORD_HASH_ALGORITHM, config.getPasswordHashAlgorithm());
+        for (Map.Entry<String, String> policy : config.getPollPolicies().entrySet()) {
+            result.put(IConfigManager.POLL_POLICY_PREFIX + policy.getKey(), policy.getValue());
+        }
+        for (Map.Entry<String, String> rateLimit : config.getRateLimits().entrySet()) {
+            result.put(IConfigManager.RATE_LIMIT_PREFIX + rateLimit.getKey(), rateLimit.getValue());
+        }
         return result;
     }
 
@@ -95,7 +195,21 @@ public class ConfigManager implements IConfigManager {
             return config.getHttpProxyPort();
         case IConfigManager.HTTP_NON_PROXY_HOSTS:
             return config.getHttpNonProxyHosts();
+        case IConfigManager.REAPER_BATCH_SIZE:
+            return config.getReaperBatchSize();
+        case IConfigManager.RESOURCE_RETENTION_DAYS:
+            return config.getResourceRetentionDays();
+        case IConfigManager.ARCHIVE_DIRECTORY:
+            return config.getArchiveDirectory();
+        case IConfigManager.PASSWORD_HASH_ALGORITHM:
+            return config.getPasswordHashAlgorithm();
         default:
+            if (key.startsWith(IConfigManager.POLL_POLICY_PREFIX)) {
+                return config.getPollPolicies().get(key.substring(IConfigManager.POLL_POLICY_PREFIX.length()));
+            }
+            if (key.startsWith(IConfigManager.RATE_LIMIT_PREFIX)) {
+                return config.getRateLimits().get(key.substring(IConfigManager.RATE_LIMIT_PREFIX.length()));
+            }
             throw new InvalidRequestException("Invalid parameter " + key);
         }
     }
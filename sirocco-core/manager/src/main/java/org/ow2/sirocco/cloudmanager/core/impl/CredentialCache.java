@@ -0,0 +1,113 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Remembers the credentials successfully verified during the last
+ * {@link #TTL_IN_SECONDS}, along with the role of their user, so that each API
+ * request does not pay for a password hash. Credentials are not kept in clear:
+ * entries hold an HMAC of the password under a random key generated at
+ * startup.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class CredentialCache {
+    private static final int TTL_IN_SECONDS = 60;
+
+    private static final int MAX_ENTRIES = 10000;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Cache<String, VerifiedCredentials> verifiedCredentials = CacheBuilder.newBuilder()
+        .expireAfterWrite(CredentialCache.TTL_IN_SECONDS, TimeUnit.SECONDS).maximumSize(CredentialCache.MAX_ENTRIES)
+        .build();
+
+    private final SecretKeySpec key;
+
+    public CredentialCache() {
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.key = new SecretKeySpec(keyBytes, CredentialCache.MAC_ALGORITHM);
+    }
+
+    private static class VerifiedCredentials {
+        final byte[] digest;
+
+        final String role;
+
+        VerifiedCredentials(final byte[] digest, final String role) {
+            this.digest = digest;
+            this.role = role;
+        }
+    }
+
+    /**
+     * Returns the role of the user if the same credentials were verified
+     * recently, null otherwise
+     */
+    public String getVerifiedRole(final String userName, final String password) {
+        VerifiedCredentials credentials = this.verifiedCredentials.getIfPresent(userName);
+        if (credentials != null && MessageDigest.isEqual(credentials.digest, this.digest(userName, password))) {
+            return credentials.role;
+        }
+        return null;
+    }
+
+    public void putVerified(final String userName, final String password, final String role) {
+        this.verifiedCredentials.put(userName, new VerifiedCredentials(this.digest(userName, password), role));
+    }
+
+    public void invalidate(final String userName) {
+        this.verifiedCredentials.invalidate(userName);
+    }
+
+    private byte[] digest(final String userName, final String password) {
+        try {
+            Mac mac = Mac.getInstance(CredentialCache.MAC_ALGORITHM);
+            mac.init(this.key);
+            mac.update(userName.getBytes(CredentialCache.UTF8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(CredentialCache.UTF8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -25,6 +25,7 @@
 
 package org.ow2.sirocco.cloudmanager.core.impl;
 
+import java.util.Date;
 import java.util.List;
 
 import javax.annotation.Resource;
@@ -37,6 +38,7 @@ import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
@@ -50,6 +52,7 @@ import org.ow2.sirocco.cloudmanager.core.api.ITenantManager;
 import org.ow2.sirocco.cloudmanager.core.api.IVolumeManager;
 import org.ow2.sirocco.cloudmanager.core.api.IdentityContext;
 import org.ow2.sirocco.cloudmanager.core.api.QueryParams;
+import org.ow2.sirocco.cloudmanager.core.api.QueryParams.CountMode;
 import org.ow2.sirocco.cloudmanager.core.api.QueryResult;
 import org.ow2.sirocco.cloudmanager.core.api.exception.CloudProviderException;
 import org.ow2.sirocco.cloudmanager.core.api.exception.InvalidRequestException;
@@ -72,6 +75,11 @@ public class JobManager implements IJobManager {
 
     private static Logger logger = LoggerFactory.getLogger(JobManager.class);
 
+    /**
+     * Lazy relations returned along with the jobs
+     */
+    private static final String[] JOB_RELATIONS = {"nestedJobs", "affectedResources"};
+
     public static long DEFAULT_JOB_SCHEDULER_PERIOD_IN_SECONDS = 20;
 
     public long jobLockTimeoutInSeconds = 600;
@@ -137,15 +145,22 @@ public class JobManager implements IJobManager {
         if (result == null) {
             throw new ResourceNotFoundException("Invalid Job id " + id);
         }
-        result.getNestedJobs().size();
-        result.getAffectedResources().size();
+        this.readJobAttributes(result);
         return result;
     }
 
+    private void readJobAttributes(final Job job) {
+        job.getNestedJobs().size();
+        job.getAffectedResources().size();
+    }
+
     @Override
     public Job getJobByUuid(final String uuid) throws ResourceNotFoundException, CloudProviderException {
         try {
-            return this.em.createNamedQuery("Job.findByUuid", Job.class).setParameter("uuid", uuid).getSingleResult();
+            Job result = this.em.createNamedQuery("Job.findByUuid", Job.class).setParameter("uuid", uuid)
+                .getSingleResult();
+            this.readJobAttributes(result);
+            return result;
         } catch (NoResultException e) {
             throw new ResourceNotFoundException();
         }
@@ -167,14 +182,14 @@ public class JobManager implements IJobManager {
     @Override
     @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     public QueryResult<Job> getJobs(final QueryParams... queryParams) throws CloudProviderException {
+        QueryHelper.QueryParamsBuilder params = QueryHelper.QueryParamsBuilder.builder("Job", Job.class)
+            .tenantId(this.getTenant().getId()).fetch(JobManager.JOB_RELATIONS);
         if (queryParams.length == 0) {
-            @SuppressWarnings("unchecked")
-            List<Job> jobs = this.em.createQuery("SELECT j FROM Job j WHERE j.tenant.id=:tenantId")
-                .setParameter("tenantId", this.getTenant().getId()).getResultList();
-            return new QueryResult<Job>(jobs.size(), jobs);
+            // the whole list is returned, its size is the count
+            params.countMode(CountMode.ESTIMATE);
+        } else {
+            params.params(queryParams[0]);
         }
-        QueryHelper.QueryParamsBuilder params = QueryHelper.QueryParamsBuilder.builder("Job", Job.class)
-            .tenantId(this.getTenant().getId()).params(queryParams[0]);
         return QueryHelper.getEntityList(this.em, params);
     }
 
@@ -183,14 +198,41 @@ public class JobManager implements IJobManager {
     public QueryResult<Job> getJobs(final int first, final int last, final List<String> filters, final List<String> attributes)
         throws InvalidRequestException, CloudProviderException {
         QueryHelper.QueryParamsBuilder params = QueryHelper.QueryParamsBuilder.builder("Job", Job.class);
-        return QueryHelper.getEntityList(this.em,
-            params.tenantId(this.getTenant().getId()).first(first).last(last).filter(filters).attributes(attributes));
+        return QueryHelper.getEntityList(this.em, params.tenantId(this.getTenant().getId()).first(first).last(last)
+            .filter(filters).attributes(attributes).fetch(JobManager.JOB_RELATIONS));
     }
 
     @Override
     public void updateJobStatus(final int jobId, final Status status) {
         Job job = this.em.find(Job.class, jobId);
         job.setState(status);
+        if (job.getParentJob() != null && status != Status.RUNNING) {
+            this.completeParentJob(job.getParentJob());
+        }
+    }
+
+    /**
+     * Completes a parent job once none of its nested jobs is running. The parent
+     * job is locked first so that nested jobs completing concurrently cannot all
+     * miss the last one.
+     */
+    private void completeParentJob(final Job parentJob) {
+        // pending changes, e.g. of the parent job itself, must survive the refresh
+        this.em.flush();
+        this.em.lock(parentJob, LockModeType.PESSIMISTIC_WRITE);
+        this.em.refresh(parentJob);
+        if (parentJob.getState() != Status.RUNNING) {
+            return;
+        }
+        List<Status> nestedJobStates = this.em
+            .createQuery("SELECT j.state FROM Job j WHERE j.parentJob.id=:parentJobId", Status.class)
+            .setParameter("parentJobId", parentJob.getId()).getResultList();
+        if (nestedJobStates.contains(Status.RUNNING)) {
+            return;
+        }
+        parentJob.setState(nestedJobStates.contains(Status.FAILED) ? Status.FAILED : Status.SUCCESS);
+        parentJob.setTimeOfStatusChange(new Date());
+        JobManager.logger.info("Job " + parentJob.getId() + " completed with status " + parentJob.getState());
     }
 
 }
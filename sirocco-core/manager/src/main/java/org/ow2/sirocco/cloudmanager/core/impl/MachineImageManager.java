@@ -60,6 +60,7 @@ import org.ow2.sirocco.cloudmanager.core.api.exception.ResourceConflictException
 import org.ow2.sirocco.cloudmanager.core.api.exception.ResourceNotFoundException;
 import org.ow2.sirocco.cloudmanager.core.api.remote.IRemoteMachineImageManager;
 import org.ow2.sirocco.cloudmanager.core.impl.command.MachineImageDeleteCommand;
+import org.ow2.sirocco.cloudmanager.core.impl.command.ResourceCommand;
 import org.ow2.sirocco.cloudmanager.core.utils.QueryHelper;
 import org.ow2.sirocco.cloudmanager.core.utils.UtilsForManagers;
 import org.ow2.sirocco.cloudmanager.model.cimi.CloudResource;
@@ -266,9 +267,12 @@ public class MachineImageManager implements IMachineImageManager {
         this.em.persist(job);
         this.em.flush();
 
-        ObjectMessage message = this.jmsContext.createObjectMessage(new MachineImageDeleteCommand()
-            .setResourceId(image.getId()).setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new MachineImageDeleteCommand()
+            .setAccount(image.getProviderMappings().get(0).getProviderAccount()).setResourceId(image.getId())
+            .setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
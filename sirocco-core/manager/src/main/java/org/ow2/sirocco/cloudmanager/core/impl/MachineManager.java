@@ -70,6 +70,7 @@ import org.ow2.sirocco.cloudmanager.core.api.ITenantManager;
 import org.ow2.sirocco.cloudmanager.core.api.IVolumeManager;
 import org.ow2.sirocco.cloudmanager.core.api.IdentityContext;
 import org.ow2.sirocco.cloudmanager.core.api.QueryParams;
+import org.ow2.sirocco.cloudmanager.core.api.QueryParams.CountMode;
 import org.ow2.sirocco.cloudmanager.core.api.QueryResult;
 import org.ow2.sirocco.cloudmanager.core.api.ResourceStateChangeEvent;
 import org.ow2.sirocco.cloudmanager.core.api.exception.CloudProviderException;
@@ -79,9 +80,11 @@ import org.ow2.sirocco.cloudmanager.core.api.exception.ResourceNotFoundException
 import org.ow2.sirocco.cloudmanager.core.api.exception.ServiceUnavailableException;
 import org.ow2.sirocco.cloudmanager.core.api.remote.IRemoteMachineManager;
 import org.ow2.sirocco.cloudmanager.core.impl.command.MachineActionCommand;
+import org.ow2.sirocco.cloudmanager.core.impl.command.MachineBatchCreateCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.MachineCaptureCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.MachineCreateCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.MachineDeleteCommand;
+import org.ow2.sirocco.cloudmanager.core.impl.command.ResourceCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.VolumeAttachCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.VolumeDetachCommand;
 import org.ow2.sirocco.cloudmanager.core.utils.QueryHelper;
@@ -126,6 +129,11 @@ public class MachineManager implements IMachineManager {
 
     private static Logger logger = LoggerFactory.getLogger(MachineManager.class.getName());
 
+    /**
+     * Lazy relations returned along with the machines
+     */
+    private static final String[] MACHINE_RELATIONS = {"disks", "volumes", "networkInterfaces", "properties"};
+
     @PersistenceContext(unitName = "siroccoPersistenceUnit", type = PersistenceContextType.TRANSACTION)
     private EntityManager em;
 
@@ -251,6 +259,93 @@ public class MachineManager implements IMachineManager {
 
         this.translateAndValidatePlacementHint(machineCreate, placement);
 
+        List<SecurityGroup> securityGroups = this.translateSecurityGroups(machineCreate);
+
+        Machine machine = this.newMachine(machineCreate, tenant, placement, securityGroups);
+
+        Job job = this.newMachineCreationJob(tenant, machine);
+        this.em.flush();
+
+        ResourceCommand command = new MachineCreateCommand(machineCreate).setAccount(placement.getAccount())
+            .setLocation(placement.getLocation()).setResourceId(machine.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
+        return job;
+    }
+
+    @Override
+    public Job createMachines(final MachineCreate machineCreate, final int count) throws CloudProviderException {
+        if (count < 1) {
+            throw new InvalidRequestException("Invalid machine count " + count);
+        }
+        MachineManager.logger.info("Creating " + count + " Machines " + machineCreate.getName());
+
+        Tenant tenant = this.getTenant();
+
+        Placement placement = this.cloudProviderManager.placeResource(tenant.getId(), machineCreate);
+
+        this.translateAndValidatePlacementHint(machineCreate, placement);
+
+        List<SecurityGroup> securityGroups = this.translateSecurityGroups(machineCreate);
+
+        List<Machine> machines = new ArrayList<Machine>();
+        for (int i = 0; i < count; i++) {
+            machines.add(this.newMachine(machineCreate, tenant, placement, securityGroups));
+        }
+
+        Job parentJob = new Job();
+        parentJob.setTenant(tenant);
+        parentJob.setTargetResource(machines.get(0));
+        parentJob.setAffectedResources(new ArrayList<CloudResource>(machines));
+        parentJob.setCreated(new Date());
+        parentJob.setDescription("Machines creation");
+        parentJob.setState(Job.Status.RUNNING);
+        parentJob.setAction("add");
+        parentJob.setTimeOfStatusChange(new Date());
+        this.em.persist(parentJob);
+
+        List<Job> jobs = new ArrayList<Job>();
+        for (Machine machine : machines) {
+            Job job = this.newMachineCreationJob(tenant, machine);
+            parentJob.addNestedJob(job);
+            jobs.add(job);
+        }
+        // single flush so that inserts are sent as JDBC batches
+        this.em.flush();
+
+        MachineBatchCreateCommand command = new MachineBatchCreateCommand(machineCreate).setAccount(placement.getAccount())
+            .setLocation(placement.getLocation());
+        for (int i = 0; i < count; i++) {
+            command.addMachine(machines.get(i).getId(), jobs.get(i).getId());
+        }
+        command.setResourceId(machines.get(0).getId()).setJob(parentJob);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
+        return parentJob;
+    }
+
+    /**
+     * Looks up all security groups that the machine will join and replaces
+     * their broker ids with provider-assigned ids in the machine template
+     */
+    private List<SecurityGroup> translateSecurityGroups(final MachineCreate machineCreate) throws CloudProviderException {
+        List<SecurityGroup> securityGroups = new ArrayList<>();
+        if (machineCreate.getMachineTemplate().getSecurityGroupUuids() != null) {
+            List<String> secGroupProviderAssignedIds = new ArrayList<>();
+            for (String groupUuid : machineCreate.getMachineTemplate().getSecurityGroupUuids()) {
+                SecurityGroup secGroup = this.networkManager.getSecurityGroupByUuid(groupUuid);
+                securityGroups.add(secGroup);
+                secGroupProviderAssignedIds.add(secGroup.getProviderAssignedId());
+            }
+            machineCreate.getMachineTemplate().setSecurityGroupUuids(secGroupProviderAssignedIds);
+        }
+        return securityGroups;
+    }
+
+    private Machine newMachine(final MachineCreate machineCreate, final Tenant tenant, final Placement placement,
+        final List<SecurityGroup> securityGroups) {
         Machine machine = new Machine();
 
         machine.setName(machineCreate.getName());
@@ -272,19 +367,6 @@ public class MachineManager implements IMachineManager {
             machine.addMachineDisk(disk);
         }
 
-        // look-up all security groups that this machine will join
-        // replace broker ids with provider-assigned ids
-        List<SecurityGroup> securityGroups = new ArrayList<>();
-        if (machineCreate.getMachineTemplate().getSecurityGroupUuids() != null) {
-            List<String> secGroupProviderAssignedIds = new ArrayList<>();
-            for (String groupUuid : machineCreate.getMachineTemplate().getSecurityGroupUuids()) {
-                SecurityGroup secGroup = this.networkManager.getSecurityGroupByUuid(groupUuid);
-                securityGroups.add(secGroup);
-                secGroupProviderAssignedIds.add(secGroup.getProviderAssignedId());
-            }
-            machineCreate.getMachineTemplate().setSecurityGroupUuids(secGroupProviderAssignedIds);
-        }
-
         machine.setCreated(new Date());
         machine.setUpdated(machine.getCreated());
         this.em.persist(machine);
@@ -293,8 +375,11 @@ public class MachineManager implements IMachineManager {
             machine.getSecurityGroups().add(secGroup);
             secGroup.getMembers().add(machine);
         }
-        machine.setSecurityGroups(securityGroups);
+        machine.setSecurityGroups(new ArrayList<SecurityGroup>(securityGroups));
+        return machine;
+    }
 
+    private Job newMachineCreationJob(final Tenant tenant, final Machine machine) {
         Job job = new Job();
         job.setTenant(tenant);
         job.setTargetResource(machine);
@@ -307,12 +392,6 @@ public class MachineManager implements IMachineManager {
         job.setAction("add");// TODO: normalize!!
         job.setTimeOfStatusChange(new Date());// now
         this.em.persist(job);
-        this.em.flush();
-
-        ObjectMessage message = this.jmsContext
-            .createObjectMessage(new MachineCreateCommand(machineCreate).setAccount(placement.getAccount())
-                .setLocation(placement.getLocation()).setResourceId(machine.getId()).setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
         return job;
     }
 
@@ -408,6 +487,9 @@ public class MachineManager implements IMachineManager {
         if (m.getVolumes() != null) {
             m.getVolumes().size();
         }
+        if (m.getProperties() != null) {
+            m.getProperties().size();
+        }
     }
 
     @Override
@@ -417,21 +499,21 @@ public class MachineManager implements IMachineManager {
         QueryHelper.QueryParamsBuilder params = QueryHelper.QueryParamsBuilder.builder("Machine", Machine.class);
         return QueryHelper.getEntityList(this.em,
             params.tenantId(this.getTenant().getId()).first(first).last(last).filter(filters).attributes(attributes)
-                .stateToIgnore(Machine.State.DELETED));
+                .stateToIgnore(Machine.State.DELETED).fetch(MachineManager.MACHINE_RELATIONS));
     }
 
     @Override
     @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     public QueryResult<Machine> getMachines(final QueryParams... queryParams) throws InvalidRequestException,
         CloudProviderException {
+        QueryHelper.QueryParamsBuilder params = QueryHelper.QueryParamsBuilder.builder("Machine", Machine.class)
+            .tenantId(this.getTenant().getId()).stateToIgnore(Machine.State.DELETED).fetch(MachineManager.MACHINE_RELATIONS);
         if (queryParams.length == 0) {
-            @SuppressWarnings("unchecked")
-            List<Machine> machines = QueryHelper.getEntityList("Machine", this.em, this.getTenant().getId(),
-                Machine.State.DELETED, false);
-            return new QueryResult<Machine>(machines.size(), machines);
+            // the whole list is returned, its size is the count
+            params.countMode(CountMode.ESTIMATE);
+        } else {
+            params.params(queryParams[0]);
         }
-        QueryHelper.QueryParamsBuilder params = QueryHelper.QueryParamsBuilder.builder("Machine", Machine.class)
-            .tenantId(this.getTenant().getId()).stateToIgnore(Machine.State.DELETED).params(queryParams[0]);
         return QueryHelper.getEntityList(this.em, params);
     }
 
@@ -523,9 +605,11 @@ public class MachineManager implements IMachineManager {
         this.em.persist(job);
         this.em.flush();
 
-        ObjectMessage message = this.jmsContext.createObjectMessage(new MachineCaptureCommand(newMachineImage.getId())
-            .setResourceId(machine.getId()).setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new MachineCaptureCommand(newMachineImage.getId())
+            .setAccount(machine.getCloudProviderAccount()).setResourceId(machine.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
@@ -572,9 +656,11 @@ public class MachineManager implements IMachineManager {
         this.em.persist(job);
         this.em.flush();
 
-        ObjectMessage message = this.jmsContext.createObjectMessage(new MachineActionCommand(action).setForce(force)
-            .setResourceId(machine.getId()).setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new MachineActionCommand(action).setForce(force)
+            .setAccount(machine.getCloudProviderAccount()).setResourceId(machine.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
@@ -614,9 +700,11 @@ public class MachineManager implements IMachineManager {
         this.em.persist(job);
         this.em.flush();
 
-        ObjectMessage message = this.jmsContext.createObjectMessage(new MachineDeleteCommand().setResourceId(machine.getId())
-            .setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new MachineDeleteCommand().setAccount(machine.getCloudProviderAccount())
+            .setResourceId(machine.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
@@ -1368,9 +1456,11 @@ public class MachineManager implements IMachineManager {
         job.setDescription("Volume attachment");
         this.em.flush();
 
-        ObjectMessage message = this.jmsContext.createObjectMessage(new VolumeAttachCommand(mv).setResourceId(machine.getId())
-            .setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new VolumeAttachCommand(mv).setAccount(machine.getCloudProviderAccount())
+            .setResourceId(machine.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
@@ -1402,9 +1492,11 @@ public class MachineManager implements IMachineManager {
 
         this.fireResourceStateChangeEvent(mv);
 
-        ObjectMessage message = this.jmsContext.createObjectMessage(new VolumeDetachCommand(mv).setResourceId(machine.getId())
-            .setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new VolumeDetachCommand(mv).setAccount(machine.getCloudProviderAccount())
+            .setResourceId(machine.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
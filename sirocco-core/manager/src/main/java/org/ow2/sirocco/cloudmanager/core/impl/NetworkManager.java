@@ -46,6 +46,7 @@ import org.ow2.sirocco.cloudmanager.core.api.exception.ResourceNotFoundException
 import org.ow2.sirocco.cloudmanager.core.api.remote.IRemoteNetworkManager;
 import org.ow2.sirocco.cloudmanager.core.impl.command.NetworkCreateCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.NetworkDeleteCommand;
+import org.ow2.sirocco.cloudmanager.core.impl.command.ResourceCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.SecurityGroupCreateCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.SecurityGroupDeleteCommand;
 import org.ow2.sirocco.cloudmanager.core.utils.QueryHelper;
@@ -193,10 +194,11 @@ public class NetworkManager implements INetworkManager {
         this.em.persist(job);
         this.em.flush();
 
-        ObjectMessage message = this.jmsContext
-            .createObjectMessage(new NetworkCreateCommand(networkCreate).setAccount(placement.getAccount())
-                .setLocation(placement.getLocation()).setResourceId(network.getId()).setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new NetworkCreateCommand(networkCreate).setAccount(placement.getAccount())
+            .setLocation(placement.getLocation()).setResourceId(network.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
@@ -350,9 +352,11 @@ public class NetworkManager implements INetworkManager {
         this.em.flush();
 
         if (action.equals("delete")) {
-            ObjectMessage message = this.jmsContext.createObjectMessage(new NetworkDeleteCommand().setResourceId(
-                network.getId()).setJob(job));
-            this.jmsContext.createProducer().send(this.requestQueue, message);
+            ResourceCommand command = new NetworkDeleteCommand().setAccount(network.getCloudProviderAccount())
+                .setResourceId(network.getId()).setJob(job);
+            ObjectMessage message = this.jmsContext.createObjectMessage(command);
+            this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+                .send(this.requestQueue, message);
         } else {
             // TODO
         }
@@ -1691,10 +1695,11 @@ public class NetworkManager implements INetworkManager {
         this.em.persist(job);
         this.em.flush();
 
-        ObjectMessage message = this.jmsContext.createObjectMessage(new SecurityGroupCreateCommand(securityGroupCreate)
-            .setAccount(placement.getAccount()).setLocation(placement.getLocation()).setResourceId(secGroup.getId())
-            .setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new SecurityGroupCreateCommand(securityGroupCreate).setAccount(placement.getAccount())
+            .setLocation(placement.getLocation()).setResourceId(secGroup.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
@@ -1721,9 +1726,11 @@ public class NetworkManager implements INetworkManager {
         this.em.persist(job);
         this.em.flush();
 
-        ObjectMessage message = this.jmsContext.createObjectMessage(new SecurityGroupDeleteCommand().setResourceId(
-            secGroup.getId()).setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new SecurityGroupDeleteCommand().setAccount(secGroup.getCloudProviderAccount())
+            .setResourceId(secGroup.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
@@ -0,0 +1,296 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+
+import org.ow2.sirocco.cloudmanager.connector.api.ConnectorException;
+import org.ow2.sirocco.cloudmanager.connector.api.ICloudProviderConnector;
+import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
+import org.ow2.sirocco.cloudmanager.core.api.IConfigManager;
+import org.ow2.sirocco.cloudmanager.core.impl.throttle.ProviderThrottle;
+import org.ow2.sirocco.cloudmanager.core.impl.throttle.RateLimit;
+import org.ow2.sirocco.cloudmanager.model.cimi.extension.CloudProviderAccount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Governs the requests sent to the provider APIs so that a burst of commands
+ * or polls does not get an account throttled or banned by its provider. Each
+ * cloud provider account has a {@link ProviderThrottle} whose limits are
+ * configured by provider type or by account (see
+ * {@link IConfigManager#RATE_LIMIT_PREFIX}).
+ * <p>
+ * Connectors are wrapped by {@link #throttle(ICloudProviderConnector)}: every
+ * connector operation taking a {@link ProviderTarget} waits for the throttle of
+ * the target account instead of failing, and is retried with an exponential
+ * back-off when the provider rejects it because of its own rate limiting.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class ProviderThrottleManager {
+    private static Logger logger = LoggerFactory.getLogger(ProviderThrottleManager.class.getName());
+
+    private static final RateLimit DEFAULT_RATE_LIMIT = new RateLimit(10, 20, 16);
+
+    private static final int MAX_THROTTLED_RETRIES = 3;
+
+    private static final long INITIAL_BACKOFF_IN_MILLIS = 1000;
+
+    private static final String[] THROTTLING_ERRORS = {"RequestLimitExceeded", "Throttling", "Rate exceeded",
+        "Too Many Requests", "OverLimit", "Over limit"};
+
+    private final ConcurrentMap<Integer, ProviderThrottle> throttles = new ConcurrentHashMap<>();
+
+    private volatile Map<String, RateLimit> rateLimits = Collections.emptyMap();
+
+    @EJB
+    private IConfigManager configManager;
+
+    @PostConstruct
+    private void init() {
+        this.loadRateLimits();
+    }
+
+    @Schedule(minute = "*", hour = "*", persistent = false)
+    public void loadRateLimits() {
+        Map<String, RateLimit> limits = new HashMap<>();
+        try {
+            for (Map.Entry<String, String> param : this.configManager.getConfigParameters().entrySet()) {
+                if (param.getKey().startsWith(IConfigManager.RATE_LIMIT_PREFIX) && param.getValue() != null) {
+                    try {
+                        limits.put(param.getKey().substring(IConfigManager.RATE_LIMIT_PREFIX.length()),
+                            RateLimit.valueOf(param.getValue()));
+                    } catch (IllegalArgumentException e) {
+                        ProviderThrottleManager.logger.warn("Ignoring " + param.getKey() + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            ProviderThrottleManager.logger.error("Cannot load rate limits", e);
+            return;
+        }
+        this.rateLimits = limits;
+        for (Map.Entry<Integer, ProviderThrottle> entry : this.throttles.entrySet()) {
+            RateLimit rateLimit = this.getRateLimit(entry.getValue().getProviderType(), entry.getKey());
+            if (!rateLimit.toString().equals(entry.getValue().getRateLimit().toString())) {
+                entry.getValue().setRateLimit(rateLimit);
+            }
+        }
+    }
+
+    /**
+     * Returns the rate limit of an account, looking first for a limit specific
+     * to the account then for a limit of its provider type
+     */
+    private RateLimit getRateLimit(final String providerType, final Integer accountId) {
+        Map<String, RateLimit> limits = this.rateLimits;
+        RateLimit rateLimit = limits.get(providerType + "." + accountId);
+        if (rateLimit == null) {
+            rateLimit = limits.get(providerType);
+        }
+        return rateLimit != null ? rateLimit : ProviderThrottleManager.DEFAULT_RATE_LIMIT;
+    }
+
+    /**
+     * Returns the throttle of a cloud provider account
+     */
+    public ProviderThrottle getThrottle(final CloudProviderAccount account) {
+        ProviderThrottle throttle = this.throttles.get(account.getId());
+        if (throttle == null) {
+            String providerType = account.getCloudProvider().getCloudProviderType();
+            throttle = new ProviderThrottle(providerType, this.getRateLimit(providerType, account.getId()));
+            ProviderThrottle previous = this.throttles.putIfAbsent(account.getId(), throttle);
+            if (previous != null) {
+                throttle = previous;
+            }
+        }
+        return throttle;
+    }
+
+    /**
+     * Wraps a connector so that its operations are throttled per cloud provider
+     * account. The returned connector implements the same interfaces as the
+     * wrapped one, and so do the services it returns.
+     */
+    public ICloudProviderConnector throttle(final ICloudProviderConnector connector) {
+        return (ICloudProviderConnector) this.wrap(connector);
+    }
+
+    private Object wrap(final Object service) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> clazz = service.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            Collections.addAll(interfaces, clazz.getInterfaces());
+        }
+        return Proxy.newProxyInstance(service.getClass().getClassLoader(), interfaces.toArray(new Class<?>[interfaces
+            .size()]), new ThrottlingHandler(service));
+    }
+
+    /**
+     * Returns true if an error was caused by the provider rejecting a request
+     * because of its own rate limiting
+     */
+    static boolean isThrottlingError(final Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t.getMessage() != null) {
+                for (String throttlingError : ProviderThrottleManager.THROTTLING_ERRORS) {
+                    if (t.getMessage().contains(throttlingError)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static ProviderTarget findProviderTarget(final Method method, final Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        boolean throwsConnectorException = false;
+        for (Class<?> exceptionType : method.getExceptionTypes()) {
+            if (exceptionType.isAssignableFrom(ConnectorException.class)) {
+                throwsConnectorException = true;
+                break;
+            }
+        }
+        if (!throwsConnectorException) {
+            return null;
+        }
+        for (Object arg : args) {
+            if (arg instanceof ProviderTarget && ((ProviderTarget) arg).getAccount() != null) {
+                return (ProviderTarget) arg;
+            }
+        }
+        return null;
+    }
+
+    @Schedule(hour = "*", persistent = false)
+    public void reportStatistics() {
+        for (Map.Entry<Integer, ProviderThrottle> entry : this.throttles.entrySet()) {
+            ProviderThrottle throttle = entry.getValue();
+            ProviderThrottleManager.logger.info("Account " + entry.getKey() + " (" + throttle.getProviderType() + "): "
+                + throttle.getRequestCount() + " requests, " + throttle.getWaitingCount()
+                + " waiting, average wait " + throttle.getAverageWaitInMillis() + " ms, max "
+                + throttle.getMaxWaitInMillis() + " ms, " + throttle.getBackOffCount() + " provider throttlings");
+        }
+    }
+
+    /**
+     * Returns the number of provider requests currently waiting for the
+     * throttle of their account
+     */
+    public int getWaitingRequestCount() {
+        int count = 0;
+        for (ProviderThrottle throttle : this.throttles.values()) {
+            count += throttle.getWaitingCount();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the maximum time spent by a provider request waiting for the
+     * throttle of its account in milliseconds
+     */
+    public long getMaxWaitInMillis() {
+        long max = 0;
+        for (ProviderThrottle throttle : this.throttles.values()) {
+            max = Math.max(max, throttle.getMaxWaitInMillis());
+        }
+        return max;
+    }
+
+    private class ThrottlingHandler implements InvocationHandler {
+        private final Object service;
+
+        ThrottlingHandler(final Object service) {
+            this.service = service;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            ProviderTarget target = ProviderThrottleManager.findProviderTarget(method, args);
+            if (target == null) {
+                Object result = this.call(method, args);
+                if (result == this.service) {
+                    return proxy;
+                }
+                if (result != null && method.getReturnType().isInterface()
+                    && method.getReturnType().getPackage() == ICloudProviderConnector.class.getPackage()) {
+                    return ProviderThrottleManager.this.wrap(result);
+                }
+                return result;
+            }
+            ProviderThrottle throttle = ProviderThrottleManager.this.getThrottle(target.getAccount());
+            for (int attempt = 0;; attempt++) {
+                try {
+                    throttle.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ConnectorException("Interrupted while waiting for the rate limit of account "
+                        + target.getAccount().getId());
+                }
+                try {
+                    return this.call(method, args);
+                } catch (Exception e) {
+                    if (attempt >= ProviderThrottleManager.MAX_THROTTLED_RETRIES
+                        || !ProviderThrottleManager.isThrottlingError(e)) {
+                        throw e;
+                    }
+                    long delay = ProviderThrottleManager.INITIAL_BACKOFF_IN_MILLIS << attempt;
+                    ProviderThrottleManager.logger.warn("Request " + method.getName() + " throttled by provider of account "
+                        + target.getAccount().getId() + ", retrying in " + delay + " ms");
+                    throttle.backOff(delay);
+                } finally {
+                    throttle.release();
+                }
+            }
+        }
+
+        private Object call(final Method method, final Object[] args) throws Throwable {
+            try {
+                return method.invoke(this.service, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+}
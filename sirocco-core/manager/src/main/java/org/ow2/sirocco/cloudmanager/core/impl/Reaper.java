@@ -22,34 +22,199 @@
  */
 package org.ow2.sirocco.cloudmanager.core.impl;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
 import javax.ejb.Schedule;
-import javax.ejb.Stateless;
+import javax.ejb.Singleton;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
-import javax.persistence.PersistenceContextType;
 
-import org.ow2.sirocco.cloudmanager.model.cimi.Job;
+import org.ow2.sirocco.cloudmanager.core.api.IConfigManager;
+import org.ow2.sirocco.cloudmanager.core.api.exception.InvalidRequestException;
+import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
+import org.ow2.sirocco.cloudmanager.model.cimi.Network;
+import org.ow2.sirocco.cloudmanager.model.cimi.Volume;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-@Stateless
+/**
+ * Purges the completed jobs after an hour and the deleted machines, volumes
+ * and networks after a retention period (see
+ * {@link IConfigManager#RESOURCE_RETENTION_DAYS}). Entities are purged in
+ * batches of {@link IConfigManager#REAPER_BATCH_SIZE}, each in its own short
+ * transaction, and are optionally recorded in a compressed archive (see
+ * {@link IConfigManager#ARCHIVE_DIRECTORY}) once their removal has committed.
+ * The counts of each run are logged when it ends.
+ */
+@Singleton
+@Lock(LockType.READ)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
 public class Reaper {
     private static Logger logger = LoggerFactory.getLogger(Reaper.class.getName());
 
-    @PersistenceContext(unitName = "siroccoPersistenceUnit", type = PersistenceContextType.TRANSACTION)
-    private EntityManager em;
+    private static final long JOB_RETENTION_IN_MILLIS = 60 * 60 * 1000;
+
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final int DEFAULT_RESOURCE_RETENTION_DAYS = 30;
+
+    /**
+     * Purged resource types with their deleted state, machines first since
+     * they reference volumes and networks
+     */
+    private static final Map<String, Enum<?>> PURGED_RESOURCE_TYPES = new LinkedHashMap<>();
+
+    static {
+        Reaper.PURGED_RESOURCE_TYPES.put("Machine", Machine.State.DELETED);
+        Reaper.PURGED_RESOURCE_TYPES.put("Volume", Volume.State.DELETED);
+        Reaper.PURGED_RESOURCE_TYPES.put("Network", Network.State.DELETED);
+    }
+
+    @EJB
+    private ReaperStore reaperStore;
+
+    @EJB
+    private IConfigManager configManager;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong purgedJobCount = new AtomicLong();
+
+    private final AtomicLong purgedResourceCount = new AtomicLong();
+
+    private final AtomicLong batchCount = new AtomicLong();
+
+    private final AtomicLong failureCount = new AtomicLong();
 
     @Schedule(hour = "*", persistent = false)
-    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
     public void cleanup() {
+        if (!this.running.compareAndSet(false, true)) {
+            Reaper.logger.warn("Previous cleanup still running");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long jobs = this.purgedJobCount.get(), resources = this.purgedResourceCount.get();
+        long batches = this.batchCount.get(), failures = this.failureCount.get();
         Reaper.logger.info("Cleaning up objects...");
-        Date expiryDate = new Date(new Date().getTime() - 60 * 60 * 1000);
-        this.em.createQuery("DELETE FROM Job j " + "WHERE j.state<>:state AND j.timeOfStatusChange<:time")
-            .setParameter("state", Job.Status.RUNNING).setParameter("time", expiryDate).executeUpdate();
+        ReaperArchive archive = null;
+        try {
+            int batchSize = this.getIntParameter(IConfigManager.REAPER_BATCH_SIZE, Reaper.DEFAULT_BATCH_SIZE);
+            int retentionDays = this.getIntParameter(IConfigManager.RESOURCE_RETENTION_DAYS,
+                Reaper.DEFAULT_RESOURCE_RETENTION_DAYS);
+            String archiveDirectory = this.configManager.getConfigParameter(IConfigManager.ARCHIVE_DIRECTORY);
+            if (archiveDirectory != null) {
+                archive = new ReaperArchive(new File(archiveDirectory));
+            }
+            this.purgeJobs(new Date(start - Reaper.JOB_RETENTION_IN_MILLIS), batchSize, archive);
+            Date resourceExpiryDate = new Date(start - retentionDays * 24L * 60 * 60 * 1000);
+            for (Map.Entry<String, Enum<?>> type : Reaper.PURGED_RESOURCE_TYPES.entrySet()) {
+                this.purgeResources(type.getKey(), type.getValue(), resourceExpiryDate, batchSize, archive);
+            }
+        } catch (Exception e) {
+            Reaper.logger.error("Cleanup aborted", e);
+        } finally {
+            if (archive != null) {
+                try {
+                    archive.close();
+                } catch (IOException e) {
+                    Reaper.logger.error("Cannot close archive", e);
+                }
+            }
+            this.running.set(false);
+        }
+        Reaper.logger.info("Purged " + (this.purgedJobCount.get() - jobs) + " jobs and "
+            + (this.purgedResourceCount.get() - resources) + " resources in " + (this.batchCount.get() - batches)
+            + " batches, " + (this.failureCount.get() - failures) + " failures, "
+            + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private int getIntParameter(final String key, final int defaultValue) throws InvalidRequestException {
+        String value = this.configManager.getConfigParameter(key);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private void purgeJobs(final Date expiryDate, final int batchSize, final ReaperArchive archive) throws IOException {
+        int lastId = Integer.MAX_VALUE;
+        List<Integer> ids;
+        do {
+            ids = this.reaperStore.findExpiredJobs(expiryDate, lastId, batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+            this.purgedJobCount.addAndGet(this.purgeBatch(ids, true, archive));
+        } while (ids.size() == batchSize);
+    }
+
+    private void purgeResources(final String entityType, final Enum<?> deletedState, final Date expiryDate,
+        final int batchSize, final ReaperArchive archive) throws IOException {
+        int lastId = Integer.MAX_VALUE;
+        List<Integer> ids;
+        do {
+            ids = this.reaperStore.findDeletedResources(entityType, deletedState, expiryDate, lastId, batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            lastId = ids.get(ids.size() - 1);
+            this.purgedResourceCount.addAndGet(this.purgeBatch(ids, false, archive));
+        } while (ids.size() == batchSize);
+    }
+
+    /**
+     * Purges a batch of jobs or resources in one transaction. If the batch
+     * fails, its entities are purged one by one so that an entity that cannot
+     * be removed, e.g. because it is still referenced, does not block the
+     * others; it is retried on the next run.
+     */
+    private int purgeBatch(final List<Integer> ids, final boolean jobs, final ReaperArchive archive) throws IOException {
+        this.batchCount.incrementAndGet();
+        try {
+            this.purge(ids, jobs, archive);
+            return ids.size();
+        } catch (EJBException e) {
+            Reaper.logger.debug("Batch purge failed, purging entities one by one", e);
+        }
+        int purged = 0;
+        for (Integer id : ids) {
+            try {
+                this.purge(Collections.singletonList(id), jobs, archive);
+                purged++;
+            } catch (EJBException e) {
+                this.failureCount.incrementAndGet();
+                Reaper.logger.warn("Cannot purge " + (jobs ? "job " : "resource ") + id + ": " + e.getMessage());
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * Purges entities in one transaction then archives them, so that a batch
+     * rolled back and retried one by one is archived once. A failure to write
+     * the archive aborts the run.
+     */
+    private void purge(final List<Integer> ids, final boolean jobs, final ReaperArchive archive) throws IOException {
+        List<String> records = jobs ? this.reaperStore.purgeJobs(ids, archive) : this.reaperStore.purgeResources(ids,
+            archive);
+        if (archive != null) {
+            try {
+                archive.write(records);
+            } catch (IOException e) {
+                Reaper.logger.error("Purged " + (jobs ? "jobs " : "resources ") + ids + " could not be archived");
+                throw e;
+            }
+        }
     }
 
 }
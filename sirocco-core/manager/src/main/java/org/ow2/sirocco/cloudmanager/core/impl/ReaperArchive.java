@@ -0,0 +1,140 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.ow2.sirocco.cloudmanager.model.cimi.CloudResource;
+import org.ow2.sirocco.cloudmanager.model.cimi.Job;
+import org.ow2.sirocco.cloudmanager.model.cimi.extension.Tenant;
+
+/**
+ * Gzipped CSV file recording the jobs and resources purged by a run of the
+ * {@link Reaper}. Records are formatted while the entities are purged and only
+ * written once the purge has committed, so that the archive never lists an
+ * entity that is still in the database. The file is only created when the
+ * first records are written.
+ */
+public class ReaperArchive implements Closeable {
+    private final File directory;
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+    private Writer writer;
+
+    ReaperArchive(final File directory) throws IOException {
+        // fail before anything is purged rather than after the first commit
+        if (!directory.isDirectory() && !directory.mkdirs() || !directory.canWrite()) {
+            throw new IOException("Cannot write to archive directory " + directory);
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the record of a job about to be purged
+     */
+    synchronized String record(final Job job) {
+        return this.record("Job", job.getId(), job.getUuid(), job.getName(), this.getTenantUuid(job.getTenant()),
+            job.getAction(), job.getState(), job.getTargetResource() != null ? job.getTargetResource().getUuid() : null,
+            job.getCreated(), job.getTimeOfStatusChange());
+    }
+
+    /**
+     * Returns the record of a resource about to be purged
+     */
+    synchronized String record(final CloudResource resource) {
+        return this.record(resource.getClass().getSimpleName(), resource.getId(), resource.getUuid(), resource.getName(),
+            this.getTenantUuid(resource.getTenant()), resource.getProviderAssignedId(), null, null, resource.getCreated(),
+            resource.getDeleted());
+    }
+
+    private String getTenantUuid(final Tenant tenant) {
+        return tenant != null ? tenant.getUuid() : null;
+    }
+
+    /**
+     * Writes the records of purged jobs or resources
+     */
+    synchronized void write(final List<String> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (this.writer == null) {
+            this.open();
+        }
+        for (String record : records) {
+            this.writer.write(record);
+        }
+    }
+
+    private String record(final Object... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(this.format(fields[i]));
+        }
+        sb.append('\n');
+        return sb.toString();
+    }
+
+    private String format(final Object field) {
+        if (field == null) {
+            return "";
+        }
+        String value = field instanceof Date ? this.dateFormat.format((Date) field) : field.toString();
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            value = '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    private void open() throws IOException {
+        File file = new File(this.directory, "sirocco-archive-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date())
+            + ".csv.gz");
+        this.writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file, true)),
+            StandardCharsets.UTF_8));
+        this.writer.write("type,id,uuid,name,tenant,providerAssignedId/action,state,target,created,deleted/statusChange\n");
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.writer != null) {
+            this.writer.close();
+            this.writer = null;
+        }
+    }
+
+}
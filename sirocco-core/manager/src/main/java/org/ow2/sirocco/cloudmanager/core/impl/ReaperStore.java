@@ -0,0 +1,128 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.ejb.Local;
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceContextType;
+
+import org.ow2.sirocco.cloudmanager.model.cimi.CloudCollectionItem;
+import org.ow2.sirocco.cloudmanager.model.cimi.CloudResource;
+import org.ow2.sirocco.cloudmanager.model.cimi.Job;
+
+/**
+ * Selects and purges the jobs and deleted resources on behalf of the
+ * {@link Reaper}. Each purge runs in its own transaction so that locks are
+ * only held for the duration of one batch.
+ */
+@Stateless
+@Local
+public class ReaperStore {
+    @PersistenceContext(unitName = "siroccoPersistenceUnit", type = PersistenceContextType.TRANSACTION)
+    private EntityManager em;
+
+    /**
+     * Returns, by decreasing id, the ids lower than lastId of the completed
+     * jobs whose status has not changed since the expiry date
+     */
+    public List<Integer> findExpiredJobs(final Date expiryDate, final int lastId, final int maxResults) {
+        return this.em
+            .createQuery(
+                "SELECT j.id FROM Job j WHERE j.state<>:state AND j.timeOfStatusChange<:time AND j.id<:lastId"
+                    + " ORDER BY j.id DESC", Integer.class).setParameter("state", Job.Status.RUNNING)
+            .setParameter("time", expiryDate).setParameter("lastId", lastId).setMaxResults(maxResults).getResultList();
+    }
+
+    /**
+     * Returns, by decreasing id, the ids lower than lastId of the resources of
+     * the given type deleted before the expiry date
+     */
+    public List<Integer> findDeletedResources(final String entityType, final Enum<?> deletedState, final Date expiryDate,
+        final int lastId, final int maxResults) {
+        return this.em
+            .createQuery(
+                "SELECT r.id FROM " + entityType + " r WHERE r.state=:state"
+                    + " AND COALESCE(r.deleted, r.updated, r.created)<:time AND r.id<:lastId ORDER BY r.id DESC",
+                Integer.class).setParameter("state", deletedState).setParameter("time", expiryDate)
+            .setParameter("lastId", lastId).setMaxResults(maxResults).getResultList();
+    }
+
+    /**
+     * Removes the given jobs
+     * 
+     * @return the archive records of the removed jobs, to be written once the
+     *         transaction has committed, or an empty list if archive is null
+     */
+    public List<String> purgeJobs(final List<Integer> jobIds, final ReaperArchive archive) {
+        // nested jobs not purged with their parent are kept as top-level jobs
+        this.em.createQuery("UPDATE Job j SET j.parentJob=NULL WHERE j.parentJob.id IN :ids").setParameter("ids", jobIds)
+            .executeUpdate();
+        List<Job> jobs = this.em.createQuery("SELECT j FROM Job j WHERE j.id IN :ids", Job.class)
+            .setParameter("ids", jobIds).getResultList();
+        List<String> records = new ArrayList<String>();
+        for (Job job : jobs) {
+            if (archive != null) {
+                records.add(archive.record(job));
+            }
+            this.em.remove(job);
+        }
+        return records;
+    }
+
+    /**
+     * Removes the given resources along with their collection items and event
+     * log
+     * 
+     * @return the archive records of the removed resources, to be written once
+     *         the transaction has committed, or an empty list if archive is null
+     */
+    public List<String> purgeResources(final List<Integer> resourceIds, final ReaperArchive archive) {
+        List<CloudCollectionItem> items = this.em
+            .createQuery("SELECT c FROM CloudCollectionItem c WHERE c.resource.id IN :ids", CloudCollectionItem.class)
+            .setParameter("ids", resourceIds).getResultList();
+        for (CloudCollectionItem item : items) {
+            this.em.remove(item);
+        }
+        List<CloudResource> resources = this.em
+            .createQuery("SELECT r FROM CloudResource r WHERE r.id IN :ids", CloudResource.class)
+            .setParameter("ids", resourceIds).getResultList();
+        List<String> records = new ArrayList<String>();
+        for (CloudResource resource : resources) {
+            if (archive != null) {
+                records.add(archive.record(resource));
+            }
+            if (resource.getEventLog() != null) {
+                this.em.remove(resource.getEventLog());
+            }
+            this.em.remove(resource);
+        }
+        return records;
+    }
+
+}
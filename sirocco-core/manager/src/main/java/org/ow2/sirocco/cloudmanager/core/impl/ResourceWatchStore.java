@@ -0,0 +1,248 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.ejb.Local;
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceContextType;
+
+import org.ow2.sirocco.cloudmanager.core.impl.watch.MachineImageWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.MachineWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.NetworkWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.ResourceWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.SystemWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.VolumeAttachmentWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.VolumeWatch;
+import org.ow2.sirocco.cloudmanager.model.cimi.Job;
+import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineImage;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineVolume;
+import org.ow2.sirocco.cloudmanager.model.cimi.Network;
+import org.ow2.sirocco.cloudmanager.model.cimi.Volume;
+import org.ow2.sirocco.cloudmanager.model.cimi.system.System;
+import org.ow2.sirocco.cloudmanager.model.utils.PendingResourceWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists pending resource watches and manages the leases through which
+ * cluster nodes share the polling load. A node claims a watch by updating its
+ * lease only if it has expired, so that a watch is never polled by two nodes
+ * as long as leases are renewed in time.
+ */
+@Stateless
+@Local
+public class ResourceWatchStore {
+    private static Logger logger = LoggerFactory.getLogger(ResourceWatchStore.class.getName());
+
+    @PersistenceContext(unitName = "siroccoPersistenceUnit", type = PersistenceContextType.TRANSACTION)
+    private EntityManager em;
+
+    /**
+     * Persists a new watch leased to the given node and sets its id
+     */
+    public void save(final ResourceWatch watch, final String owner, final long leaseExpiration) {
+        PendingResourceWatch record = new PendingResourceWatch();
+        record.setWatchType(watch.getWatchType());
+        record.setJobId(watch.getJob().getId());
+        record.setDeadline(new Date(watch.getDeadline()));
+        record.setOwner(owner);
+        record.setLeaseExpiration(new Date(leaseExpiration));
+        switch (watch.getWatchType()) {
+        case MachineWatch.MACHINE_WATCH:
+            MachineWatch machineWatch = (MachineWatch) watch;
+            record.setResourceId(machineWatch.getMachine().getId());
+            record.setExpectedStates(ResourceWatchStore.toString(machineWatch.getExpectedStates()));
+            break;
+        case MachineImageWatch.MACHINE_IMAGE_WATCH:
+            MachineImageWatch machineImageWatch = (MachineImageWatch) watch;
+            record.setResourceId(machineImageWatch.getMachineImage().getId());
+            record.setExpectedStates(ResourceWatchStore.toString(machineImageWatch.getExpectedStates()));
+            break;
+        case NetworkWatch.NETWORK_WATCH:
+            NetworkWatch networkWatch = (NetworkWatch) watch;
+            record.setResourceId(networkWatch.getNetwork().getId());
+            record.setExpectedStates(ResourceWatchStore.toString(networkWatch.getExpectedStates()));
+            break;
+        case VolumeWatch.VOLUME_WATCH:
+            VolumeWatch volumeWatch = (VolumeWatch) watch;
+            record.setResourceId(volumeWatch.getVolume().getId());
+            record.setExpectedStates(ResourceWatchStore.toString(volumeWatch.getExpectedStates()));
+            break;
+        case VolumeAttachmentWatch.VOLUME_ATTACHMENT_WATCH:
+            VolumeAttachmentWatch volumeAttachmentWatch = (VolumeAttachmentWatch) watch;
+            record.setResourceId(volumeAttachmentWatch.getMachine().getId());
+            record.setSubResourceId(volumeAttachmentWatch.getVolumeAttachment().getId());
+            record.setExpectedStates(ResourceWatchStore.toString(volumeAttachmentWatch.getExpectedStates()));
+            break;
+        case SystemWatch.SYSTEM_WATCH:
+            SystemWatch systemWatch = (SystemWatch) watch;
+            record.setResourceId(systemWatch.getSystem().getId());
+            record.setExpectedStates(ResourceWatchStore.toString(systemWatch.getExpectedStates()));
+            break;
+        }
+        this.em.persist(record);
+        watch.setId(record.getId());
+    }
+
+    /**
+     * Deletes the persistent state of completed watches
+     */
+    public void remove(final Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        this.em.createNamedQuery("PendingResourceWatch.deleteByIds").setParameter("ids", ids).executeUpdate();
+    }
+
+    /**
+     * Extends the leases held by a node
+     * 
+     * @return the ids of the watches still leased to the node
+     */
+    public Set<Integer> renewLeases(final String owner, final long leaseExpiration) {
+        this.em.createNamedQuery("PendingResourceWatch.renewLeases").setParameter("owner", owner)
+            .setParameter("leaseExpiration", new Date(leaseExpiration)).executeUpdate();
+        return new HashSet<Integer>(this.em.createNamedQuery("PendingResourceWatch.findIdsByOwner", Integer.class)
+            .setParameter("owner", owner).getResultList());
+    }
+
+    /**
+     * Gives up the leases held by a node so that other nodes can take over its
+     * watches immediately
+     */
+    public void releaseLeases(final String owner) {
+        this.em.createNamedQuery("PendingResourceWatch.releaseLeases").setParameter("owner", owner)
+            .setParameter("now", new Date()).executeUpdate();
+    }
+
+    /**
+     * Claims watches whose lease has expired, either because their node is gone
+     * or because it has been stopped
+     * 
+     * @return the claimed watches, without poll policy
+     */
+    public List<ResourceWatch> claimExpiredWatches(final String owner, final long leaseExpiration, final int maxWatches) {
+        Date now = new Date();
+        List<PendingResourceWatch> records = this.em
+            .createNamedQuery("PendingResourceWatch.findExpiredLeases", PendingResourceWatch.class).setParameter("now", now)
+            .setMaxResults(maxWatches).getResultList();
+        List<ResourceWatch> watches = new ArrayList<ResourceWatch>();
+        for (PendingResourceWatch record : records) {
+            int claimed = this.em.createNamedQuery("PendingResourceWatch.claim").setParameter("owner", owner)
+                .setParameter("leaseExpiration", new Date(leaseExpiration)).setParameter("id", record.getId())
+                .setParameter("now", now).executeUpdate();
+            if (claimed == 0) {
+                // claimed by another node in the meantime
+                continue;
+            }
+            ResourceWatch watch = this.toResourceWatch(record);
+            if (watch == null) {
+                ResourceWatchStore.logger.info("Discarding obsolete " + record.getWatchType() + " watch for job "
+                    + record.getJobId());
+                this.em.remove(record);
+                continue;
+            }
+            watch.setId(record.getId());
+            watch.setDeadline(record.getDeadline().getTime());
+            watches.add(watch);
+        }
+        return watches;
+    }
+
+    private ResourceWatch toResourceWatch(final PendingResourceWatch record) {
+        Job job = this.em.find(Job.class, record.getJobId());
+        if (job == null || job.getState() != Job.Status.RUNNING) {
+            return null;
+        }
+        String expectedStates = record.getExpectedStates();
+        switch (record.getWatchType()) {
+        case MachineWatch.MACHINE_WATCH: {
+            Machine machine = this.em.find(Machine.class, record.getResourceId());
+            return machine == null ? null : new MachineWatch(machine, ResourceWatchStore.toStates(Machine.State.class,
+                expectedStates)).setJob(job);
+        }
+        case MachineImageWatch.MACHINE_IMAGE_WATCH: {
+            MachineImage machineImage = this.em.find(MachineImage.class, record.getResourceId());
+            return machineImage == null ? null : new MachineImageWatch(machineImage, ResourceWatchStore.toStates(
+                MachineImage.State.class, expectedStates)).setJob(job);
+        }
+        case NetworkWatch.NETWORK_WATCH: {
+            Network network = this.em.find(Network.class, record.getResourceId());
+            return network == null ? null : new NetworkWatch(network, ResourceWatchStore.toStates(Network.State.class,
+                expectedStates)).setJob(job);
+        }
+        case VolumeWatch.VOLUME_WATCH: {
+            Volume volume = this.em.find(Volume.class, record.getResourceId());
+            return volume == null ? null : new VolumeWatch(volume, ResourceWatchStore.toStates(Volume.State.class,
+                expectedStates)).setJob(job);
+        }
+        case VolumeAttachmentWatch.VOLUME_ATTACHMENT_WATCH: {
+            Machine machine = this.em.find(Machine.class, record.getResourceId());
+            MachineVolume volumeAttachment = this.em.find(MachineVolume.class, record.getSubResourceId());
+            return machine == null || volumeAttachment == null ? null : new VolumeAttachmentWatch(machine,
+                volumeAttachment, ResourceWatchStore.toStates(MachineVolume.State.class, expectedStates)).setJob(job);
+        }
+        case SystemWatch.SYSTEM_WATCH: {
+            System system = this.em.find(System.class, record.getResourceId());
+            return system == null ? null : new SystemWatch(system, ResourceWatchStore.toStates(System.State.class,
+                expectedStates)).setJob(job);
+        }
+        }
+        return null;
+    }
+
+    private static String toString(final Enum<?>[] states) {
+        StringBuilder sb = new StringBuilder();
+        for (Enum<?> state : states) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(state.name());
+        }
+        return sb.toString();
+    }
+
+    private static <E extends Enum<E>> E[] toStates(final Class<E> stateClass, final String names) {
+        List<E> states = new ArrayList<E>();
+        if (names != null && !names.isEmpty()) {
+            for (String name : names.split(",")) {
+                states.add(Enum.valueOf(stateClass, name));
+            }
+        }
+        @SuppressWarnings("unchecked")
+        E[] result = (E[]) Array.newInstance(stateClass, states.size());
+        return states.toArray(result);
+    }
+
+}
@@ -22,15 +22,18 @@
  */
 package org.ow2.sirocco.cloudmanager.core.impl;
 
-import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import javax.annotation.Resource;
-import javax.ejb.AsyncResult;
-import javax.ejb.Asynchronous;
 import javax.ejb.EJB;
 import javax.ejb.Local;
-import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
 
 import org.ow2.sirocco.cloudmanager.connector.api.ConnectorException;
 import org.ow2.sirocco.cloudmanager.connector.api.ICloudProviderConnector;
@@ -44,6 +47,13 @@ import org.ow2.sirocco.cloudmanager.core.api.INetworkManager;
 import org.ow2.sirocco.cloudmanager.core.api.ISystemManager;
 import org.ow2.sirocco.cloudmanager.core.api.IVolumeManager;
 import org.ow2.sirocco.cloudmanager.core.api.exception.CloudProviderException;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.MachineImageWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.MachineWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.NetworkWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.ResourceWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.SystemWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.VolumeAttachmentWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.VolumeWatch;
 import org.ow2.sirocco.cloudmanager.model.cimi.Job;
 import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
 import org.ow2.sirocco.cloudmanager.model.cimi.MachineImage;
@@ -56,18 +66,17 @@ import org.ow2.sirocco.cloudmanager.model.cimi.system.System;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Polls the provider once for the state of watched resources. Scheduling of the
+ * polls is done by {@link ResourceWatcherManager} which hands over watches
+ * grouped by type and provider target: each poll method returns true if the
+ * watch is complete and false if the resource must be polled again.
+ */
 @Stateless
 @Local
 public class ResourceWatcher {
     private static Logger logger = LoggerFactory.getLogger(ResourceWatcher.class.getName());
 
-    private static final int SLEEP_BETWEEN_POLL_IN_SECONDS = 10;
-
-    private static final int MAX_WAIT_TIME_IN_SECONDS = 10 * 60;
-
-    @Resource
-    SessionContext context;
-
     @EJB
     IJobManager jobManager;
 
@@ -96,248 +105,325 @@ public class ResourceWatcher {
         if (connector == null) {
             ResourceWatcher.logger.error("Cannot find connector for cloud provider type "
                 + cloudProviderAccount.getCloudProvider().getCloudProviderType());
-            return null;
+            throw new CloudProviderException("Cannot find connector for cloud provider type "
+                + cloudProviderAccount.getCloudProvider().getCloudProviderType());
         }
         return connector;
     }
 
-    @Asynchronous
-    public Future<Void> watchMachine(final Machine machine, final Job job, final Machine.State... expectedStates)
+    /**
+     * Polls a group of watches of the same type whose resources are hosted by
+     * the same provider target. Machines, volumes and networks are polled with
+     * a single bulk state request; full resources are only fetched for the
+     * watches that reached a final state.
+     * 
+     * @return the watches that must be polled again
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public List<ResourceWatch> poll(final String watchType, final ProviderTarget target, final List<ResourceWatch> watches)
         throws CloudProviderException {
-        ICloudProviderConnector connector = this.getCloudProviderConnector(machine.getCloudProviderAccount());
-        ProviderTarget target = new ProviderTarget().account(machine.getCloudProviderAccount()).location(machine.getLocation());
-
-        int tries = ResourceWatcher.MAX_WAIT_TIME_IN_SECONDS / ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS;
-        mainloop: while (tries-- > 0) {
+        switch (watchType) {
+        case MachineWatch.MACHINE_WATCH:
+            return this.pollMachines(target, watches);
+        case NetworkWatch.NETWORK_WATCH:
+            return this.pollNetworks(target, watches);
+        case VolumeWatch.VOLUME_WATCH:
+            return this.pollVolumes(target, watches);
+        }
+        List<ResourceWatch> pendingWatches = new ArrayList<ResourceWatch>();
+        for (ResourceWatch watch : watches) {
             try {
-                Machine updatedMachine = connector.getComputeService().getMachine(machine.getProviderAssignedId(), target);
-
-                if (updatedMachine.getState() == Machine.State.ERROR) {
-                    this.machineManager.syncMachine(machine.getId(), updatedMachine);
-                    this.jobManager.updateJobStatus(job.getId(), Job.Status.FAILED);
-                    break;
-                }
-                for (Machine.State expectedFinalState : expectedStates) {
-                    if (updatedMachine.getState() == expectedFinalState) {
-                        this.machineManager.syncMachine(machine.getId(), updatedMachine);
-                        this.jobManager.updateJobStatus(job.getId(), Job.Status.SUCCESS);
-                        break mainloop;
-                    }
+                if (!this.poll(watch)) {
+                    pendingWatches.add(watch);
                 }
-            } catch (ResourceNotFoundException e) {
-                this.machineManager.syncMachine(machine.getId(), null);
-                this.jobManager.updateJobStatus(job.getId(), Job.Status.SUCCESS);
-                break;
-            } catch (ConnectorException e) {
-                ResourceWatcher.logger.error("Failed to poll machine state: ", e);
+            } catch (Exception e) {
+                ResourceWatcher.logger.error("Failed to poll resource state: ", e);
             }
+        }
+        return pendingWatches;
+    }
+
+    private boolean poll(final ResourceWatch watch) throws CloudProviderException {
+        switch (watch.getWatchType()) {
+        case MachineImageWatch.MACHINE_IMAGE_WATCH:
+            return this.pollMachineImage((MachineImageWatch) watch);
+        case VolumeAttachmentWatch.VOLUME_ATTACHMENT_WATCH:
+            return this.pollVolumeAttachment((VolumeAttachmentWatch) watch);
+        case SystemWatch.SYSTEM_WATCH:
+            return this.pollSystem((SystemWatch) watch);
+        }
+        ResourceWatcher.logger.error("Unknown watch type " + watch.getWatchType());
+        return true;
+    }
+
+    private List<ResourceWatch> pollMachines(final ProviderTarget target, final List<ResourceWatch> watches)
+        throws CloudProviderException {
+        ICloudProviderConnector connector = this.getCloudProviderConnector(target.getAccount());
+        Set<String> machineIds = new HashSet<String>();
+        for (ResourceWatch watch : watches) {
+            machineIds.add(((MachineWatch) watch).getMachine().getProviderAssignedId());
+        }
+        Map<String, Machine.State> states;
+        try {
+            states = connector.getComputeService().getMachineStates(machineIds, target);
+        } catch (ConnectorException e) {
+            ResourceWatcher.logger.error("Failed to poll machine states: ", e);
+            return watches;
+        }
+        List<ResourceWatch> pendingWatches = new ArrayList<ResourceWatch>();
+        for (ResourceWatch watch : watches) {
             try {
-                Thread.sleep(1000 * ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS);
-            } catch (InterruptedException e) {
-                break;
-            }
-            if (this.context.wasCancelCalled()) {
-                ResourceWatcher.logger.info("Machine watcher cancelled for machine " + machine.getId());
-                break;
+                if (!this.pollMachine(connector, (MachineWatch) watch, states)) {
+                    pendingWatches.add(watch);
+                }
+            } catch (Exception e) {
+                ResourceWatcher.logger.error("Failed to sync machine state: ", e);
             }
         }
-        return new AsyncResult<Void>(null);
+        return pendingWatches;
     }
 
-    @Asynchronous
-    public Future<Void> watchMachineImage(final MachineImage machineImage, final Job job,
-        final MachineImage.State... expectedStates) throws CloudProviderException {
-        ICloudProviderConnector connector = this.getCloudProviderConnector(machineImage.getProviderMappings().get(0)
-            .getProviderAccount());
-        ProviderTarget target = new ProviderTarget().account(machineImage.getProviderMappings().get(0).getProviderAccount())
-            .location(machineImage.getProviderMappings().get(0).getProviderLocation());
+    private boolean pollMachine(final ICloudProviderConnector connector, final MachineWatch watch,
+        final Map<String, Machine.State> states) throws CloudProviderException {
+        Machine machine = watch.getMachine();
+        Job job = watch.getJob();
+        Machine.State state = states.get(machine.getProviderAssignedId());
 
-        int tries = ResourceWatcher.MAX_WAIT_TIME_IN_SECONDS / ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS;
-        mainloop: while (tries-- > 0) {
-            try {
-                MachineImage updatedMachineImage = connector.getImageService().getMachineImage(
-                    machineImage.getProviderMappings().get(0).getProviderAssignedId(), target);
+        if (state == null) {
+            this.machineManager.syncMachine(machine.getId(), null);
+            this.jobManager.updateJobStatus(job.getId(), Job.Status.SUCCESS);
+            return true;
+        }
+        try {
+            if (state != Machine.State.ERROR && !Arrays.asList(watch.getExpectedStates()).contains(state)) {
+                return false;
+            }
+            Machine updatedMachine = connector.getComputeService().getMachine(machine.getProviderAssignedId(),
+                watch.getTarget());
 
-                for (MachineImage.State expectedFinalState : expectedStates) {
-                    if (updatedMachineImage.getState() == expectedFinalState) {
-                        this.machineImageManager.syncMachineImage(machineImage.getId(), updatedMachineImage, job.getId());
-                        break mainloop;
-                    }
-                }
-            } catch (ResourceNotFoundException e) {
-                this.machineImageManager.syncMachineImage(machineImage.getId(), null, job.getId());
-                break;
-            } catch (ConnectorException e) {
-                ResourceWatcher.logger.error("Failed to poll machine image state: ", e);
+            if (updatedMachine.getState() == Machine.State.ERROR) {
+                this.machineManager.syncMachine(machine.getId(), updatedMachine);
+                this.jobManager.updateJobStatus(job.getId(), Job.Status.FAILED);
+                return true;
             }
-            try {
-                Thread.sleep(1000 * ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS);
-            } catch (InterruptedException e) {
-                break;
+            for (Machine.State expectedFinalState : watch.getExpectedStates()) {
+                if (updatedMachine.getState() == expectedFinalState) {
+                    this.machineManager.syncMachine(machine.getId(), updatedMachine);
+                    this.jobManager.updateJobStatus(job.getId(), Job.Status.SUCCESS);
+                    return true;
+                }
             }
-            if (this.context.wasCancelCalled()) {
-                ResourceWatcher.logger.info("MachineImage watcher cancelled for image " + machineImage.getId());
-                break;
+        } catch (ResourceNotFoundException e) {
+            this.machineManager.syncMachine(machine.getId(), null);
+            this.jobManager.updateJobStatus(job.getId(), Job.Status.SUCCESS);
+            return true;
+        } catch (ConnectorException e) {
+            ResourceWatcher.logger.error("Failed to poll machine state: ", e);
+        }
+        return false;
+    }
+
+    private boolean pollMachineImage(final MachineImageWatch watch) throws CloudProviderException {
+        MachineImage machineImage = watch.getMachineImage();
+        Job job = watch.getJob();
+        ProviderTarget target = watch.getTarget();
+        ICloudProviderConnector connector = this.getCloudProviderConnector(target.getAccount());
+
+        try {
+            MachineImage updatedMachineImage = connector.getImageService().getMachineImage(
+                machineImage.getProviderMappings().get(0).getProviderAssignedId(), target);
+
+            for (MachineImage.State expectedFinalState : watch.getExpectedStates()) {
+                if (updatedMachineImage.getState() == expectedFinalState) {
+                    this.machineImageManager.syncMachineImage(machineImage.getId(), updatedMachineImage, job.getId());
+                    return true;
+                }
             }
+        } catch (ResourceNotFoundException e) {
+            this.machineImageManager.syncMachineImage(machineImage.getId(), null, job.getId());
+            return true;
+        } catch (ConnectorException e) {
+            ResourceWatcher.logger.error("Failed to poll machine image state: ", e);
         }
-        return new AsyncResult<Void>(null);
+        return false;
     }
 
-    @Asynchronous
-    public Future<Void> watchNetwork(final Network network, final Job job, final Network.State... expectedStates)
+    private List<ResourceWatch> pollNetworks(final ProviderTarget target, final List<ResourceWatch> watches)
         throws CloudProviderException {
-        ICloudProviderConnector connector = this.getCloudProviderConnector(network.getCloudProviderAccount());
-        ProviderTarget target = new ProviderTarget().account(network.getCloudProviderAccount()).location(network.getLocation());
-
-        int tries = ResourceWatcher.MAX_WAIT_TIME_IN_SECONDS / ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS;
-        mainloop: while (tries-- > 0) {
+        ICloudProviderConnector connector = this.getCloudProviderConnector(target.getAccount());
+        Set<String> networkIds = new HashSet<String>();
+        for (ResourceWatch watch : watches) {
+            networkIds.add(((NetworkWatch) watch).getNetwork().getProviderAssignedId());
+        }
+        Map<String, Network.State> states;
+        try {
+            states = connector.getNetworkService().getNetworkStates(networkIds, target);
+        } catch (ConnectorException e) {
+            ResourceWatcher.logger.error("Failed to poll network states: ", e);
+            return watches;
+        }
+        List<ResourceWatch> pendingWatches = new ArrayList<ResourceWatch>();
+        for (ResourceWatch watch : watches) {
             try {
-                Network updatedNetwork = connector.getNetworkService().getNetwork(network.getProviderAssignedId(), target);
-                for (Network.State expectedFinalState : expectedStates) {
-                    if (updatedNetwork.getState() == expectedFinalState) {
-                        this.networkManager.syncNetwork(network.getId(), updatedNetwork, job.getId());
-                        break mainloop;
-                    }
+                if (!this.pollNetwork(connector, (NetworkWatch) watch, states)) {
+                    pendingWatches.add(watch);
                 }
-            } catch (ResourceNotFoundException e) {
-                this.networkManager.syncNetwork(network.getId(), null, job.getId());
-                break;
-            } catch (ConnectorException e) {
-                ResourceWatcher.logger.error("Failed to poll network state: ", e);
-                break;
+            } catch (Exception e) {
+                ResourceWatcher.logger.error("Failed to sync network state: ", e);
             }
-            try {
-                Thread.sleep(1000 * ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS);
-            } catch (InterruptedException e) {
-                break;
+        }
+        return pendingWatches;
+    }
+
+    private boolean pollNetwork(final ICloudProviderConnector connector, final NetworkWatch watch,
+        final Map<String, Network.State> states) throws CloudProviderException {
+        Network network = watch.getNetwork();
+        Job job = watch.getJob();
+        Network.State state = states.get(network.getProviderAssignedId());
+
+        if (state == null) {
+            this.networkManager.syncNetwork(network.getId(), null, job.getId());
+            return true;
+        }
+        try {
+            if (!Arrays.asList(watch.getExpectedStates()).contains(state)) {
+                return false;
             }
-            if (this.context.wasCancelCalled()) {
-                break;
+            Network updatedNetwork = connector.getNetworkService().getNetwork(network.getProviderAssignedId(),
+                watch.getTarget());
+            for (Network.State expectedFinalState : watch.getExpectedStates()) {
+                if (updatedNetwork.getState() == expectedFinalState) {
+                    this.networkManager.syncNetwork(network.getId(), updatedNetwork, job.getId());
+                    return true;
+                }
             }
+        } catch (ResourceNotFoundException e) {
+            this.networkManager.syncNetwork(network.getId(), null, job.getId());
+            return true;
+        } catch (ConnectorException e) {
+            ResourceWatcher.logger.error("Failed to poll network state: ", e);
+            return true;
         }
-        return new AsyncResult<Void>(null);
+        return false;
     }
 
-    @Asynchronous
-    public Future<Void> watchVolume(final Volume volume, final Job job, final Volume.State... expectedStates)
+    private List<ResourceWatch> pollVolumes(final ProviderTarget target, final List<ResourceWatch> watches)
         throws CloudProviderException {
-        ICloudProviderConnector connector = this.getCloudProviderConnector(volume.getCloudProviderAccount());
-        ProviderTarget target = new ProviderTarget().account(volume.getCloudProviderAccount()).location(volume.getLocation());
-
-        int tries = ResourceWatcher.MAX_WAIT_TIME_IN_SECONDS / ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS;
-        mainloop: while (tries-- > 0) {
+        ICloudProviderConnector connector = this.getCloudProviderConnector(target.getAccount());
+        Set<String> volumeIds = new HashSet<String>();
+        for (ResourceWatch watch : watches) {
+            volumeIds.add(((VolumeWatch) watch).getVolume().getProviderAssignedId());
+        }
+        Map<String, Volume.State> states;
+        try {
+            states = connector.getVolumeService().getVolumeStates(volumeIds, target);
+        } catch (ConnectorException e) {
+            ResourceWatcher.logger.error("Failed to poll volume states: ", e);
+            return watches;
+        }
+        List<ResourceWatch> pendingWatches = new ArrayList<ResourceWatch>();
+        for (ResourceWatch watch : watches) {
             try {
-                Volume updatedVolume = connector.getVolumeService().getVolume(volume.getProviderAssignedId(), target);
-                for (Volume.State expectedFinalState : expectedStates) {
-                    if (updatedVolume.getState() == expectedFinalState) {
-                        this.volumeManager.syncVolume(volume.getId(), updatedVolume, job.getId());
-                        break mainloop;
-                    }
+                if (!this.pollVolume(connector, (VolumeWatch) watch, states)) {
+                    pendingWatches.add(watch);
                 }
-
-            } catch (ResourceNotFoundException e) {
-                this.volumeManager.syncVolume(volume.getId(), null, job.getId());
-                break;
-            } catch (ConnectorException e) {
-                ResourceWatcher.logger.error("Failed to poll volume state: ", e);
-                break;
+            } catch (Exception e) {
+                ResourceWatcher.logger.error("Failed to sync volume state: ", e);
             }
-            try {
-                Thread.sleep(1000 * ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS);
-            } catch (InterruptedException e) {
-                break;
+        }
+        return pendingWatches;
+    }
+
+    private boolean pollVolume(final ICloudProviderConnector connector, final VolumeWatch watch,
+        final Map<String, Volume.State> states) throws CloudProviderException {
+        Volume volume = watch.getVolume();
+        Job job = watch.getJob();
+        Volume.State state = states.get(volume.getProviderAssignedId());
+
+        if (state == null) {
+            this.volumeManager.syncVolume(volume.getId(), null, job.getId());
+            return true;
+        }
+        try {
+            if (!Arrays.asList(watch.getExpectedStates()).contains(state)) {
+                return false;
             }
-            if (this.context.wasCancelCalled()) {
-                break;
+            Volume updatedVolume = connector.getVolumeService().getVolume(volume.getProviderAssignedId(), watch.getTarget());
+            for (Volume.State expectedFinalState : watch.getExpectedStates()) {
+                if (updatedVolume.getState() == expectedFinalState) {
+                    this.volumeManager.syncVolume(volume.getId(), updatedVolume, job.getId());
+                    return true;
+                }
             }
+        } catch (ResourceNotFoundException e) {
+            this.volumeManager.syncVolume(volume.getId(), null, job.getId());
+            return true;
+        } catch (ConnectorException e) {
+            ResourceWatcher.logger.error("Failed to poll volume state: ", e);
+            return true;
         }
-        return new AsyncResult<Void>(null);
+        return false;
     }
 
-    @Asynchronous
-    public Future<Void> watchVolumeAttachment(final Machine machine, final MachineVolume volumeAttachment, final Job job,
-        final MachineVolume.State... expectedStates) throws CloudProviderException {
-        ICloudProviderConnector connector = this.getCloudProviderConnector(machine.getCloudProviderAccount());
-        ProviderTarget target = new ProviderTarget().account(machine.getCloudProviderAccount()).location(machine.getLocation());
+    private boolean pollVolumeAttachment(final VolumeAttachmentWatch watch) throws CloudProviderException {
+        Machine machine = watch.getMachine();
+        MachineVolume volumeAttachment = watch.getVolumeAttachment();
+        Job job = watch.getJob();
+        ProviderTarget target = watch.getTarget();
+        ICloudProviderConnector connector = this.getCloudProviderConnector(target.getAccount());
 
-        int tries = ResourceWatcher.MAX_WAIT_TIME_IN_SECONDS / ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS;
         String volumeId = volumeAttachment.getVolume().getProviderAssignedId();
-        mainloop: while (tries-- > 0) {
-            try {
-                Machine updatedMachine = connector.getComputeService().getMachine(machine.getProviderAssignedId(), target);
-                if (updatedMachine.getVolumes() != null) {
-                    boolean volumeAttachmentFound = false;
-                    for (MachineVolume mv : updatedMachine.getVolumes()) {
-                        if (mv.getVolume().getProviderAssignedId().equals(volumeId)) {
-                            volumeAttachmentFound = true;
-                            for (MachineVolume.State expectedFinalState : expectedStates) {
-                                if (mv.getState() == expectedFinalState) {
-                                    this.machineManager.syncVolumeAttachment(machine.getId(), mv, job.getId());
-                                    break mainloop;
-                                }
+        try {
+            Machine updatedMachine = connector.getComputeService().getMachine(machine.getProviderAssignedId(), target);
+            if (updatedMachine.getVolumes() != null) {
+                for (MachineVolume mv : updatedMachine.getVolumes()) {
+                    if (mv.getVolume().getProviderAssignedId().equals(volumeId)) {
+                        for (MachineVolume.State expectedFinalState : watch.getExpectedStates()) {
+                            if (mv.getState() == expectedFinalState) {
+                                this.machineManager.syncVolumeAttachment(machine.getId(), mv, job.getId());
+                                return true;
                             }
-                            break;
                         }
-                    }
-                    if (!volumeAttachmentFound) {
-                        volumeAttachment.setState(State.DELETED);
-                        this.machineManager.syncVolumeAttachment(machine.getId(), volumeAttachment, job.getId());
-                        break;
+                        return false;
                     }
                 }
-            } catch (ResourceNotFoundException e) {
-                this.machineManager.syncMachine(machine.getId(), null);
-                this.jobManager.updateJobStatus(job.getId(), Job.Status.SUCCESS);
-                break;
-            } catch (ConnectorException e) {
-                ResourceWatcher.logger.error("Failed to poll machine state: ", e);
-                break;
-            }
-            try {
-                Thread.sleep(1000 * ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS);
-            } catch (InterruptedException e) {
-                break;
-            }
-            if (this.context.wasCancelCalled()) {
-                break;
+                volumeAttachment.setState(State.DELETED);
+                this.machineManager.syncVolumeAttachment(machine.getId(), volumeAttachment, job.getId());
+                return true;
             }
+        } catch (ResourceNotFoundException e) {
+            this.machineManager.syncMachine(machine.getId(), null);
+            this.jobManager.updateJobStatus(job.getId(), Job.Status.SUCCESS);
+            return true;
+        } catch (ConnectorException e) {
+            ResourceWatcher.logger.error("Failed to poll machine state: ", e);
+            return true;
         }
-        return new AsyncResult<Void>(null);
+        return false;
     }
 
-    @Asynchronous
-    public Future<Void> watchSystem(final System system, final Job job, final System.State... expectedStates)
-        throws CloudProviderException {
-        ICloudProviderConnector connector = this.getCloudProviderConnector(system.getCloudProviderAccount());
-        ProviderTarget target = new ProviderTarget().account(system.getCloudProviderAccount()).location(system.getLocation());
+    private boolean pollSystem(final SystemWatch watch) throws CloudProviderException {
+        System system = watch.getSystem();
+        Job job = watch.getJob();
+        ProviderTarget target = watch.getTarget();
+        ICloudProviderConnector connector = this.getCloudProviderConnector(target.getAccount());
 
-        int tries = ResourceWatcher.MAX_WAIT_TIME_IN_SECONDS / ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS;
-        mainloop: while (tries-- > 0) {
-            try {
-                System updatedSystem = connector.getSystemService().getSystem(system.getProviderAssignedId(), target);
-                for (System.State expectedFinalState : expectedStates) {
-                    if (updatedSystem.getState() == expectedFinalState) {
-                        this.systemManager.syncSystem(system.getId(), updatedSystem, job.getId());
-                        break mainloop;
-                    }
+        try {
+            System updatedSystem = connector.getSystemService().getSystem(system.getProviderAssignedId(), target);
+            for (System.State expectedFinalState : watch.getExpectedStates()) {
+                if (updatedSystem.getState() == expectedFinalState) {
+                    this.systemManager.syncSystem(system.getId(), updatedSystem, job.getId());
+                    return true;
                 }
-            } catch (ResourceNotFoundException e) {
-                this.systemManager.syncSystem(system.getId(), null, job.getId());
-                break;
-            } catch (ConnectorException e) {
-                ResourceWatcher.logger.error("Failed to poll system state: ", e);
-                break;
-            }
-            try {
-                Thread.sleep(1000 * ResourceWatcher.SLEEP_BETWEEN_POLL_IN_SECONDS);
-            } catch (InterruptedException e) {
-                break;
-            }
-            if (this.context.wasCancelCalled()) {
-                break;
             }
+        } catch (ResourceNotFoundException e) {
+            this.systemManager.syncSystem(system.getId(), null, job.getId());
+            return true;
+        } catch (ConnectorException e) {
+            ResourceWatcher.logger.error("Failed to poll system state: ", e);
+            return true;
         }
-        return new AsyncResult<Void>(null);
+        return false;
     }
 
 }
@@ -23,18 +23,51 @@
 package org.ow2.sirocco.cloudmanager.core.impl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.Future;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.Lock;
 import javax.ejb.LockType;
 import javax.ejb.Schedule;
 import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 
+import org.ow2.sirocco.cloudmanager.connector.api.ConnectorException;
+import org.ow2.sirocco.cloudmanager.connector.api.ICloudProviderConnector;
+import org.ow2.sirocco.cloudmanager.connector.api.ICloudProviderConnectorFinder;
+import org.ow2.sirocco.cloudmanager.connector.api.IProviderEventListener;
+import org.ow2.sirocco.cloudmanager.connector.api.IProviderEventSource;
+import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
+import org.ow2.sirocco.cloudmanager.connector.api.ResourceStateChangeEvent;
+import org.ow2.sirocco.cloudmanager.core.api.IConfigManager;
 import org.ow2.sirocco.cloudmanager.core.api.exception.CloudProviderException;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.MachineImageWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.MachineWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.NetworkWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.PollPolicy;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.ResourceWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.SystemWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.VolumeAttachmentWatch;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.VolumeWatch;
 import org.ow2.sirocco.cloudmanager.model.cimi.Job;
 import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
 import org.ow2.sirocco.cloudmanager.model.cimi.MachineImage;
@@ -45,82 +78,554 @@ import org.ow2.sirocco.cloudmanager.model.cimi.system.System;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Keeps track of pending resource watches. Watches are kept in a delay queue
+ * ordered by next poll time; a timer regularly hands due watches over to a
+ * bounded number of pollers running on the container managed executor, so that
+ * the number of threads used does not depend on the number of watched
+ * resources. Pollers group due watches by type and provider target so that
+ * each group costs a single state request to the provider. Each watch is polled
+ * according to the poll policy of its transition (see
+ * {@link IConfigManager#POLL_POLICY_PREFIX}): quickly at first, then backing off
+ * exponentially until its timeout.
+ * <p>
+ * Watches are persisted by {@link ResourceWatchStore} and leased to the node
+ * that polls them. Leases are renewed periodically; the watches of a stopped or
+ * failed node are resumed by the other nodes, or by the node itself at restart,
+ * once their leases have expired. A new watch is saved in the transaction of
+ * its caller and only scheduled once that transaction has committed.
+ * <p>
+ * When the connector of a provider target implements
+ * {@link IProviderEventSource}, state changes pushed by the provider make the
+ * corresponding watches due immediately and polling becomes a fallback.
+ */
 @Singleton
-@Lock(LockType.WRITE)
+@Lock(LockType.READ)
 public class ResourceWatcherManager {
     private static Logger logger = LoggerFactory.getLogger(ResourceWatcherManager.class.getName());
 
+    private static final PollPolicy DEFAULT_POLL_POLICY = new PollPolicy(2, 30, 10 * 60);
+
+    /**
+     * Expected durations of the transitions that differ significantly from the
+     * default, keyed as the poll policies configured through IConfigManager
+     */
+    private static final Map<String, PollPolicy> BUILTIN_POLL_POLICIES = new HashMap<>();
+
+    static {
+        ResourceWatcherManager.BUILTIN_POLL_POLICIES.put(VolumeAttachmentWatch.VOLUME_ATTACHMENT_WATCH, new PollPolicy(1,
+            10, 5 * 60));
+        ResourceWatcherManager.BUILTIN_POLL_POLICIES.put(MachineImageWatch.MACHINE_IMAGE_WATCH + ".capture", new PollPolicy(
+            30, 120, 60 * 60));
+        ResourceWatcherManager.BUILTIN_POLL_POLICIES.put(SystemWatch.SYSTEM_WATCH, new PollPolicy(5, 60, 30 * 60));
+    }
+
+    private static final int MAX_CONCURRENT_POLLERS = 8;
+
+    private static final int MAX_WATCHES_PER_POLLER_RUN = 500;
+
+    private static final int LEASE_DURATION_IN_SECONDS = 2 * 60;
+
+    private static final int MAX_CLAIMED_WATCHES = 500;
+
+    private static final int PUSH_FALLBACK_POLL_INTERVAL_IN_SECONDS = 60;
+
     @EJB
     private ResourceWatcher resourceWatcher;
 
-    private List<Future<Void>> watchers = new ArrayList<>();
+    @EJB
+    private IConfigManager configManager;
+
+    @EJB
+    private ResourceWatchStore watchStore;
+
+    @EJB
+    private ICloudProviderConnectorFinder connectorFinder;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    private ManagedExecutorService executorService;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    private final DelayQueue<ResourceWatch> pendingWatches = new DelayQueue<>();
+
+    private final AtomicInteger activePollers = new AtomicInteger();
+
+    private final AtomicLong pollCount = new AtomicLong();
+
+    private final AtomicLong totalPollLatencyInMillis = new AtomicLong();
+
+    private final AtomicLong maxPollLatencyInMillis = new AtomicLong();
+
+    private final AtomicLong notifiedWatchCompletionCount = new AtomicLong();
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ConcurrentMap<ProviderTarget, IProviderEventSource> eventSources = new ConcurrentHashMap<>();
+
+    private final IProviderEventListener eventListener = new EventListener();
+
+    /**
+     * Push enabled watches indexed by the provider id of their resource
+     */
+    private final Map<String, List<ResourceWatch>> pushEnabledWatches = new HashMap<>();
+
+    private volatile boolean stopped;
+
+    private volatile Map<String, PollPolicy> pollPolicies = ResourceWatcherManager.BUILTIN_POLL_POLICIES;
+
+    @PostConstruct
+    private void init() {
+        this.loadPollPolicies();
+    }
+
+    @Schedule(minute = "*", hour = "*", persistent = false)
+    public void loadPollPolicies() {
+        Map<String, PollPolicy> policies = new HashMap<>(ResourceWatcherManager.BUILTIN_POLL_POLICIES);
+        try {
+            for (Map.Entry<String, String> param : this.configManager.getConfigParameters().entrySet()) {
+                if (param.getKey().startsWith(IConfigManager.POLL_POLICY_PREFIX) && param.getValue() != null) {
+                    try {
+                        policies.put(param.getKey().substring(IConfigManager.POLL_POLICY_PREFIX.length()),
+                            PollPolicy.valueOf(param.getValue()));
+                    } catch (IllegalArgumentException e) {
+                        ResourceWatcherManager.logger.warn("Ignoring " + param.getKey() + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            ResourceWatcherManager.logger.error("Cannot load poll policies", e);
+            return;
+        }
+        this.pollPolicies = policies;
+    }
+
+    /**
+     * Returns the poll policy of a watch, looking for the most specific policy
+     * matching the watched resource type, the job action and the provider type
+     */
+    private PollPolicy getPollPolicy(final ResourceWatch watch) {
+        Map<String, PollPolicy> policies = this.pollPolicies;
+        String resourceType = watch.getWatchType();
+        String action = watch.getJob().getAction();
+        String providerType = watch.getTarget().getAccount().getCloudProvider().getCloudProviderType();
+        PollPolicy policy = null;
+        if (action != null) {
+            policy = policies.get(resourceType + "." + action + "." + providerType);
+            if (policy == null) {
+                policy = policies.get(resourceType + "." + action);
+            }
+        }
+        if (policy == null) {
+            policy = policies.get(resourceType);
+        }
+        return policy != null ? policy : ResourceWatcherManager.DEFAULT_POLL_POLICY;
+    }
 
     @PreDestroy
     public void stopWatchers() {
         ResourceWatcherManager.logger.info("Stopping resource watchers...");
-        int count = 0;
-        for (Future<Void> watcher : this.watchers) {
-            if (!watcher.isDone()) {
-                watcher.cancel(true);
-                count++;
-            }
+        this.stopped = true;
+        int count = this.pendingWatches.size();
+        this.pendingWatches.clear();
+        for (Map.Entry<ProviderTarget, IProviderEventSource> eventSource : this.eventSources.entrySet()) {
+            eventSource.getValue().unsubscribe(eventSource.getKey(), this.eventListener);
+        }
+        this.eventSources.clear();
+        synchronized (this.pushEnabledWatches) {
+            this.pushEnabledWatches.clear();
+        }
+        try {
+            this.watchStore.releaseLeases(this.nodeId);
+        } catch (Exception e) {
+            ResourceWatcherManager.logger.error("Cannot release resource watch leases", e);
         }
         ResourceWatcherManager.logger.info(count + " resource watchers stopped");
     }
 
-    @Schedule(hour = "*", persistent = false)
-    public void cleanupWatchers() {
-        ResourceWatcherManager.logger.info("Cleaning up resource watchers...");
-        for (Iterator<Future<Void>> it = this.watchers.iterator(); it.hasNext();) {
-            Future<Void> watcher = it.next();
-            if (watcher.isDone()) {
+    /**
+     * Resumes the pending watches left by stopped or failed nodes
+     */
+    public void resumeWatches() {
+        long now = java.lang.System.currentTimeMillis();
+        List<ResourceWatch> watches = this.watchStore.claimExpiredWatches(this.nodeId, now + 1000L
+            * ResourceWatcherManager.LEASE_DURATION_IN_SECONDS, ResourceWatcherManager.MAX_CLAIMED_WATCHES);
+        for (ResourceWatch watch : watches) {
+            watch.setPollPolicy(this.getPollPolicy(watch));
+            this.startWatching(watch, now);
+        }
+        if (!watches.isEmpty()) {
+            ResourceWatcherManager.logger.info("Resumed " + watches.size() + " resource watchers");
+        }
+    }
+
+    @Schedule(second = "*/30", minute = "*", hour = "*", persistent = false)
+    public void maintainLeases() {
+        if (this.stopped) {
+            return;
+        }
+        long now = java.lang.System.currentTimeMillis();
+        Set<Integer> leasedWatchIds = this.watchStore.renewLeases(this.nodeId, now + 1000L
+            * ResourceWatcherManager.LEASE_DURATION_IN_SECONDS);
+        // drop the watches taken over by another node while our leases had
+        // expired, new watches are skipped as their record may not be
+        // committed yet
+        for (Iterator<ResourceWatch> it = this.pendingWatches.iterator(); it.hasNext();) {
+            ResourceWatch watch = it.next();
+            if (watch.getPollCount() > 0 && !leasedWatchIds.contains(watch.getId())) {
+                ResourceWatcherManager.logger.warn(watch.getWatchType() + " watch for job " + watch.getJob().getId()
+                    + " taken over by another node");
                 it.remove();
+                this.unindex(watch);
+            }
+        }
+        this.resumeWatches();
+    }
+
+    @Schedule(hour = "*", persistent = false)
+    public void reportStatistics() {
+        ResourceWatcherManager.logger.info(this.getPendingWatchCount() + " resource watchers in progress, "
+            + this.getPollCount() + " polls, average poll latency " + this.getAveragePollLatencyInMillis() + " ms, max "
+            + this.getMaxPollLatencyInMillis() + " ms");
+    }
+
+    @Schedule(second = "*", minute = "*", hour = "*", persistent = false)
+    public void dispatchDueWatches() {
+        while (!this.stopped && this.hasDueWatch()) {
+            int active = this.activePollers.get();
+            if (active >= ResourceWatcherManager.MAX_CONCURRENT_POLLERS) {
+                break;
+            }
+            if (this.activePollers.compareAndSet(active, active + 1)) {
+                try {
+                    this.executorService.execute(new Poller());
+                } catch (RejectedExecutionException e) {
+                    this.activePollers.decrementAndGet();
+                    ResourceWatcherManager.logger.warn("Cannot start resource poller: " + e.getMessage());
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean hasDueWatch() {
+        ResourceWatch head = this.pendingWatches.peek();
+        return head != null && head.getDelay(TimeUnit.MILLISECONDS) <= 0;
+    }
+
+    private class Poller implements Runnable {
+        @Override
+        public void run() {
+            try {
+                List<ResourceWatch> dueWatches = new ArrayList<ResourceWatch>();
+                while (!ResourceWatcherManager.this.stopped
+                    && ResourceWatcherManager.this.pendingWatches.drainTo(dueWatches,
+                        ResourceWatcherManager.MAX_WATCHES_PER_POLLER_RUN) > 0) {
+                    ResourceWatcherManager.this.pollWatches(dueWatches);
+                    dueWatches.clear();
+                }
+            } finally {
+                ResourceWatcherManager.this.activePollers.decrementAndGet();
             }
         }
-        ResourceWatcherManager.logger.info(this.watchers.size() + " resource watchers in progress");
+    }
+
+    private void pollWatches(final List<ResourceWatch> watches) {
+        Map<String, Map<ProviderTarget, List<ResourceWatch>>> watchGroups = new HashMap<>();
+        for (ResourceWatch watch : watches) {
+            Map<ProviderTarget, List<ResourceWatch>> watchesPerTarget = watchGroups.get(watch.getWatchType());
+            if (watchesPerTarget == null) {
+                watchesPerTarget = new HashMap<ProviderTarget, List<ResourceWatch>>();
+                watchGroups.put(watch.getWatchType(), watchesPerTarget);
+            }
+            List<ResourceWatch> group = watchesPerTarget.get(watch.getTarget());
+            if (group == null) {
+                group = new ArrayList<ResourceWatch>();
+                watchesPerTarget.put(watch.getTarget(), group);
+            }
+            group.add(watch);
+        }
+        for (Map.Entry<String, Map<ProviderTarget, List<ResourceWatch>>> watchesPerType : watchGroups.entrySet()) {
+            for (Map.Entry<ProviderTarget, List<ResourceWatch>> group : watchesPerType.getValue().entrySet()) {
+                this.pollWatchGroup(watchesPerType.getKey(), group.getKey(), group.getValue());
+            }
+        }
+    }
+
+    private void pollWatchGroup(final String watchType, final ProviderTarget target, final List<ResourceWatch> watches) {
+        long start = java.lang.System.currentTimeMillis();
+        List<ResourceWatch> pendingWatches;
+        try {
+            pendingWatches = this.resourceWatcher.poll(watchType, target, watches);
+        } catch (Exception e) {
+            // keep the whole group, the poll delay grows with the poll count
+            // so a failing provider is retried with backoff until the deadline
+            ResourceWatcherManager.logger.error("Failed to poll resource states: ", e);
+            pendingWatches = watches;
+        }
+        long now = java.lang.System.currentTimeMillis();
+        this.recordPollLatency(now - start);
+
+        Set<ResourceWatch> remainingWatches = new HashSet<ResourceWatch>(pendingWatches);
+        List<Integer> completedWatchIds = new ArrayList<Integer>();
+        for (ResourceWatch watch : watches) {
+            watch.incrementPollCount();
+            if (!remainingWatches.contains(watch)) {
+                completedWatchIds.add(watch.getId());
+                this.unindex(watch);
+                if (watch.isNotified()) {
+                    this.notifiedWatchCompletionCount.incrementAndGet();
+                }
+            }
+            watch.setNotified(false);
+        }
+        for (ResourceWatch watch : pendingWatches) {
+            if (now >= watch.getDeadline()) {
+                ResourceWatcherManager.logger.warn("Giving up " + watch.getWatchType() + " watch for job "
+                    + watch.getJob().getId() + " after " + watch.getPollCount() + " polls");
+                completedWatchIds.add(watch.getId());
+                this.unindex(watch);
+                continue;
+            }
+            this.schedule(watch, now);
+        }
+        try {
+            this.watchStore.remove(completedWatchIds);
+        } catch (Exception e) {
+            ResourceWatcherManager.logger.error("Failed to remove completed resource watches: ", e);
+        }
+    }
+
+    private void recordPollLatency(final long latency) {
+        this.pollCount.incrementAndGet();
+        this.totalPollLatencyInMillis.addAndGet(latency);
+        long max;
+        while (latency > (max = this.maxPollLatencyInMillis.get())) {
+            if (this.maxPollLatencyInMillis.compareAndSet(max, latency)) {
+                break;
+            }
+        }
+    }
+
+    private void watch(final ResourceWatch watch) {
+        long now = java.lang.System.currentTimeMillis();
+        PollPolicy policy = this.getPollPolicy(watch);
+        watch.setPollPolicy(policy);
+        watch.setDeadline(now + 1000L * policy.getTimeoutInSeconds());
+        this.watchStore.save(watch, this.nodeId, now + 1000L * ResourceWatcherManager.LEASE_DURATION_IN_SECONDS);
+        int transactionStatus = this.transactionRegistry.getTransactionStatus();
+        if (transactionStatus == Status.STATUS_NO_TRANSACTION) {
+            this.startWatching(watch, now);
+            return;
+        }
+        if (transactionStatus == Status.STATUS_MARKED_ROLLBACK) {
+            return;
+        }
+        // a watch scheduled before commit could poll a watch record or a
+        // provider assigned id not visible yet, or keep polling a job whose
+        // creation is rolled back
+        watch.setPushEnabled(this.subscribe(watch.getTarget()));
+        this.transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+                if (status == Status.STATUS_COMMITTED && !ResourceWatcherManager.this.stopped) {
+                    ResourceWatcherManager.this.activate(watch, java.lang.System.currentTimeMillis());
+                }
+            }
+        });
+    }
+
+    private void startWatching(final ResourceWatch watch, final long now) {
+        watch.setPushEnabled(this.subscribe(watch.getTarget()));
+        this.activate(watch, now);
+    }
+
+    /**
+     * Indexes a watch for provider events if needed and schedules its first
+     * poll, touching in-memory state only
+     */
+    private void activate(final ResourceWatch watch, final long now) {
+        if (watch.isPushEnabled()) {
+            synchronized (this.pushEnabledWatches) {
+                List<ResourceWatch> watches = this.pushEnabledWatches.get(watch.getProviderAssignedId());
+                if (watches == null) {
+                    watches = new ArrayList<ResourceWatch>();
+                    this.pushEnabledWatches.put(watch.getProviderAssignedId(), watches);
+                }
+                watches.add(watch);
+            }
+        }
+        this.schedule(watch, now);
+    }
+
+    /**
+     * Schedules the next poll of a watch. Push enabled watches are polled once
+     * according to their poll policy, in case the state change occurred before
+     * the watch was started, then only as a fallback if no notification comes.
+     */
+    private void schedule(final ResourceWatch watch, final long now) {
+        long delay = watch.getPollPolicy().getPollDelayInMillis(watch.getPollCount());
+        if (watch.isPushEnabled() && watch.getPollCount() > 0) {
+            delay = Math.max(delay, 1000L * ResourceWatcherManager.PUSH_FALLBACK_POLL_INTERVAL_IN_SECONDS);
+        }
+        watch.setNextPollTime(now + delay);
+        this.pendingWatches.add(watch);
+    }
+
+    private void unindex(final ResourceWatch watch) {
+        if (watch.isPushEnabled()) {
+            synchronized (this.pushEnabledWatches) {
+                List<ResourceWatch> watches = this.pushEnabledWatches.get(watch.getProviderAssignedId());
+                if (watches != null) {
+                    watches.remove(watch);
+                    if (watches.isEmpty()) {
+                        this.pushEnabledWatches.remove(watch.getProviderAssignedId());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Subscribes to the state changes pushed by the connector of a provider
+     * target if it supports it
+     * 
+     * @return true if state changes are pushed for this target
+     */
+    private boolean subscribe(final ProviderTarget target) {
+        if (this.eventSources.containsKey(target)) {
+            return true;
+        }
+        ICloudProviderConnector connector = this.connectorFinder.getCloudProviderConnector(target.getAccount()
+            .getCloudProvider().getCloudProviderType());
+        if (!(connector instanceof IProviderEventSource)) {
+            return false;
+        }
+        IProviderEventSource eventSource = (IProviderEventSource) connector;
+        if (this.eventSources.putIfAbsent(target, eventSource) == null) {
+            try {
+                eventSource.subscribe(target, this.eventListener);
+            } catch (ConnectorException e) {
+                ResourceWatcherManager.logger.warn("Cannot subscribe to provider events, falling back to polling: "
+                    + e.getMessage());
+                this.eventSources.remove(target);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes the watches of a resource due immediately when its provider pushes
+     * a state change, the poller then syncs the resource as usual
+     */
+    private class EventListener implements IProviderEventListener {
+        @Override
+        public void onResourceStateChange(final ResourceStateChangeEvent event) {
+            List<ResourceWatch> watches;
+            synchronized (ResourceWatcherManager.this.pushEnabledWatches) {
+                watches = ResourceWatcherManager.this.pushEnabledWatches.get(event.getProviderAssignedId());
+                if (watches == null) {
+                    return;
+                }
+                watches = new ArrayList<ResourceWatch>(watches);
+            }
+            ResourceWatcherManager.logger.debug("Received provider event " + event);
+            long now = java.lang.System.currentTimeMillis();
+            for (ResourceWatch watch : watches) {
+                if (watch.getTarget().equals(event.getTarget())
+                    && ResourceWatcherManager.this.pendingWatches.remove(watch)) {
+                    watch.setNotified(true);
+                    watch.setNextPollTime(now);
+                    ResourceWatcherManager.this.pendingWatches.add(watch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of watches waiting for their next poll
+     */
+    public int getPendingWatchCount() {
+        return this.pendingWatches.size();
+    }
+
+    /**
+     * Returns the number of pollers currently running
+     */
+    public int getActivePollerCount() {
+        return this.activePollers.get();
+    }
+
+    /**
+     * Returns the total number of polls performed since startup, a poll covering
+     * all due watches of a given type on a provider target
+     */
+    public long getPollCount() {
+        return this.pollCount.get();
+    }
+
+    /**
+     * Returns the number of watches completed by a poll triggered by a provider
+     * event rather than by their poll policy
+     */
+    public long getNotifiedWatchCompletionCount() {
+        return this.notifiedWatchCompletionCount.get();
+    }
+
+    /**
+     * Returns the average duration of a poll in milliseconds
+     */
+    public long getAveragePollLatencyInMillis() {
+        long count = this.pollCount.get();
+        return count == 0 ? 0 : this.totalPollLatencyInMillis.get() / count;
+    }
+
+    /**
+     * Returns the maximum duration of a poll in milliseconds
+     */
+    public long getMaxPollLatencyInMillis() {
+        return this.maxPollLatencyInMillis.get();
     }
 
     public void createMachineStateWatcher(final Machine machine, final Job job, final Machine.State... expectedStates)
         throws CloudProviderException {
-        Future<Void> watcher = this.resourceWatcher.watchMachine(machine, job, expectedStates);
-        this.watchers.add(watcher);
+        this.watch(new MachineWatch(machine, expectedStates).setJob(job));
     }
 
     public void createMachineImageStateWatcher(final MachineImage machineImage, final Job job,
         final MachineImage.State... expectedStates) throws CloudProviderException {
-        Future<Void> watcher = this.resourceWatcher.watchMachineImage(machineImage, job, expectedStates);
-        this.watchers.add(watcher);
+        this.watch(new MachineImageWatch(machineImage, expectedStates).setJob(job));
     }
 
     public void createSystemStateWatcher(final System system, final Job job, final System.State... expectedStates)
         throws CloudProviderException {
-        Future<Void> watcher = this.resourceWatcher.watchSystem(system, job, expectedStates);
-        this.watchers.add(watcher);
+        this.watch(new SystemWatch(system, expectedStates).setJob(job));
     }
 
     public void createNetworkStateWatcher(final Network network, final Job job, final Network.State... expectedStates)
         throws CloudProviderException {
-        Future<Void> watcher = this.resourceWatcher.watchNetwork(network, job, expectedStates);
-        this.watchers.add(watcher);
+        this.watch(new NetworkWatch(network, expectedStates).setJob(job));
     }
 
     public void createVolumeStateWatcher(final Volume volume, final Job job, final Volume.State... expectedStates)
         throws CloudProviderException {
-        Future<Void> watcher = this.resourceWatcher.watchVolume(volume, job, expectedStates);
-        this.watchers.add(watcher);
+        this.watch(new VolumeWatch(volume, expectedStates).setJob(job));
     }
 
     public void createVolumeAttachmentWatcher(final Machine machine, final MachineVolume volumeAttachement, final Job job,
         final MachineVolume.State... expectedStates) throws CloudProviderException {
-        Future<Void> watcher = this.resourceWatcher.watchVolumeAttachment(machine, volumeAttachement, job, expectedStates);
-        this.watchers.add(watcher);
+        this.watch(new VolumeAttachmentWatch(machine, volumeAttachement, expectedStates).setJob(job));
     }
 
     public void createSystemWatcher(final org.ow2.sirocco.cloudmanager.model.cimi.system.System system, final Job job)
         throws CloudProviderException {
-        Future<Void> watcher = this.resourceWatcher.watchSystem(system, job);
-        this.watchers.add(watcher);
-
+        this.watch(new SystemWatch(system).setJob(job));
     }
 
 }
@@ -26,6 +26,9 @@ import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
+import javax.inject.Inject;
+import javax.jms.JMSContext;
+import javax.jms.JMSRuntimeException;
 
 import org.ow2.sirocco.cloudmanager.core.api.IConfigManager;
 import org.slf4j.Logger;
@@ -36,9 +39,21 @@ import org.slf4j.LoggerFactory;
 public class SiroccoStartup {
     private static Logger logger = LoggerFactory.getLogger(SiroccoStartup.class.getName());
 
+    /**
+     * Names, as reported by the connection metadata, of the JMS providers known
+     * to implement message groups
+     */
+    private static final String[] MESSAGE_GROUP_PROVIDERS = {"ActiveMQ", "HornetQ"};
+
     @EJB
     private IConfigManager configManager;
 
+    @EJB
+    private ResourceWatcherManager resourceWatcherManager;
+
+    @Inject
+    private JMSContext jmsContext;
+
     @PostConstruct
     void init() {
         try {
@@ -61,6 +76,35 @@ public class SiroccoStartup {
             // ignore all exceptions in particular those due to fact that the database table might not exist
             // if this bean is started before the JPA provider has a chance to generate it
         }
+        this.checkMessageGroupSupport();
+        try {
+            this.resourceWatcherManager.resumeWatches();
+        } catch (Exception e) {
+            SiroccoStartup.logger.error("Cannot resume resource watchers", e);
+        }
+    }
+
+    /**
+     * Warns when the JMS provider is not known to implement message groups, on
+     * which the per account ordering and partitioning of the request queue rely
+     * (see RequestDispatcher). The GlassFish default broker, Open Message Queue,
+     * carries the JMSXGroupID property but ignores it.
+     */
+    private void checkMessageGroupSupport() {
+        try {
+            String providerName = this.jmsContext.getMetaData().getJMSProviderName();
+            for (String groupProvider : SiroccoStartup.MESSAGE_GROUP_PROVIDERS) {
+                if (providerName != null && providerName.contains(groupProvider)) {
+                    SiroccoStartup.logger.info("Request queue partitioned with the message groups of " + providerName);
+                    return;
+                }
+            }
+            SiroccoStartup.logger.warn("JMS provider " + providerName
+                + " does not implement message groups: commands of the request queue are neither ordered nor"
+                + " partitioned per cloud provider account");
+        } catch (JMSRuntimeException e) {
+            SiroccoStartup.logger.warn("Cannot check the message group support of the JMS provider", e);
+        }
     }
 
 }
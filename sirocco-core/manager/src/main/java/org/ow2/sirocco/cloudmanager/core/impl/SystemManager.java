@@ -69,6 +69,7 @@ import org.ow2.sirocco.cloudmanager.core.api.exception.InvalidRequestException;
 import org.ow2.sirocco.cloudmanager.core.api.exception.ResourceNotFoundException;
 import org.ow2.sirocco.cloudmanager.core.api.exception.ServiceUnavailableException;
 import org.ow2.sirocco.cloudmanager.core.api.remote.IRemoteSystemManager;
+import org.ow2.sirocco.cloudmanager.core.impl.command.ResourceCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.SystemActionCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.SystemCreateCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.SystemDeleteCommand;
@@ -341,9 +342,11 @@ public class SystemManager implements ISystemManager {
         this.em.persist(job);
         this.em.flush();
 
-        ObjectMessage message = this.jmsContext.createObjectMessage(new SystemCreateCommand(systemCreate)
-            .setAccount(placement.getAccount()).setLocation(placement.getLocation()).setResourceId(system.getId()).setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new SystemCreateCommand(systemCreate).setAccount(placement.getAccount())
+            .setLocation(placement.getLocation()).setResourceId(system.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
 
@@ -1030,14 +1033,16 @@ public class SystemManager implements ISystemManager {
         this.em.persist(job);
         this.em.flush();
 
-        ObjectMessage message;
+        ResourceCommand command;
         if (!action.equals("delete")) {
-            message = this.jmsContext.createObjectMessage(new SystemActionCommand(action).setForce(force)
-                .setResourceId(system.getId()).setJob(job));
+            command = new SystemActionCommand(action).setForce(force).setResourceId(system.getId());
         } else {
-            message = this.jmsContext.createObjectMessage(new SystemDeleteCommand().setResourceId(system.getId()).setJob(job));
+            command = new SystemDeleteCommand().setResourceId(system.getId());
         }
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        command.setAccount(system.getCloudProviderAccount()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
@@ -0,0 +1,87 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+
+import org.ow2.sirocco.cloudmanager.core.api.IdentityContext;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Remembers for a short time the tenant an identity context resolves to, so
+ * that requests of the same user or tenant do not look it up again. Entries
+ * are invalidated by the tenant updates of {@link TenantManager} and expire
+ * after {@link #TTL_IN_SECONDS} to catch up with other changes, such as the
+ * removal of a user.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class TenantCache {
+    private static final int TTL_IN_SECONDS = 30;
+
+    private static final int MAX_ENTRIES = 10000;
+
+    private final Cache<String, Integer> tenantIds = CacheBuilder.newBuilder()
+        .expireAfterWrite(TenantCache.TTL_IN_SECONDS, TimeUnit.SECONDS).maximumSize(TenantCache.MAX_ENTRIES).build();
+
+    /**
+     * Returns the id of the tenant an identity context resolves to, or null if
+     * unknown
+     */
+    public Integer getTenantId(final IdentityContext context) {
+        return this.tenantIds.getIfPresent(TenantCache.key(context));
+    }
+
+    public void putTenantId(final IdentityContext context, final Integer tenantId) {
+        this.tenantIds.put(TenantCache.key(context), tenantId);
+    }
+
+    public void invalidate(final IdentityContext context) {
+        this.tenantIds.invalidate(TenantCache.key(context));
+    }
+
+    public void invalidateAll() {
+        this.tenantIds.invalidateAll();
+    }
+
+    /**
+     * Keys an identity context by the first of its attributes used to resolve
+     * the tenant
+     */
+    private static String key(final IdentityContext context) {
+        if (context.getTenantId() != null && !context.getTenantId().isEmpty()) {
+            return "uuid:" + context.getTenantId();
+        }
+        if (context.getTenantName() != null && !context.getTenantName().isEmpty()) {
+            return "name:" + context.getTenantName();
+        }
+        return "user:" + context.getUserName();
+    }
+
+}
@@ -37,6 +37,9 @@ public class TenantManager implements ITenantManager {
     @EJB
     private IUserManager userManager;
 
+    @EJB
+    private TenantCache tenantCache;
+
     @Inject
     private IdentityContext identityContext;
 
@@ -48,6 +51,7 @@ public class TenantManager implements ITenantManager {
         } catch (ResourceNotFoundException e) {
             this.em.persist(tenant);
             this.em.flush();
+            this.tenantCache.invalidateAll();
             return tenant;
         }
     }
@@ -81,8 +85,33 @@ public class TenantManager implements ITenantManager {
         }
     }
 
+    /**
+     * Returns the tenant of an identity context. The resolved tenant is
+     * remembered in the context for the rest of the request and in the tenant
+     * cache for the next requests, so that only a primary key lookup is needed
+     * once the tenant is known.
+     */
     @Override
     public Tenant getTenant(final IdentityContext context) throws CloudProviderException {
+        Integer tenantId = context.getResolvedTenantId();
+        if (tenantId == null) {
+            tenantId = this.tenantCache.getTenantId(context);
+        }
+        if (tenantId != null) {
+            Tenant tenant = this.em.find(Tenant.class, tenantId);
+            if (tenant != null) {
+                context.setResolvedTenant(tenant.getId(), tenant.getUuid());
+                return tenant;
+            }
+            this.tenantCache.invalidate(context);
+        }
+        Tenant tenant = this.resolveTenant(context);
+        this.tenantCache.putTenantId(context, tenant.getId());
+        context.setResolvedTenant(tenant.getId(), tenant.getUuid());
+        return tenant;
+    }
+
+    private Tenant resolveTenant(final IdentityContext context) throws CloudProviderException {
         if (context.getTenantId() != null && !context.getTenantId().isEmpty()) {
             return this.getTenantByUuid(context.getTenantId());
         }
@@ -111,6 +140,7 @@ public class TenantManager implements ITenantManager {
     public void deleteTenant(final String tenantUuid) throws CloudProviderException {
         Tenant result = this.getTenantByUuid(tenantUuid);
         this.em.remove(result);
+        this.tenantCache.invalidateAll();
     }
 
     @Override
@@ -121,6 +151,7 @@ public class TenantManager implements ITenantManager {
             throw new ResourceConflictException();
         }
         user.getTenants().add(tenant);
+        this.tenantCache.invalidateAll();
     }
 
     @Override
@@ -131,12 +162,13 @@ public class TenantManager implements ITenantManager {
             throw new ResourceConflictException();
         }
         user.getTenants().remove(tenant);
+        this.tenantCache.invalidateAll();
     }
 
     @Override
     public List<User> getTenantUsers(final String tenantUuid) throws CloudProviderException {
         Tenant tenant = this.getTenantByUuid(tenantUuid);
-        return tenant.getUsers();
+        return new ArrayList<User>(tenant.getUsers());
     }
 
 }
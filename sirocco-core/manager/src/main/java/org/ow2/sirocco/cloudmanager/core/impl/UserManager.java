@@ -28,6 +28,7 @@ package org.ow2.sirocco.cloudmanager.core.impl;
 import java.util.List;
 import java.util.Map;
 
+import javax.ejb.EJB;
 import javax.ejb.Local;
 import javax.ejb.Remote;
 import javax.ejb.Stateless;
@@ -38,11 +39,14 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
 
 import org.apache.commons.validator.routines.EmailValidator;
+import org.ow2.sirocco.cloudmanager.core.api.IConfigManager;
 import org.ow2.sirocco.cloudmanager.core.api.IUserManager;
 import org.ow2.sirocco.cloudmanager.core.api.IdentityContext;
 import org.ow2.sirocco.cloudmanager.core.api.exception.CloudProviderException;
+import org.ow2.sirocco.cloudmanager.core.api.exception.InvalidRequestException;
 import org.ow2.sirocco.cloudmanager.core.api.exception.ResourceNotFoundException;
 import org.ow2.sirocco.cloudmanager.core.api.remote.IRemoteUserManager;
+import org.ow2.sirocco.cloudmanager.core.utils.PasswordHasher;
 import org.ow2.sirocco.cloudmanager.core.utils.PasswordValidator;
 import org.ow2.sirocco.cloudmanager.core.utils.UtilsForManagers;
 import org.ow2.sirocco.cloudmanager.model.cimi.extension.User;
@@ -63,18 +67,36 @@ public class UserManager implements IUserManager {
     @Inject
     private IdentityContext identityContext;
 
-    public String md5(final String md5) {
+    @EJB
+    private CredentialCache credentialCache;
+
+    @EJB
+    private IConfigManager configManager;
+
+    /**
+     * Hashes verified when the user is unknown, so that unknown users take as
+     * long to reject as wrong passwords
+     */
+    private static final String DUMMY_PASSWORD_HASH = PasswordHasher.hash("dummy");
+
+    private static final String DUMMY_LEGACY_PASSWORD_HASH = PasswordHasher.legacyHash("dummy");
+
+    /**
+     * Returns true if passwords are hashed with PBKDF2, false while the
+     * container realm authenticating remote EJB clients still expects MD5
+     * hashes
+     */
+    private boolean isPbkdf2Enabled() {
         try {
-            java.security.MessageDigest md = java.security.MessageDigest.getInstance("MD5");
-            byte[] array = md.digest(md5.getBytes());
-            StringBuffer sb = new StringBuffer();
-            for (byte element : array) {
-                sb.append(Integer.toHexString((element & 0xFF) | 0x100).substring(1, 3));
-            }
-            return sb.toString();
-        } catch (java.security.NoSuchAlgorithmException e) {
-        }
-        return null;
+            return PasswordHasher.PBKDF2.equals(this.configManager
+                .getConfigParameter(IConfigManager.PASSWORD_HASH_ALGORITHM));
+        } catch (InvalidRequestException e) {
+            return false;
+        }
+    }
+
+    private String hashPassword(final String password) {
+        return this.isPbkdf2Enabled() ? PasswordHasher.hash(password) : PasswordHasher.legacyHash(password);
     }
 
     @Override
@@ -100,8 +122,8 @@ public class UserManager implements IUserManager {
         // if (!isUserValid(u)) {
         // throw new UserException("user validation failed");
         // }
-        u.setRole("sirocco-user");
-        u.setPassword(this.md5(u.getPassword()));
+        u.setRole(User.USER_ROLE);
+        u.setPassword(this.hashPassword(u.getPassword()));
         this.em.persist(u);
         this.em.flush();
         return u;
@@ -191,6 +213,9 @@ public class UserManager implements IUserManager {
             e.printStackTrace();
             throw new CloudProviderException();
         }
+        if (updatedAttributes.containsKey("password") && u.getPassword() != null) {
+            u.setPassword(this.hashPassword(u.getPassword()));
+        }
 
         return this.updateUser(u);
     }
@@ -203,6 +228,8 @@ public class UserManager implements IUserManager {
         // throw new UserException("user validation failed");
         // }
         this.em.merge(user);
+        // the password or the role may have changed
+        this.credentialCache.invalidate(user.getUsername());
 
         return user;
     }
@@ -214,8 +241,38 @@ public class UserManager implements IUserManager {
 
         if (result != null) {
             this.em.remove(result);
+            this.credentialCache.invalidate(result.getUsername());
         }
 
     }
 
+    @Override
+    public String authenticate(final String userName, final String password) throws CloudProviderException {
+        if (userName == null || password == null) {
+            return null;
+        }
+        String role = this.credentialCache.getVerifiedRole(userName, password);
+        if (role != null) {
+            return role;
+        }
+        List<User> users = this.em.createQuery("SELECT u FROM User u WHERE u.username=:usrname", User.class)
+            .setParameter("usrname", userName).getResultList();
+        boolean pbkdf2Enabled = this.isPbkdf2Enabled();
+        if (users.isEmpty()) {
+            PasswordHasher.verify(password, pbkdf2Enabled ? UserManager.DUMMY_PASSWORD_HASH
+                : UserManager.DUMMY_LEGACY_PASSWORD_HASH);
+            return null;
+        }
+        User user = users.get(0);
+        if (!PasswordHasher.verify(password, user.getPassword())) {
+            return null;
+        }
+        if (pbkdf2Enabled && PasswordHasher.needsRehash(user.getPassword())) {
+            UserManager.logger.info("Upgrading password hash of user " + userName);
+            user.setPassword(PasswordHasher.hash(password));
+        }
+        this.credentialCache.putVerified(userName, password, user.getRole());
+        return user.getRole();
+    }
+
 }
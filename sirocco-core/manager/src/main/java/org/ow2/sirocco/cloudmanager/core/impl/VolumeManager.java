@@ -64,6 +64,7 @@ import org.ow2.sirocco.cloudmanager.core.api.exception.ResourceConflictException
 import org.ow2.sirocco.cloudmanager.core.api.exception.ResourceNotFoundException;
 import org.ow2.sirocco.cloudmanager.core.api.exception.ServiceUnavailableException;
 import org.ow2.sirocco.cloudmanager.core.api.remote.IRemoteVolumeManager;
+import org.ow2.sirocco.cloudmanager.core.impl.command.ResourceCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.VolumeCreateCommand;
 import org.ow2.sirocco.cloudmanager.core.impl.command.VolumeDeleteCommand;
 import org.ow2.sirocco.cloudmanager.core.utils.QueryHelper;
@@ -162,9 +163,11 @@ public class VolumeManager implements IVolumeManager {
         this.em.persist(job);
         this.em.flush();
 
-        ObjectMessage message = this.jmsContext.createObjectMessage(new VolumeCreateCommand(volumeCreate)
-            .setAccount(placement.getAccount()).setLocation(placement.getLocation()).setResourceId(volume.getId()).setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new VolumeCreateCommand(volumeCreate).setAccount(placement.getAccount())
+            .setLocation(placement.getLocation()).setResourceId(volume.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
@@ -534,9 +537,11 @@ public class VolumeManager implements IVolumeManager {
         this.em.persist(job);
         this.em.flush();
 
-        ObjectMessage message = this.jmsContext.createObjectMessage(new VolumeDeleteCommand().setResourceId(volume.getId())
-            .setJob(job));
-        this.jmsContext.createProducer().send(this.requestQueue, message);
+        ResourceCommand command = new VolumeDeleteCommand().setAccount(volume.getCloudProviderAccount())
+            .setResourceId(volume.getId()).setJob(job);
+        ObjectMessage message = this.jmsContext.createObjectMessage(command);
+        this.jmsContext.createProducer().setProperty(ResourceCommand.PARTITION_PROPERTY, command.getPartitionKey())
+            .send(this.requestQueue, message);
 
         return job;
     }
@@ -0,0 +1,93 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineCreate;
+import org.ow2.sirocco.cloudmanager.model.cimi.extension.CloudProviderAccount;
+import org.ow2.sirocco.cloudmanager.model.cimi.extension.CloudProviderLocation;
+
+/**
+ * Creates several identical machines. The job of the command is the parent job
+ * of the batch, the i-th machine id being tracked by the i-th nested job id.
+ */
+public class MachineBatchCreateCommand extends ResourceCommand {
+    private static final long serialVersionUID = 1L;
+
+    public static final String MACHINE_BATCH_CREATE = "machineBatchCreate";
+
+    private final MachineCreate machineCreate;
+
+    private CloudProviderAccount account;
+
+    private CloudProviderLocation location;
+
+    private final List<Integer> machineIds = new ArrayList<Integer>();
+
+    private final List<Integer> machineJobIds = new ArrayList<Integer>();
+
+    public MachineBatchCreateCommand(final MachineCreate machineCreate) {
+        super(MachineBatchCreateCommand.MACHINE_BATCH_CREATE);
+        this.machineCreate = machineCreate;
+    }
+
+    public MachineCreate getMachineCreate() {
+        return this.machineCreate;
+    }
+
+    public CloudProviderAccount getAccount() {
+        return this.account;
+    }
+
+    public MachineBatchCreateCommand setAccount(final CloudProviderAccount account) {
+        this.account = account;
+        super.setAccount(account);
+        return this;
+    }
+
+    public CloudProviderLocation getLocation() {
+        return this.location;
+    }
+
+    public MachineBatchCreateCommand setLocation(final CloudProviderLocation location) {
+        this.location = location;
+        return this;
+    }
+
+    public List<Integer> getMachineIds() {
+        return this.machineIds;
+    }
+
+    public List<Integer> getMachineJobIds() {
+        return this.machineJobIds;
+    }
+
+    public MachineBatchCreateCommand addMachine(final int machineId, final int machineJobId) {
+        this.machineIds.add(machineId);
+        this.machineJobIds.add(machineJobId);
+        return this;
+    }
+
+}
@@ -52,6 +52,7 @@ public class MachineCreateCommand extends ResourceCommand {
 
     public MachineCreateCommand setAccount(final CloudProviderAccount account) {
         this.account = account;
+        super.setAccount(account);
         return this;
     }
 
@@ -52,6 +52,7 @@ public class NetworkCreateCommand extends ResourceCommand {
 
     public NetworkCreateCommand setAccount(final CloudProviderAccount account) {
         this.account = account;
+        super.setAccount(account);
         return this;
     }
 
@@ -25,14 +25,40 @@ package org.ow2.sirocco.cloudmanager.core.impl.command;
 import java.io.Serializable;
 
 import org.ow2.sirocco.cloudmanager.model.cimi.Job;
+import org.ow2.sirocco.cloudmanager.model.cimi.extension.CloudProviderAccount;
 
 public class ResourceCommand implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    /**
+     * JMS message property holding the partition key of a command. The request
+     * queue must support message groups: the broker delivers the messages of a
+     * group one at a time and in order, and distinct groups to distinct
+     * listeners. Brokers without message groups, like Open Message Queue,
+     * ignore the property (see RequestDispatcher).
+     */
+    public static final String PARTITION_PROPERTY = "JMSXGroupID";
+
+    /**
+     * Property of a cloud provider account holding the number of partitions
+     * its commands are spread over, i.e. the number of its commands processed
+     * in parallel. With 1 the commands of the account are processed strictly in
+     * order.
+     */
+    public static final String ACCOUNT_CONCURRENCY_PROPERTY = "requestConcurrency";
+
+    private static final int DEFAULT_ACCOUNT_CONCURRENCY = 4;
+
+    private static final int MAX_ACCOUNT_CONCURRENCY = 32;
+
     private final String commandType;
 
     private int resourceId;
 
+    private Integer accountId;
+
+    private int accountConcurrency = ResourceCommand.DEFAULT_ACCOUNT_CONCURRENCY;
+
     private Job job;
 
     public ResourceCommand(final String commandType) {
@@ -61,4 +87,40 @@ public class ResourceCommand implements Serializable {
         return this;
     }
 
+    public Integer getAccountId() {
+        return this.accountId;
+    }
+
+    /**
+     * Sets the account targeted by this command along with the number of
+     * partitions of its commands
+     */
+    public ResourceCommand setAccount(final CloudProviderAccount account) {
+        this.accountId = account.getId();
+        this.accountConcurrency = ResourceCommand.DEFAULT_ACCOUNT_CONCURRENCY;
+        String value = account.getProperties() != null ? account.getProperties().get(
+            ResourceCommand.ACCOUNT_CONCURRENCY_PROPERTY) : null;
+        if (value != null) {
+            try {
+                this.accountConcurrency = Math.max(1,
+                    Math.min(Integer.parseInt(value.trim()), ResourceCommand.MAX_ACCOUNT_CONCURRENCY));
+            } catch (NumberFormatException e) {
+                // keep the default concurrency
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the partition key of this command: the commands of an account are
+     * spread over a fixed number of partitions, those targeting the same
+     * resource always going to the same partition
+     */
+    public String getPartitionKey() {
+        if (this.accountConcurrency <= 1) {
+            return String.valueOf(this.accountId);
+        }
+        return this.accountId + "." + (this.resourceId & Integer.MAX_VALUE) % this.accountConcurrency;
+    }
+
 }
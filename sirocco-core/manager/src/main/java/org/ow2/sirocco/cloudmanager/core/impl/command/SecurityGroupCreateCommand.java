@@ -52,6 +52,7 @@ public class SecurityGroupCreateCommand extends ResourceCommand {
 
     public SecurityGroupCreateCommand setAccount(final CloudProviderAccount account) {
         this.account = account;
+        super.setAccount(account);
         return this;
     }
 
@@ -52,6 +52,7 @@ public class SystemCreateCommand extends ResourceCommand {
 
     public SystemCreateCommand setAccount(final CloudProviderAccount account) {
         this.account = account;
+        super.setAccount(account);
         return this;
     }
 
@@ -52,6 +52,7 @@ public class VolumeCreateCommand extends ResourceCommand {
 
     public VolumeCreateCommand setAccount(final CloudProviderAccount account) {
         this.account = account;
+        super.setAccount(account);
         return this;
     }
 
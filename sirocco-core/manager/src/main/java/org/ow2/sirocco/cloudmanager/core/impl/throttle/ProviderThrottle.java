@@ -0,0 +1,248 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl.throttle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Throttles the requests sent to the API of a provider account. A request first
+ * waits for one of the in-flight slots, then for a token of the bucket. Waiting
+ * requests are served in arrival order. Requests never fail because of the
+ * throttle, they only wait, and the time spent waiting is recorded.
+ */
+public class ProviderThrottle {
+    private final String providerType;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    private final Condition permitReleased = this.lock.newCondition();
+
+    private RateLimit rateLimit;
+
+    private double tokens;
+
+    private long lastRefillTime;
+
+    private long blockedUntilTime;
+
+    private volatile int inFlight;
+
+    private volatile int waiting;
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong totalWaitInNanos = new AtomicLong();
+
+    private final AtomicLong maxWaitInNanos = new AtomicLong();
+
+    private final AtomicLong backOffCount = new AtomicLong();
+
+    public ProviderThrottle(final String providerType, final RateLimit rateLimit) {
+        this.providerType = providerType;
+        this.rateLimit = rateLimit;
+        this.tokens = rateLimit.getBurst();
+        this.lastRefillTime = java.lang.System.nanoTime();
+        this.blockedUntilTime = this.lastRefillTime;
+    }
+
+    public String getProviderType() {
+        return this.providerType;
+    }
+
+    public RateLimit getRateLimit() {
+        this.lock.lock();
+        try {
+            return this.rateLimit;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public void setRateLimit(final RateLimit rateLimit) {
+        this.lock.lock();
+        try {
+            this.refill(java.lang.System.nanoTime());
+            this.rateLimit = rateLimit;
+            this.tokens = Math.min(this.tokens, rateLimit.getBurst());
+            this.permitReleased.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until a request can be sent to the provider. Each successful call
+     * must be followed by a call to {@link #release()} once the request is
+     * complete.
+     * 
+     * @return the time spent waiting in milliseconds
+     */
+    public long acquire() throws InterruptedException {
+        long start = java.lang.System.nanoTime();
+        this.lock.lockInterruptibly();
+        try {
+            this.waiting++;
+            try {
+                while (this.inFlight >= this.rateLimit.getMaxInFlight()) {
+                    this.permitReleased.await();
+                }
+                this.inFlight++;
+                boolean acquired = false;
+                try {
+                    long delay;
+                    while ((delay = this.takeToken()) > 0) {
+                        this.permitReleased.awaitNanos(delay);
+                    }
+                    acquired = true;
+                } finally {
+                    if (!acquired) {
+                        this.inFlight--;
+                        this.permitReleased.signalAll();
+                    }
+                }
+            } finally {
+                this.waiting--;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        long wait = java.lang.System.nanoTime() - start;
+        this.recordWait(wait);
+        return TimeUnit.NANOSECONDS.toMillis(wait);
+    }
+
+    public void release() {
+        this.lock.lock();
+        try {
+            this.inFlight--;
+            this.permitReleased.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Holds all requests for the given delay, used when the provider rejected a
+     * request because of its own rate limiting
+     */
+    public void backOff(final long delayInMillis) {
+        this.backOffCount.incrementAndGet();
+        this.lock.lock();
+        try {
+            long until = java.lang.System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayInMillis);
+            if (until - this.blockedUntilTime > 0) {
+                this.blockedUntilTime = until;
+            }
+            this.tokens = 0;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a token if one is available
+     * 
+     * @return 0 if a token was taken, otherwise the time in nanoseconds until the
+     *         next token is available
+     */
+    private long takeToken() {
+        long now = java.lang.System.nanoTime();
+        long blockedTime = this.blockedUntilTime - now;
+        if (blockedTime > 0) {
+            return blockedTime;
+        }
+        this.refill(now);
+        if (this.tokens >= 1) {
+            this.tokens -= 1;
+            return 0;
+        }
+        return (long) ((1 - this.tokens) / this.rateLimit.getRequestsPerSecond() * TimeUnit.SECONDS.toNanos(1)) + 1;
+    }
+
+    private void refill(final long now) {
+        double elapsedSeconds = (double) (now - this.lastRefillTime) / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = Math.min(this.rateLimit.getBurst(), this.tokens + elapsedSeconds * this.rateLimit.getRequestsPerSecond());
+        this.lastRefillTime = now;
+    }
+
+    private void recordWait(final long wait) {
+        this.requestCount.incrementAndGet();
+        this.totalWaitInNanos.addAndGet(wait);
+        long max;
+        while (wait > (max = this.maxWaitInNanos.get())) {
+            if (this.maxWaitInNanos.compareAndSet(max, wait)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of requests sent through this throttle
+     */
+    public long getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    /**
+     * Returns the average time spent by a request waiting for the throttle in
+     * milliseconds
+     */
+    public long getAverageWaitInMillis() {
+        long count = this.requestCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.totalWaitInNanos.get() / count);
+    }
+
+    /**
+     * Returns the maximum time spent by a request waiting for the throttle in
+     * milliseconds
+     */
+    public long getMaxWaitInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxWaitInNanos.get());
+    }
+
+    /**
+     * Returns the number of requests currently waiting for the throttle
+     */
+    public int getWaitingCount() {
+        return this.waiting;
+    }
+
+    /**
+     * Returns the number of requests currently in flight
+     */
+    public int getInFlightCount() {
+        return this.inFlight;
+    }
+
+    /**
+     * Returns the number of times the provider rejected a request because of its
+     * own rate limiting
+     */
+    public long getBackOffCount() {
+        return this.backOffCount.get();
+    }
+
+}
@@ -0,0 +1,79 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl.throttle;
+
+/**
+ * Limits applied to the requests sent to the API of a provider account: a
+ * sustained rate with a burst capacity, as a token bucket, and a maximum number
+ * of requests in flight.
+ */
+public class RateLimit {
+    private final double requestsPerSecond;
+
+    private final int burst;
+
+    private final int maxInFlight;
+
+    public RateLimit(final double requestsPerSecond, final int burst, final int maxInFlight) {
+        if (requestsPerSecond <= 0 || burst < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Invalid rate limit " + requestsPerSecond + "," + burst + "," + maxInFlight);
+        }
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Parses a rate limit of the form
+     * &lt;requestsPerSecond&gt;,&lt;burst&gt;,&lt;maxInFlight&gt;
+     * 
+     * @throws IllegalArgumentException if the value is not a valid rate limit
+     */
+    public static RateLimit valueOf(final String value) {
+        String[] tokens = value.split(",");
+        if (tokens.length != 3) {
+            throw new IllegalArgumentException("Invalid rate limit " + value
+                + ", expected <requestsPerSecond>,<burst>,<maxInFlight>");
+        }
+        return new RateLimit(Double.parseDouble(tokens[0].trim()), Integer.parseInt(tokens[1].trim()),
+            Integer.parseInt(tokens[2].trim()));
+    }
+
+    public double getRequestsPerSecond() {
+        return this.requestsPerSecond;
+    }
+
+    public int getBurst() {
+        return this.burst;
+    }
+
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    @Override
+    public String toString() {
+        return this.requestsPerSecond + "," + this.burst + "," + this.maxInFlight;
+    }
+
+}
@@ -0,0 +1,52 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl.watch;
+
+import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineImage;
+
+public class MachineImageWatch extends ResourceWatch {
+    public static final String MACHINE_IMAGE_WATCH = "machineImage";
+
+    private final MachineImage machineImage;
+
+    private final MachineImage.State[] expectedStates;
+
+    public MachineImageWatch(final MachineImage machineImage, final MachineImage.State... expectedStates) {
+        super(MachineImageWatch.MACHINE_IMAGE_WATCH, new ProviderTarget().account(
+            machineImage.getProviderMappings().get(0).getProviderAccount()).location(
+            machineImage.getProviderMappings().get(0).getProviderLocation()), machineImage.getProviderMappings().get(0)
+            .getProviderAssignedId());
+        this.machineImage = machineImage;
+        this.expectedStates = expectedStates;
+    }
+
+    public MachineImage getMachineImage() {
+        return this.machineImage;
+    }
+
+    public MachineImage.State[] getExpectedStates() {
+        return this.expectedStates;
+    }
+
+}
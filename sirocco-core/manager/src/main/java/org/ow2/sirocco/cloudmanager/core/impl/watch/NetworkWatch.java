@@ -0,0 +1,50 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl.watch;
+
+import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
+import org.ow2.sirocco.cloudmanager.model.cimi.Network;
+
+public class NetworkWatch extends ResourceWatch {
+    public static final String NETWORK_WATCH = "network";
+
+    private final Network network;
+
+    private final Network.State[] expectedStates;
+
+    public NetworkWatch(final Network network, final Network.State... expectedStates) {
+        super(NetworkWatch.NETWORK_WATCH, new ProviderTarget().account(network.getCloudProviderAccount()).location(
+            network.getLocation()), network.getProviderAssignedId());
+        this.network = network;
+        this.expectedStates = expectedStates;
+    }
+
+    public Network getNetwork() {
+        return this.network;
+    }
+
+    public Network.State[] getExpectedStates() {
+        return this.expectedStates;
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl.watch;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Polling schedule of a resource state transition. The first poll happens after
+ * the initial interval, then the interval doubles at each poll up to the
+ * maximum interval. A random jitter is applied to each interval so that watches
+ * created together do not hit the provider at the same time. The watch is given
+ * up once the timeout has expired.
+ */
+public class PollPolicy {
+    private static final double BACKOFF_FACTOR = 2;
+
+    private static final double JITTER = 0.2;
+
+    private final int initialIntervalInSeconds;
+
+    private final int maxIntervalInSeconds;
+
+    private final int timeoutInSeconds;
+
+    public PollPolicy(final int initialIntervalInSeconds, final int maxIntervalInSeconds, final int timeoutInSeconds) {
+        if (initialIntervalInSeconds <= 0 || maxIntervalInSeconds < initialIntervalInSeconds || timeoutInSeconds <= 0) {
+            throw new IllegalArgumentException("Invalid poll policy " + initialIntervalInSeconds + ","
+                + maxIntervalInSeconds + "," + timeoutInSeconds);
+        }
+        this.initialIntervalInSeconds = initialIntervalInSeconds;
+        this.maxIntervalInSeconds = maxIntervalInSeconds;
+        this.timeoutInSeconds = timeoutInSeconds;
+    }
+
+    /**
+     * Parses a poll policy of the form
+     * &lt;initialInterval&gt;,&lt;maxInterval&gt;,&lt;timeout&gt; in seconds
+     * 
+     * @throws IllegalArgumentException if the value is not a valid poll policy
+     */
+    public static PollPolicy valueOf(final String value) {
+        String[] tokens = value.split(",");
+        if (tokens.length != 3) {
+            throw new IllegalArgumentException("Invalid poll policy " + value
+                + ", expected <initialInterval>,<maxInterval>,<timeout>");
+        }
+        return new PollPolicy(Integer.parseInt(tokens[0].trim()), Integer.parseInt(tokens[1].trim()),
+            Integer.parseInt(tokens[2].trim()));
+    }
+
+    public int getInitialIntervalInSeconds() {
+        return this.initialIntervalInSeconds;
+    }
+
+    public int getMaxIntervalInSeconds() {
+        return this.maxIntervalInSeconds;
+    }
+
+    public int getTimeoutInSeconds() {
+        return this.timeoutInSeconds;
+    }
+
+    /**
+     * Returns the delay in milliseconds before the next poll
+     * 
+     * @param pollCount number of polls already performed
+     */
+    public long getPollDelayInMillis(final int pollCount) {
+        double interval = this.initialIntervalInSeconds * Math.pow(PollPolicy.BACKOFF_FACTOR, pollCount);
+        interval = Math.min(interval, this.maxIntervalInSeconds);
+        double jitter = 1 + PollPolicy.JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return (long) (interval * jitter * 1000);
+    }
+
+    @Override
+    public String toString() {
+        return this.initialIntervalInSeconds + "," + this.maxIntervalInSeconds + "," + this.timeoutInSeconds;
+    }
+
+}
@@ -0,0 +1,170 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl.watch;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
+import org.ow2.sirocco.cloudmanager.model.cimi.Job;
+
+/**
+ * A pending watch on the state transition of a resource. Watches are ordered by
+ * the time of their next poll so that they can be kept in a delay queue.
+ */
+public class ResourceWatch implements Delayed {
+    private Integer id;
+
+    private final String watchType;
+
+    private final ProviderTarget target;
+
+    private final String providerAssignedId;
+
+    private boolean pushEnabled;
+
+    private boolean notified;
+
+    private Job job;
+
+    private PollPolicy pollPolicy;
+
+    private long nextPollTime;
+
+    private long deadline;
+
+    private int pollCount;
+
+    public ResourceWatch(final String watchType, final ProviderTarget target, final String providerAssignedId) {
+        this.watchType = watchType;
+        this.target = target;
+        this.providerAssignedId = providerAssignedId;
+    }
+
+    /**
+     * Returns the id of the persistent state of this watch
+     */
+    public Integer getId() {
+        return this.id;
+    }
+
+    public void setId(final Integer id) {
+        this.id = id;
+    }
+
+    public String getWatchType() {
+        return this.watchType;
+    }
+
+    /**
+     * Returns the provider account and location hosting the watched resource
+     */
+    public ProviderTarget getTarget() {
+        return this.target;
+    }
+
+    /**
+     * Returns the provider id of the watched resource
+     */
+    public String getProviderAssignedId() {
+        return this.providerAssignedId;
+    }
+
+    /**
+     * Returns true if the provider pushes the state changes of the watched
+     * resource, in which case polling is only a fallback
+     */
+    public boolean isPushEnabled() {
+        return this.pushEnabled;
+    }
+
+    public void setPushEnabled(final boolean pushEnabled) {
+        this.pushEnabled = pushEnabled;
+    }
+
+    /**
+     * Returns true if a provider event made this watch due since its last poll
+     */
+    public boolean isNotified() {
+        return this.notified;
+    }
+
+    public void setNotified(final boolean notified) {
+        this.notified = notified;
+    }
+
+    public Job getJob() {
+        return this.job;
+    }
+
+    public ResourceWatch setJob(final Job job) {
+        this.job = job;
+        return this;
+    }
+
+    public PollPolicy getPollPolicy() {
+        return this.pollPolicy;
+    }
+
+    public void setPollPolicy(final PollPolicy pollPolicy) {
+        this.pollPolicy = pollPolicy;
+    }
+
+    public long getNextPollTime() {
+        return this.nextPollTime;
+    }
+
+    public void setNextPollTime(final long nextPollTime) {
+        this.nextPollTime = nextPollTime;
+    }
+
+    public long getDeadline() {
+        return this.deadline;
+    }
+
+    public void setDeadline(final long deadline) {
+        this.deadline = deadline;
+    }
+
+    public int getPollCount() {
+        return this.pollCount;
+    }
+
+    public void incrementPollCount() {
+        this.pollCount++;
+    }
+
+    @Override
+    public long getDelay(final TimeUnit unit) {
+        return unit.convert(this.nextPollTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(final Delayed other) {
+        if (other instanceof ResourceWatch) {
+            return Long.compare(this.nextPollTime, ((ResourceWatch) other).nextPollTime);
+        }
+        return Long.compare(this.getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+    }
+
+}
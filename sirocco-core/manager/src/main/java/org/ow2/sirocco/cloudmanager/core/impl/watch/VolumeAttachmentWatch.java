@@ -0,0 +1,59 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.impl.watch;
+
+import org.ow2.sirocco.cloudmanager.connector.api.ProviderTarget;
+import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineVolume;
+
+public class VolumeAttachmentWatch extends ResourceWatch {
+    public static final String VOLUME_ATTACHMENT_WATCH = "volumeAttachment";
+
+    private final Machine machine;
+
+    private final MachineVolume volumeAttachment;
+
+    private final MachineVolume.State[] expectedStates;
+
+    public VolumeAttachmentWatch(final Machine machine, final MachineVolume volumeAttachment,
+        final MachineVolume.State... expectedStates) {
+        super(VolumeAttachmentWatch.VOLUME_ATTACHMENT_WATCH, new ProviderTarget().account(machine.getCloudProviderAccount())
+            .location(machine.getLocation()), machine.getProviderAssignedId());
+        this.machine = machine;
+        this.volumeAttachment = volumeAttachment;
+        this.expectedStates = expectedStates;
+    }
+
+    public Machine getMachine() {
+        return this.machine;
+    }
+
+    public MachineVolume getVolumeAttachment() {
+        return this.volumeAttachment;
+    }
+
+    public MachineVolume.State[] getExpectedStates() {
+        return this.expectedStates;
+    }
+
+}
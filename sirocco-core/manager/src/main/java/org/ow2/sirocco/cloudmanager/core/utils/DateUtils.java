@@ -51,7 +51,11 @@ public class DateUtils {
 
     private final static Pattern ISO8601DatePattern = Pattern.compile(DateUtils.DATE_REG_EXP);
 
-    public static String convertISO8601DateToSQLDate(String value) throws ParseException {
+    public static String convertISO8601DateToSQLDate(final String value) throws ParseException {
+        return DateUtils.convertISO8601DateToTimestamp(value).toString();
+    }
+
+    public static java.sql.Timestamp convertISO8601DateToTimestamp(String value) throws ParseException {
         Calendar date = null;
 
         try {
@@ -108,7 +112,7 @@ public class DateUtils {
         }
 
         if (date != null) {
-            return new java.sql.Timestamp(date.getTime().getTime()).toString();
+            return new java.sql.Timestamp(date.getTime().getTime());
         } else {
             throw new ParseException("Wrong datetime format");
         }
@@ -0,0 +1,216 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 France Telecom
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.utils;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.PluralAttribute;
+
+import org.ow2.sirocco.cloudmanager.model.cimi.extension.ICloudProviderResource;
+import org.ow2.sirocco.cloudmanager.model.cimi.extension.IMultiCloudResource;
+
+/**
+ * Selects a subset of the attributes of an entity type. Single-valued
+ * attributes are fetched with a single JPQL projection query, without loading
+ * the entities and their eager collections, then set on new instances of the
+ * entity class. Collection attributes, if selected, are fetched with one query
+ * per attribute for the whole page. Projections are built once per entity class
+ * and attribute set.
+ */
+class EntityProjection {
+    private static final int MAX_CACHED_PROJECTIONS = 1000;
+
+    private static final ConcurrentMap<String, EntityProjection> projections = new ConcurrentHashMap<>();
+
+    private final Class<?> clazz;
+
+    private final List<Method> singularSetters = new ArrayList<>();
+
+    private final StringBuilder selectClause = new StringBuilder("v.id");
+
+    private final StringBuilder joinClause = new StringBuilder();
+
+    private final List<PluralAttribute<?, ?, ?>> pluralAttributes = new ArrayList<>();
+
+    private final List<Method> pluralSetters = new ArrayList<>();
+
+    /**
+     * Returns the projection of an entity class on a list of attributes.
+     * Unknown and non persistent attribute names are ignored.
+     */
+    static EntityProjection getProjection(final EntityManager em, final Class<?> clazz, final List<String> attributes) {
+        Set<String> names = new LinkedHashSet<>();
+        names.add("uuid");
+        if (ICloudProviderResource.class.isAssignableFrom(clazz)) {
+            names.add("location");
+            names.add("providerAssignedId");
+            names.add("cloudProviderAccount");
+        } else if (IMultiCloudResource.class.isAssignableFrom(clazz)) {
+            names.add("providerMappings");
+        }
+        names.addAll(attributes);
+        String key = clazz.getName() + names;
+        EntityProjection projection = EntityProjection.projections.get(key);
+        if (projection == null) {
+            projection = new EntityProjection(em.getMetamodel().entity(clazz), names);
+            if (EntityProjection.projections.size() < EntityProjection.MAX_CACHED_PROJECTIONS) {
+                EntityProjection.projections.putIfAbsent(key, projection);
+            }
+        }
+        return projection;
+    }
+
+    private EntityProjection(final EntityType<?> entityType, final Set<String> names) {
+        this.clazz = entityType.getJavaType();
+        Map<String, PropertyDescriptor> properties = new HashMap<>();
+        try {
+            for (PropertyDescriptor property : Introspector.getBeanInfo(this.clazz).getPropertyDescriptors()) {
+                properties.put(property.getName(), property);
+            }
+        } catch (IntrospectionException e) {
+            throw new IllegalArgumentException(e);
+        }
+        for (String name : names) {
+            Attribute<?, ?> attribute;
+            try {
+                attribute = entityType.getAttribute(name);
+            } catch (IllegalArgumentException e) {
+                // ignore wrong attribute name
+                continue;
+            }
+            PropertyDescriptor property = properties.get(name);
+            if (property == null || property.getWriteMethod() == null) {
+                continue;
+            }
+            if (attribute.isCollection()) {
+                this.pluralAttributes.add((PluralAttribute<?, ?, ?>) attribute);
+                this.pluralSetters.add(property.getWriteMethod());
+            } else if (attribute.isAssociation()) {
+                // outer join so that a null association does not discard the
+                // row
+                String alias = "j" + this.singularSetters.size();
+                this.joinClause.append(" LEFT JOIN v." + name + " " + alias);
+                this.selectClause.append(", " + alias);
+                this.singularSetters.add(property.getWriteMethod());
+            } else {
+                this.selectClause.append(", v." + name);
+                this.singularSetters.add(property.getWriteMethod());
+            }
+        }
+    }
+
+    /**
+     * Returns the select items of the projection query, the first one being
+     * the entity id, for an entity aliased v
+     */
+    String getSelectClause() {
+        return this.selectClause.toString();
+    }
+
+    /**
+     * Returns the joins of the projection query, to be appended to the from
+     * clause
+     */
+    String getJoinClause() {
+        return this.joinClause.toString();
+    }
+
+    /**
+     * Builds the entities from the rows returned by the projection query, then
+     * fetches their selected collection attributes
+     */
+    @SuppressWarnings("unchecked")
+    <E> List<E> toEntities(final EntityManager em, final String entityType, final List<Object[]> rows)
+        throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        List<E> entities = new ArrayList<E>(rows.size());
+        Map<Object, E> entitiesById = new HashMap<>();
+        for (Object[] row : rows) {
+            E entity = (E) this.clazz.newInstance();
+            for (int i = 0; i < this.singularSetters.size(); i++) {
+                this.singularSetters.get(i).invoke(entity, row[i + 1]);
+            }
+            entities.add(entity);
+            entitiesById.put(row[0], entity);
+        }
+        if (!entitiesById.isEmpty()) {
+            for (int i = 0; i < this.pluralAttributes.size(); i++) {
+                this.fetchCollection(em, entityType, this.pluralAttributes.get(i), this.pluralSetters.get(i), entitiesById);
+            }
+        }
+        return entities;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E> void fetchCollection(final EntityManager em, final String entityType,
+        final PluralAttribute<?, ?, ?> attribute, final Method setter, final Map<Object, E> entitiesById)
+        throws IllegalAccessException, InvocationTargetException {
+        boolean isMap = attribute.getCollectionType() == PluralAttribute.CollectionType.MAP;
+        Map<Object, Object> collections = new HashMap<>();
+        for (Object id : entitiesById.keySet()) {
+            Object collection;
+            if (isMap) {
+                collection = new HashMap<Object, Object>();
+            } else if (attribute.getCollectionType() == PluralAttribute.CollectionType.SET) {
+                collection = new HashSet<Object>();
+            } else {
+                collection = new ArrayList<Object>();
+            }
+            collections.put(id, collection);
+        }
+        List<Object[]> rows = em
+            .createQuery(
+                "SELECT v.id, " + (isMap ? "KEY(e), VALUE(e)" : "e") + " FROM " + entityType + " v JOIN v."
+                    + attribute.getName() + " e WHERE v.id IN :ids").setParameter("ids", entitiesById.keySet())
+            .getResultList();
+        for (Object[] row : rows) {
+            Object collection = collections.get(row[0]);
+            if (isMap) {
+                ((Map<Object, Object>) collection).put(row[1], row[2]);
+            } else {
+                ((Collection<Object>) collection).add(row[1]);
+            }
+        }
+        for (Map.Entry<Object, E> entry : entitiesById.entrySet()) {
+            setter.invoke(entry.getValue(), collections.get(entry.getKey()));
+        }
+    }
+
+}
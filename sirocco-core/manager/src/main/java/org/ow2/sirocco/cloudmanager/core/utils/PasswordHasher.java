@@ -0,0 +1,146 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.utils;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * Hashes user passwords with PBKDF2. Hashes are stored as
+ * pbkdf2-sha1$&lt;iterations&gt;$&lt;salt&gt;$&lt;hash&gt;, salt and hash being base64
+ * encoded. Legacy unsalted MD5 hashes are still produced for the container
+ * realm authenticating remote EJB clients, and verified so that they can be
+ * replaced on the next successful login.
+ */
+public class PasswordHasher {
+    public static final String MD5 = "MD5";
+
+    public static final String PBKDF2 = "PBKDF2";
+
+    private static final String PREFIX = "pbkdf2-sha1$";
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA1";
+
+    private static final int ITERATIONS = 20000;
+
+    private static final int SALT_LENGTH = 16;
+
+    private static final int HASH_LENGTH_IN_BITS = 160;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private PasswordHasher() {
+    }
+
+    /**
+     * Returns the hash of a password, with a new random salt
+     */
+    public static String hash(final String password) {
+        byte[] salt = new byte[PasswordHasher.SALT_LENGTH];
+        PasswordHasher.random.nextBytes(salt);
+        byte[] hash = PasswordHasher.pbkdf2(password, salt, PasswordHasher.ITERATIONS);
+        return PasswordHasher.PREFIX + PasswordHasher.ITERATIONS + "$" + DatatypeConverter.printBase64Binary(salt) + "$"
+            + DatatypeConverter.printBase64Binary(hash);
+    }
+
+    /**
+     * Returns the legacy hash of a password: hex-encoded MD5 digest of the
+     * password in the platform charset
+     */
+    public static String legacyHash(final String password) {
+        try {
+            byte[] array = MessageDigest.getInstance("MD5").digest(password.getBytes());
+            StringBuffer sb = new StringBuffer();
+            for (byte element : array) {
+                sb.append(Integer.toHexString((element & 0xFF) | 0x100).substring(1, 3));
+            }
+            return sb.toString();
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Checks a password against a stored hash, in constant time for a given
+     * hash
+     */
+    public static boolean verify(final String password, final String storedHash) {
+        if (storedHash == null) {
+            return false;
+        }
+        if (storedHash.startsWith(PasswordHasher.PREFIX)) {
+            String[] tokens = storedHash.substring(PasswordHasher.PREFIX.length()).split("\\$");
+            if (tokens.length != 3) {
+                return false;
+            }
+            try {
+                byte[] salt = DatatypeConverter.parseBase64Binary(tokens[1]);
+                byte[] hash = DatatypeConverter.parseBase64Binary(tokens[2]);
+                return MessageDigest.isEqual(hash, PasswordHasher.pbkdf2(password, salt, Integer.parseInt(tokens[0])));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return MessageDigest.isEqual(storedHash.getBytes(PasswordHasher.UTF8),
+            PasswordHasher.legacyHash(password).getBytes(PasswordHasher.UTF8));
+    }
+
+    /**
+     * Returns true if a stored hash should be replaced with a hash of the
+     * current algorithm and strength
+     */
+    public static boolean needsRehash(final String storedHash) {
+        if (storedHash == null || !storedHash.startsWith(PasswordHasher.PREFIX)) {
+            return true;
+        }
+        int end = storedHash.indexOf('$', PasswordHasher.PREFIX.length());
+        if (end < 0) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(storedHash.substring(PasswordHasher.PREFIX.length(), end)) < PasswordHasher.ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] pbkdf2(final String password, final byte[] salt, final int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, PasswordHasher.HASH_LENGTH_IN_BITS);
+        try {
+            return SecretKeyFactory.getInstance(PasswordHasher.ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+}
@@ -25,7 +25,12 @@ package org.ow2.sirocco.cloudmanager.core.utils;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -33,6 +38,7 @@ import javax.persistence.Query;
 
 import org.apache.commons.beanutils.PropertyUtils;
 import org.ow2.sirocco.cloudmanager.core.api.QueryParams;
+import org.ow2.sirocco.cloudmanager.core.api.QueryParams.CountMode;
 import org.ow2.sirocco.cloudmanager.core.api.QueryResult;
 import org.ow2.sirocco.cloudmanager.core.api.exception.CloudProviderException;
 import org.ow2.sirocco.cloudmanager.core.api.exception.InvalidRequestException;
@@ -40,14 +46,29 @@ import org.ow2.sirocco.cloudmanager.model.cimi.CloudCollectionItem;
 import org.ow2.sirocco.cloudmanager.model.cimi.CloudResource;
 import org.ow2.sirocco.cloudmanager.model.cimi.Identifiable;
 import org.ow2.sirocco.cloudmanager.model.cimi.Resource;
-import org.ow2.sirocco.cloudmanager.model.cimi.extension.ICloudProviderResource;
-import org.ow2.sirocco.cloudmanager.model.cimi.extension.IMultiCloudResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 public class QueryHelper {
     private static Logger logger = LoggerFactory.getLogger(QueryHelper.class.getName());
 
+    private static final int MAX_CACHED_FILTERS = 1000;
+
+    private static final String BATCH_HINT = "eclipselink.batch";
+
+    private static final String BATCH_TYPE_HINT = "eclipselink.batch.type";
+
+    /**
+     * JPQL conditions of the filter expressions already parsed, keyed by
+     * variable name, state class prefix, parameter prefix and filter
+     * expression
+     */
+    private static final Cache<String, CompiledFilter> filterClauses = CacheBuilder.newBuilder()
+        .maximumSize(QueryHelper.MAX_CACHED_FILTERS).build();
+
     public static class QueryParamsBuilder {
         private String entityType;
 
@@ -61,8 +82,12 @@ public class QueryHelper {
 
         private String marker;
 
+        private String cursor;
+
         private Integer limit;
 
+        private CountMode countMode = CountMode.EXACT;
+
         private String providerUuid;
 
         private String locationUuid;
@@ -83,6 +108,8 @@ public class QueryHelper {
 
         private boolean returnPublicEntities = false;
 
+        private List<String> fetchedRelations = Collections.emptyList();
+
         private QueryParamsBuilder(final String entityType, final Class<?> clazz) {
             this.entityType = entityType;
             this.clazz = clazz;
@@ -155,6 +182,25 @@ public class QueryHelper {
             return this;
         }
 
+        /**
+         * Lazy relations of the entity to load along with the list, in one
+         * query per relation for the whole page
+         */
+        public QueryParamsBuilder fetch(final String... relations) {
+            this.fetchedRelations = Arrays.asList(relations);
+            return this;
+        }
+
+        public QueryParamsBuilder cursor(final String cursor) {
+            this.cursor = cursor;
+            return this;
+        }
+
+        public QueryParamsBuilder countMode(final CountMode countMode) {
+            this.countMode = countMode;
+            return this;
+        }
+
         public QueryParamsBuilder last(final int last) {
             this.last = last;
             if (last == -1) {
@@ -170,7 +216,11 @@ public class QueryHelper {
                 this.filters = queryParams.getFilters();
                 this.attributes = queryParams.getAttributes();
                 this.marker = queryParams.getMarker();
+                this.cursor = queryParams.getCursor();
                 this.limit = queryParams.getLimit();
+                if (queryParams.getCountMode() != null) {
+                    this.countMode = queryParams.getCountMode();
+                }
                 this.providerUuid = queryParams.getProviderUuid();
                 this.locationUuid = queryParams.getLocationUuid();
             }
@@ -221,10 +271,18 @@ public class QueryHelper {
             return this.marker;
         }
 
+        public String getCursor() {
+            return this.cursor;
+        }
+
         public Integer getLimit() {
             return this.limit;
         }
 
+        public CountMode getCountMode() {
+            return this.countMode;
+        }
+
         public boolean isFilterEmbbededTemplate() {
             return this.filterEmbbededTemplate;
         }
@@ -245,6 +303,10 @@ public class QueryHelper {
             return this.returnPublicEntities;
         }
 
+        public List<String> getFetchedRelations() {
+            return this.fetchedRelations;
+        }
+
     }
 
     /**
@@ -273,16 +335,24 @@ public class QueryHelper {
             if (tenantQuery.length() > 0) {
                 stateQuery = " AND ";
             }
-            stateQuery = stateQuery + " v.state<>" + stateToIgnore.getClass().getName() + "." + stateToIgnore.name() + " ";
+            stateQuery = stateQuery + " v.state<>:stateToIgnore ";
+        }
+        Query query = em.createQuery("SELECT v FROM " + entityType + " v WHERE " + tenantQuery + stateQuery
+            + " ORDER BY v.id DESC");
+        if (tenantId != null) {
+            query.setParameter("tenantId", tenantId);
+        }
+        if (stateToIgnore != null) {
+            query.setParameter("stateToIgnore", stateToIgnore);
         }
-        return em.createQuery("SELECT v FROM " + entityType + " v WHERE " + tenantQuery + stateQuery + " ORDER BY v.id DESC")
-            .setParameter("tenantId", tenantId).getResultList();
+        return query.getResultList();
 
     }
 
     public static <E extends Identifiable> QueryResult<E> getEntityList(final EntityManager em, final QueryParamsBuilder params)
         throws InvalidRequestException {
         StringBuffer whereClauseSB = new StringBuffer();
+        Map<String, Object> parameters = new HashMap<String, Object>();
         if (params.getTenantId() != null) {
             if (!params.isReturnPublicEntities()) {
                 whereClauseSB.append(" v.tenant.id=:tenantId ");
@@ -290,13 +360,14 @@ public class QueryHelper {
                 whereClauseSB
                     .append("( v.tenant.id=:tenantId OR v.visibility = org.ow2.sirocco.cloudmanager.model.cimi.extension.Visibility.PUBLIC) ");
             }
+            parameters.put("tenantId", params.getTenantId());
         }
         if (params.getStateToIgnore() != null) {
             if (whereClauseSB.length() > 0) {
                 whereClauseSB.append(" AND ");
             }
-            whereClauseSB.append(" v.state<>" + params.getStateToIgnore().getClass().getName() + "."
-                + params.getStateToIgnore().name() + " ");
+            whereClauseSB.append(" v.state<>:stateToIgnore ");
+            parameters.put("stateToIgnore", params.getStateToIgnore());
         }
         if (params.isFilterEmbbededTemplate()) {
             if (whereClauseSB.length() > 0) {
@@ -308,7 +379,7 @@ public class QueryHelper {
             String filterClause;
             try {
                 filterClause = QueryHelper.generateFilterClause(params.getFilters(), "v", params.getClazz().getName()
-                    + "$State.");
+                    + "$State.", parameters);
             } catch (ParseException ex) {
                 throw new InvalidRequestException("Parsing error in filter expression " + ex.getMessage());
             } catch (TokenMgrError ex) {
@@ -325,22 +396,33 @@ public class QueryHelper {
             if (whereClauseSB.length() > 0) {
                 whereClauseSB.append(" AND ");
             }
-            whereClauseSB.append(" v.cloudProviderAccount.uuid='" + params.getProviderUuid() + "' ");
+            whereClauseSB.append(" v.cloudProviderAccount.uuid=:providerUuid ");
+            parameters.put("providerUuid", params.getProviderUuid());
         }
         if (params.getLocationUuid() != null) {
             if (whereClauseSB.length() > 0) {
                 whereClauseSB.append(" AND ");
             }
-            whereClauseSB.append(" v.location.uuid='" + params.getLocationUuid() + "' ");
+            whereClauseSB.append(" v.location.uuid=:locationUuid ");
+            parameters.put("locationUuid", params.getLocationUuid());
         }
 
         String whereClause = whereClauseSB.toString();
 
         try {
-            int count = ((Number) em.createQuery("SELECT COUNT(v) FROM " + params.getEntityType() + " v WHERE " + whereClause)
-                .setParameter("tenantId", params.getTenantId()).getSingleResult()).intValue();
+            int count = -1;
+            if (params.getCountMode() == CountMode.EXACT) {
+                Query countQuery = em.createQuery("SELECT COUNT(v) FROM " + params.getEntityType() + " v WHERE " + whereClause);
+                count = ((Number) QueryHelper.setParameters(countQuery, parameters).getSingleResult()).intValue();
+            }
 
-            if (params.getMarker() != null) {
+            if (params.getCursor() != null) {
+                if (whereClauseSB.length() > 0) {
+                    whereClauseSB.append(" AND ");
+                }
+                whereClauseSB.append(" v.id<:cursorId ");
+                parameters.put("cursorId", QueryHelper.decodeCursor(params.getCursor()));
+            } else if (params.getMarker() != null) {
                 try {
                     Resource resourceAtMarker = (Resource) em
                         .createQuery("SELECT r FROM " + params.getEntityType() + " r WHERE r.uuid=:uuid")
@@ -348,61 +430,75 @@ public class QueryHelper {
                     if (whereClauseSB.length() > 0) {
                         whereClauseSB.append(" AND ");
                     }
-                    whereClauseSB.append(" v.id>" + resourceAtMarker.getId() + " ");
+                    whereClauseSB.append(" v.id>:markerId ");
+                    parameters.put("markerId", resourceAtMarker.getId());
                 } catch (NoResultException e) {
                     throw new InvalidRequestException("Invalid marker " + params.getMarker());
                 }
             }
             whereClause = whereClauseSB.toString();
 
+            EntityProjection projection = null;
+            if (params.getAttributes() != null && params.getAttributes().size() != 0) {
+                projection = EntityProjection.getProjection(em, params.getClazz(), params.getAttributes());
+            }
+            String selectClause = projection != null ? projection.getSelectClause() : "v";
+            String joinClause = projection != null ? projection.getJoinClause() : "";
             Query query = em.createQuery(
-                "SELECT v FROM " + params.getEntityType() + " v  WHERE " + whereClause + " ORDER BY v.id DESC").setParameter(
-                "tenantId", params.getTenantId());
-            if (params.getLimit() != null) {
-                query.setMaxResults(params.getLimit());
+                "SELECT " + selectClause + " FROM " + params.getEntityType() + " v" + joinClause + " WHERE " + whereClause
+                    + " ORDER BY v.id DESC");
+            QueryHelper.setParameters(query, parameters);
+            if (projection == null && !params.getFetchedRelations().isEmpty()) {
+                for (String relation : params.getFetchedRelations()) {
+                    query.setHint(QueryHelper.BATCH_HINT, "v." + relation);
+                }
+                query.setHint(QueryHelper.BATCH_TYPE_HINT, "IN");
+            }
+            int offset = 0;
+            Integer maxResults = null;
+            if (params.getLimit() != null || params.getCursor() != null) {
+                maxResults = params.getLimit();
             } else {
                 if (params.getFirst() != null) {
                     query.setFirstResult(params.getFirst());
+                    offset = params.getFirst();
                 }
                 if (params.getLast() != null) {
                     if (params.getFirst() != null) {
-                        query.setMaxResults(params.getLast() - params.getFirst() + 1);
+                        maxResults = params.getLast() - params.getFirst() + 1;
                     } else {
-                        query.setMaxResults(params.getLast() + 1);
+                        maxResults = params.getLast() + 1;
                     }
                 }
             }
-            List<E> queryResult = query.getResultList();
-            if (params.getAttributes() != null && params.getAttributes().size() != 0) {
-                List<E> items = new ArrayList<E>();
-                for (E from : queryResult) {
-                    E resource = (E) params.getClazz().newInstance();
-                    for (int i = 0; i < params.getAttributes().size(); i++) {
-                        try {
-                            PropertyUtils.setSimpleProperty(resource, params.getAttributes().get(i),
-                                PropertyUtils.getSimpleProperty(from, params.getAttributes().get(i)));
-                        } catch (NoSuchMethodException e) {
-                            // ignore wrong attribute name
-                        }
-                    }
-                    resource.setUuid(from.getUuid());
-                    if (resource instanceof ICloudProviderResource) {
-                        ICloudProviderResource fromResource = (ICloudProviderResource) from;
-                        ICloudProviderResource toResource = (ICloudProviderResource) resource;
-                        toResource.setLocation(fromResource.getLocation());
-                        toResource.setProviderAssignedId(fromResource.getProviderAssignedId());
-                        toResource.setCloudProviderAccount(fromResource.getCloudProviderAccount());
-                    } else if (resource instanceof IMultiCloudResource) {
-                        IMultiCloudResource fromResource = (IMultiCloudResource) from;
-                        IMultiCloudResource toResource = (IMultiCloudResource) resource;
-                        toResource.setProviderMappings(fromResource.getProviderMappings());
-                    }
-                    items.add(resource);
+            if (maxResults != null) {
+                // fetch one more item to know whether a next page exists
+                query.setMaxResults(maxResults + 1);
+            }
+            List<Object> queryResult = query.getResultList();
+            boolean hasMore = maxResults != null && queryResult.size() > maxResults;
+            String nextCursor = null;
+            if (hasMore) {
+                queryResult = new ArrayList<Object>(queryResult.subList(0, maxResults));
+                if (!queryResult.isEmpty()) {
+                    Object last = queryResult.get(queryResult.size() - 1);
+                    nextCursor = QueryHelper.encodeCursor(projection != null ? ((Object[]) last)[0] : em
+                        .getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(last));
                 }
-                return new QueryResult<E>(count, items);
+            }
+            if (params.getCountMode() == CountMode.ESTIMATE) {
+                count = offset + queryResult.size() + (hasMore ? 1 : 0);
+            }
+            List<E> items;
+            if (projection != null) {
+                items = projection.toEntities(em, params.getEntityType(), (List<Object[]>) (List<?>) queryResult);
             } else {
-                return new QueryResult<E>(count, queryResult);
+                items = (List<E>) queryResult;
+                QueryHelper.loadRelations(items, params.getFetchedRelations());
             }
+            QueryResult<E> result = new QueryResult<E>(count, items);
+            result.setNextCursor(nextCursor);
+            return result;
         } catch (IllegalArgumentException ex) {
             ex.printStackTrace();
             throw new InvalidRequestException(ex.getMessage());
@@ -417,28 +513,70 @@ public class QueryHelper {
         }
     }
 
+    /**
+     * Loads the given lazy relations of the entities. Thanks to the batch hints
+     * set on the list query, the first access to a relation loads it for all
+     * the entities at once.
+     */
+    private static void loadRelations(final List<?> entities, final List<String> relations) {
+        for (Object entity : entities) {
+            for (String relation : relations) {
+                try {
+                    Object value = PropertyUtils.getSimpleProperty(entity, relation);
+                    if (value instanceof Collection) {
+                        ((Collection<?>) value).size();
+                    } else if (value instanceof Map) {
+                        ((Map<?, ?>) value).size();
+                    }
+                } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+                    QueryHelper.logger.warn("Cannot load relation " + relation + " of " + entity.getClass().getSimpleName(),
+                        e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encodes the position of an item in the id-ordered list of entities as an
+     * opaque cursor
+     */
+    private static String encodeCursor(final Object id) {
+        return Long.toString(((Number) id).longValue(), Character.MAX_RADIX);
+    }
+
+    private static int decodeCursor(final String cursor) throws InvalidRequestException {
+        try {
+            return Integer.parseInt(cursor, Character.MAX_RADIX);
+        } catch (NumberFormatException e) {
+            throw new InvalidRequestException("Invalid cursor " + cursor);
+        }
+    }
+
     public static <E> QueryResult<E> getCollectionItemList(final EntityManager em, final QueryParamsBuilder params)
         throws InvalidRequestException {
         StringBuffer whereClauseSB = new StringBuffer();
+        Map<String, Object> parameters = new HashMap<String, Object>();
         if (params.getTenantId() != null) {
             whereClauseSB.append(" v.tenant.id=:tenantId ");
+            parameters.put("tenantId", params.getTenantId());
         }
         if (params.getStateToIgnore() != null) {
             if (whereClauseSB.length() > 0) {
                 whereClauseSB.append(" AND ");
             }
-            whereClauseSB.append(" vv.state<>" + params.getStateToIgnore().getClass().getName() + "."
-                + params.getStateToIgnore().name() + " ");
+            whereClauseSB.append(" vv.state<>:stateToIgnore ");
+            parameters.put("stateToIgnore", params.getStateToIgnore());
         }
         if (whereClauseSB.length() > 0) {
             whereClauseSB.append(" AND ");
         }
         whereClauseSB.append("v.uuid=:cid ");
+        parameters.put("cid", params.getContainerId());
         if (params.getFilters() != null) {
             String filterClause;
             try {
                 filterClause = QueryHelper.generateFilterClause(params.getFilters(), "vv", params.getClazz().getName()
-                    + "$State.");
+                    + "$State.", parameters);
             } catch (ParseException ex) {
                 throw new InvalidRequestException("Parsing error in filter expression " + ex.getMessage());
             } catch (TokenMgrError ex) {
@@ -456,12 +594,11 @@ public class QueryHelper {
         String queryExpression = "SELECT COUNT(vv) FROM " + params.getEntityType() + " vv, " + params.getContainerType()
             + " v WHERE vv MEMBER OF v." + params.getContainerAttributeName() + " AND " + whereClause;
         try {
-            int count = ((Number) em.createQuery(queryExpression).setParameter("cid", params.getContainerId())
-                .setParameter("tenantId", params.getTenantId()).getSingleResult()).intValue();
+            int count = ((Number) QueryHelper.setParameters(em.createQuery(queryExpression), parameters).getSingleResult())
+                .intValue();
             queryExpression = "SELECT vv FROM " + params.getEntityType() + " vv, " + params.getContainerType()
                 + " v WHERE vv MEMBER OF v." + params.getContainerAttributeName() + " AND " + whereClause + " ORDER BY vv.id";
-            Query query = em.createQuery(queryExpression).setParameter("cid", params.getContainerId())
-                .setParameter("tenantId", params.getTenantId());
+            Query query = QueryHelper.setParameters(em.createQuery(queryExpression), parameters);
 
             if (params.getFirst() != null) {
                 query.setFirstResult(params.getFirst());
@@ -506,22 +643,76 @@ public class QueryHelper {
         }
     }
 
-    private static String generateFilterClause(final List<String> filters, final String variableName,
-        final String stateClassPrefix) throws ParseException {
+    /**
+     * Generates the JPQL condition of a list of filter expressions and adds
+     * the values of its named parameters to the given parameters
+     */
+    static String generateFilterClause(final List<String> filters, final String variableName,
+        final String stateClassPrefix, final Map<String, Object> parameters) throws ParseException {
         StringBuffer jpqlFilterClause = new StringBuffer();
         if (filters != null) {
-            for (String filter : filters) {
-                FilterExpressionParser parser = new FilterExpressionParser(filter, variableName, stateClassPrefix);
-                parser.parse();
+            for (int i = 0; i < filters.size(); i++) {
                 if (jpqlFilterClause.length() > 0) {
                     jpqlFilterClause.append(" AND ");
                 }
-                jpqlFilterClause.append(parser.getQuery());
+                CompiledFilter compiledFilter = QueryHelper.compileFilter(filters.get(i), variableName, stateClassPrefix,
+                    "filter" + i + "_");
+                jpqlFilterClause.append(compiledFilter.getQuery());
+                parameters.putAll(compiledFilter.getParameters());
             }
         }
         return jpqlFilterClause.toString();
     }
 
+    /**
+     * Translates a filter expression into a JPQL condition. Clients keep
+     * sending the same few filters so translations are cached rather than
+     * parsed again on each request.
+     */
+    private static CompiledFilter compileFilter(final String filter, final String variableName,
+        final String stateClassPrefix, final String parameterPrefix) throws ParseException {
+        String key = variableName + '|' + stateClassPrefix + '|' + parameterPrefix + '|' + filter;
+        CompiledFilter compiledFilter = QueryHelper.filterClauses.getIfPresent(key);
+        if (compiledFilter == null) {
+            FilterExpressionParser parser = new FilterExpressionParser(filter, variableName, stateClassPrefix,
+                parameterPrefix);
+            parser.parse();
+            compiledFilter = new CompiledFilter(parser.getQuery(), parser.getParameters());
+            QueryHelper.filterClauses.put(key, compiledFilter);
+        }
+        return compiledFilter;
+    }
+
+    private static Query setParameters(final Query query, final Map<String, Object> parameters) {
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            query.setParameter(parameter.getKey(), parameter.getValue());
+        }
+        return query;
+    }
+
+    /**
+     * JPQL condition of a filter expression, with the values of its named
+     * parameters
+     */
+    private static class CompiledFilter {
+        private final String query;
+
+        private final Map<String, Object> parameters;
+
+        CompiledFilter(final String query, final Map<String, Object> parameters) {
+            this.query = query;
+            this.parameters = Collections.unmodifiableMap(parameters);
+        }
+
+        String getQuery() {
+            return this.query;
+        }
+
+        Map<String, Object> getParameters() {
+            return this.parameters;
+        }
+    }
+
     /**
      * gets a cloudCollection from an Id
      * 
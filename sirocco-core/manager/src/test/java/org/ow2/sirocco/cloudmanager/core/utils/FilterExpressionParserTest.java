@@ -0,0 +1,140 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.utils;
+
+import java.sql.Timestamp;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.sirocco.cloudmanager.model.cimi.Job;
+import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
+
+public class FilterExpressionParserTest {
+    private static final String MACHINE_STATE_PREFIX = Machine.class.getName() + "$State.";
+
+    private FilterExpressionParser parse(final String filter, final String stateClassPrefix) throws ParseException {
+        FilterExpressionParser parser = new FilterExpressionParser(filter, "v", stateClassPrefix);
+        parser.parse();
+        return parser;
+    }
+
+    private FilterExpressionParser parse(final String filter) throws ParseException {
+        return this.parse(filter, FilterExpressionParserTest.MACHINE_STATE_PREFIX);
+    }
+
+    @Test
+    public void testStringComparand() throws Exception {
+        FilterExpressionParser parser = this.parse("name='my machine'");
+        Assert.assertEquals("( v.name = :p0 )", parser.getQuery());
+        Assert.assertEquals("my machine", parser.getParameters().get("p0"));
+
+        parser = this.parse("\"my machine\"!=name");
+        Assert.assertEquals("( :p0 != v.name )", parser.getQuery());
+        Assert.assertEquals("my machine", parser.getParameters().get("p0"));
+    }
+
+    @Test
+    public void testQuotesAreNotInterpreted() throws Exception {
+        FilterExpressionParser parser = this.parse("description=\"it's' OR 1=1\"");
+        Assert.assertEquals("( v.description = :p0 )", parser.getQuery());
+        Assert.assertEquals("it's' OR 1=1", parser.getParameters().get("p0"));
+    }
+
+    @Test
+    public void testIntegerComparand() throws Exception {
+        FilterExpressionParser parser = this.parse("cpu>=2");
+        Assert.assertEquals("( v.cpu >= :p0 )", parser.getQuery());
+        Assert.assertEquals(Integer.valueOf(2), parser.getParameters().get("p0"));
+
+        parser = this.parse("memory<4294967296");
+        Assert.assertEquals(Long.valueOf(4294967296L), parser.getParameters().get("p0"));
+    }
+
+    @Test
+    public void testDateComparand() throws Exception {
+        FilterExpressionParser parser = this.parse("created>2013-01-01T10:00:00Z");
+        Assert.assertEquals("( v.created > :p0 )", parser.getQuery());
+        Object unquoted = parser.getParameters().get("p0");
+        Assert.assertTrue(unquoted instanceof Timestamp);
+
+        parser = this.parse("updated<'2013-01-01T10:00:00Z'");
+        Assert.assertEquals(unquoted, parser.getParameters().get("p0"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testInvalidDate() throws Exception {
+        this.parse("created>'yesterday'");
+    }
+
+    @Test
+    public void testStateComparand() throws Exception {
+        FilterExpressionParser parser = this.parse("state=STARTED");
+        Assert.assertEquals("( v.state = :p0 )", parser.getQuery());
+        Assert.assertEquals(Machine.State.STARTED, parser.getParameters().get("p0"));
+
+        // a quoted state is bound as the enum too, not as a string
+        parser = this.parse("state='STARTED'");
+        Assert.assertEquals(Machine.State.STARTED, parser.getParameters().get("p0"));
+        parser = this.parse("\"STOPPED\"=state");
+        Assert.assertEquals(Machine.State.STOPPED, parser.getParameters().get("p0"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testInvalidState() throws Exception {
+        this.parse("state='RUNNING'");
+    }
+
+    @Test
+    public void testStateOfEntityWithoutStateEnum() throws Exception {
+        FilterExpressionParser parser = this.parse("state='RUNNING'", Job.class.getName() + "$State.");
+        Assert.assertEquals("RUNNING", parser.getParameters().get("p0"));
+    }
+
+    @Test
+    public void testPropertyComparand() throws Exception {
+        FilterExpressionParser parser = this.parse("property['color']=\"blue\"");
+        Assert.assertEquals("( v.properties[:p0] = :p1 )", parser.getQuery());
+        Assert.assertEquals("color", parser.getParameters().get("p0"));
+        Assert.assertEquals("blue", parser.getParameters().get("p1"));
+    }
+
+    @Test
+    public void testBooleanExpression() throws Exception {
+        FilterExpressionParser parser = new FilterExpressionParser("name='a' and (cpu=1 or state=STOPPED)", "m",
+            FilterExpressionParserTest.MACHINE_STATE_PREFIX, "f_");
+        parser.parse();
+        Assert.assertEquals("( m.name = :f_0  AND ( m.cpu = :f_1  OR  m.state = :f_2 ))", parser.getQuery());
+        Map<String, Object> parameters = parser.getParameters();
+        Assert.assertEquals(3, parameters.size());
+        Assert.assertEquals("a", parameters.get("f_0"));
+        Assert.assertEquals(Integer.valueOf(1), parameters.get("f_1"));
+        Assert.assertEquals(Machine.State.STOPPED, parameters.get("f_2"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testSyntaxError() throws Exception {
+        this.parse("name='a' and");
+    }
+
+}
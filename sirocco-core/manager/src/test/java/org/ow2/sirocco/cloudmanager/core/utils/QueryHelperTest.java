@@ -0,0 +1,88 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.core.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
+
+public class QueryHelperTest {
+    private static final String MACHINE_STATE_PREFIX = Machine.class.getName() + "$State.";
+
+    @Test
+    public void testFilterParametersAreNamedPerFilter() throws Exception {
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        String clause = QueryHelper.generateFilterClause(Arrays.asList("name='a'", "name='b' or state='STOPPED'"), "v",
+            QueryHelperTest.MACHINE_STATE_PREFIX, parameters);
+        Assert.assertEquals("( v.name = :filter0_0 ) AND ( v.name = :filter1_0  OR  v.state = :filter1_1 )", clause);
+        Assert.assertEquals(3, parameters.size());
+        Assert.assertEquals("a", parameters.get("filter0_0"));
+        Assert.assertEquals("b", parameters.get("filter1_0"));
+        Assert.assertEquals(Machine.State.STOPPED, parameters.get("filter1_1"));
+    }
+
+    @Test
+    public void testCachedFilterKeepsItsParameters() throws Exception {
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        String clause = QueryHelper.generateFilterClause(Collections.singletonList("cpu>=4"), "v",
+            QueryHelperTest.MACHINE_STATE_PREFIX, parameters);
+        // the caller adds its own parameters to the map it got
+        parameters.put("filter0_0", 8);
+
+        Map<String, Object> cachedParameters = new HashMap<String, Object>();
+        Assert.assertEquals(clause, QueryHelper.generateFilterClause(Collections.singletonList("cpu>=4"), "v",
+            QueryHelperTest.MACHINE_STATE_PREFIX, cachedParameters));
+        Assert.assertEquals(Collections.singletonMap("filter0_0", (Object) 4), cachedParameters);
+    }
+
+    @Test
+    public void testFiltersDifferingByValueAreNotShared() throws Exception {
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        String clause = QueryHelper.generateFilterClause(Collections.singletonList("name='a'"), "v",
+            QueryHelperTest.MACHINE_STATE_PREFIX, parameters);
+        Map<String, Object> otherParameters = new HashMap<String, Object>();
+        Assert.assertEquals(clause, QueryHelper.generateFilterClause(Collections.singletonList("name='b'"), "v",
+            QueryHelperTest.MACHINE_STATE_PREFIX, otherParameters));
+        Assert.assertEquals("a", parameters.get("filter0_0"));
+        Assert.assertEquals("b", otherParameters.get("filter0_0"));
+    }
+
+    @Test
+    public void testCacheIsKeyedByVariableAndStateClass() throws Exception {
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        Assert.assertEquals("( m.state = :filter0_0 )", QueryHelper.generateFilterClause(
+            Collections.singletonList("state='STARTED'"), "m", QueryHelperTest.MACHINE_STATE_PREFIX, parameters));
+        Assert.assertEquals(Machine.State.STARTED, parameters.get("filter0_0"));
+
+        parameters.clear();
+        Assert.assertEquals("( v.state = :filter0_0 )", QueryHelper.generateFilterClause(
+            Collections.singletonList("state='STARTED'"), "v", "org.ow2.sirocco.NoSuchEntity$State.", parameters));
+        Assert.assertEquals("STARTED", parameters.get("filter0_0"));
+    }
+
+}
@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+import javax.persistence.Cacheable;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
@@ -55,6 +56,7 @@ import org.ow2.sirocco.cloudmanager.model.cimi.meter.Meter;
  * Base class of CIMI entities. Can be used for polymorphic queries
  */
 @Entity
+@Cacheable(false)
 @Inheritance(strategy = InheritanceType.JOINED)
 public abstract class CloudResource implements Serializable, Resource {
     private static final long serialVersionUID = 1L;
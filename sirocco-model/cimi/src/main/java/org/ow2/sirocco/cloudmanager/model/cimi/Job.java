@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
@@ -48,6 +49,7 @@ import org.ow2.sirocco.cloudmanager.model.cimi.extension.Tenant;
  * Represents a process performed by the provider
  */
 @Entity
+@Cacheable(false)
 @NamedQueries({@NamedQuery(name = "Job.findByUuid", query = "SELECT j from Job j WHERE j.uuid=:uuid")})
 public class Job extends CloudEntity implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -218,7 +220,7 @@ public class Job extends CloudEntity implements Serializable {
         this.progress = progress;
     }
 
-    @OneToMany(mappedBy = "parentJob", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "parentJob", fetch = FetchType.LAZY)
     public List<Job> getNestedJobs() {
         return this.nestedJobs;
     }
@@ -235,7 +237,7 @@ public class Job extends CloudEntity implements Serializable {
         nestedJob.setParentJob(this);
     }
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     public List<CloudResource> getAffectedResources() {
         return this.affectedResources;
     }
@@ -119,7 +119,7 @@ public class Machine extends CloudResource implements Serializable, ICloudProvid
         this.memory = memory;
     }
 
-    @OneToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, fetch = FetchType.EAGER)
+    @OneToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, fetch = FetchType.LAZY)
     public List<MachineDisk> getDisks() {
         return this.disks;
     }
@@ -137,7 +137,7 @@ public class Machine extends CloudResource implements Serializable, ICloudProvid
         }
     }
 
-    @OneToMany(mappedBy = "owner", cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "owner", cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, fetch = FetchType.LAZY)
     public List<MachineVolume> getVolumes() {
         return this.volumes;
     }
@@ -163,7 +163,7 @@ public class Machine extends CloudResource implements Serializable, ICloudProvid
         this.volumes = volumes;
     }
 
-    @OneToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, fetch = FetchType.EAGER)
+    @OneToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, fetch = FetchType.LAZY)
     @JoinColumn(name = "machine_id", referencedColumnName = "id")
     public List<MachineNetworkInterface> getNetworkInterfaces() {
         return this.networkInterfaces;
@@ -28,6 +28,7 @@ package org.ow2.sirocco.cloudmanager.model.cimi;
 import java.io.Serializable;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
@@ -46,6 +47,7 @@ import org.ow2.sirocco.cloudmanager.model.cimi.extension.Visibility;
  * Hardware configuration of a compute resource
  */
 @Entity
+@Cacheable
 @NamedQueries({@NamedQuery(name = "MachineConfiguration.findByUuid", query = "SELECT m from MachineConfiguration m WHERE m.uuid=:uuid")})
 public class MachineConfiguration extends CloudEntity implements IMultiCloudResource, Comparable<MachineConfiguration>,
     Serializable {
@@ -34,6 +34,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
+import javax.persistence.Cacheable;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
@@ -56,6 +57,7 @@ import javax.persistence.TemporalType;
  * public cloud (e.g. Amazon EC2).
  */
 @Entity
+@Cacheable
 @NamedQueries({@NamedQuery(name = "CloudProvider.findByUuid", query = "SELECT c from CloudProvider c WHERE c.uuid=:uuid")})
 public class CloudProvider implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -155,7 +155,7 @@ public class CloudProviderAccount implements Serializable {
         this.cloudProvider = cloudProvider;
     }
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     public Set<Tenant> getTenants() {
         return this.tenants;
     }
@@ -29,6 +29,7 @@ import java.io.Serializable;
 import java.util.Set;
 import java.util.UUID;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
@@ -44,6 +45,7 @@ import javax.persistence.PrePersist;
  * Geographical location where cloud resources are running
  */
 @Entity
+@Cacheable
 @NamedQueries({@NamedQuery(name = "CloudProviderLocation.findByUuid", query = "SELECT c from CloudProviderLocation c WHERE c.uuid=:uuid")})
 public class CloudProviderLocation implements Serializable {
 
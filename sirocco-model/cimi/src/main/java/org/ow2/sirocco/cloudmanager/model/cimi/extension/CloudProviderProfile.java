@@ -28,6 +28,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.UUID;
 
+import javax.persistence.Cacheable;
 import javax.persistence.ElementCollection;
 import javax.persistence.Embeddable;
 import javax.persistence.Entity;
@@ -40,6 +41,7 @@ import javax.persistence.NamedQuery;
 import javax.persistence.PrePersist;
 
 @Entity
+@Cacheable
 @NamedQueries({
     @NamedQuery(name = "CloudProviderProfile.findByUuid", query = "SELECT c from CloudProviderProfile c WHERE c.uuid=:uuid"),
     @NamedQuery(name = "CloudProviderProfile.findByType", query = "SELECT c from CloudProviderProfile c WHERE c.type=:type")})
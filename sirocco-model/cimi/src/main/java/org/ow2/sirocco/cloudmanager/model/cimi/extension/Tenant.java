@@ -141,12 +141,12 @@ public class Tenant implements Serializable {
         this.users = users;
     }
 
-    @ManyToMany(mappedBy = "tenants", fetch = FetchType.EAGER)
+    @ManyToMany(mappedBy = "tenants", fetch = FetchType.LAZY)
     public List<User> getUsers() {
         return this.users;
     }
 
-    @ManyToMany(mappedBy = "tenants", fetch = FetchType.EAGER)
+    @ManyToMany(mappedBy = "tenants", fetch = FetchType.LAZY)
     public Set<CloudProviderAccount> getCloudProviderAccounts() {
         return this.cloudProviderAccounts;
     }
@@ -53,6 +53,8 @@ import javax.persistence.TemporalType;
 public class User implements Serializable {
     public final static String ADMIN_ROLE = "sirocco-admin";
 
+    public final static String USER_ROLE = "sirocco-user";
+
     private static final long serialVersionUID = 1L;
 
     private Integer id;
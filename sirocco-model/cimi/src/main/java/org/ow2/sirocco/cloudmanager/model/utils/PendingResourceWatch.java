@@ -0,0 +1,163 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.model.utils;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Persistent state of a pending resource watch, so that watches survive
+ * restarts and can be taken over by another node of a cluster. A watch is
+ * polled by the node holding its lease; leases that are not renewed in time can
+ * be claimed by any other node.
+ */
+@Entity
+@Cacheable(false)
+@NamedQueries({
+    @NamedQuery(name = "PendingResourceWatch.findExpiredLeases", query = "SELECT w FROM PendingResourceWatch w WHERE w.leaseExpiration < :now ORDER BY w.id"),
+    @NamedQuery(name = "PendingResourceWatch.claim", query = "UPDATE PendingResourceWatch w SET w.owner = :owner, w.leaseExpiration = :leaseExpiration WHERE w.id = :id AND w.leaseExpiration < :now"),
+    @NamedQuery(name = "PendingResourceWatch.renewLeases", query = "UPDATE PendingResourceWatch w SET w.leaseExpiration = :leaseExpiration WHERE w.owner = :owner"),
+    @NamedQuery(name = "PendingResourceWatch.releaseLeases", query = "UPDATE PendingResourceWatch w SET w.owner = NULL, w.leaseExpiration = :now WHERE w.owner = :owner"),
+    @NamedQuery(name = "PendingResourceWatch.findIdsByOwner", query = "SELECT w.id FROM PendingResourceWatch w WHERE w.owner = :owner"),
+    @NamedQuery(name = "PendingResourceWatch.deleteByIds", query = "DELETE FROM PendingResourceWatch w WHERE w.id IN :ids")})
+public class PendingResourceWatch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Integer id;
+
+    private String watchType;
+
+    private Integer resourceId;
+
+    private Integer subResourceId;
+
+    private Integer jobId;
+
+    private String expectedStates;
+
+    private Date deadline;
+
+    private String owner;
+
+    private Date leaseExpiration;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    public Integer getId() {
+        return this.id;
+    }
+
+    public void setId(final Integer id) {
+        this.id = id;
+    }
+
+    public String getWatchType() {
+        return this.watchType;
+    }
+
+    public void setWatchType(final String watchType) {
+        this.watchType = watchType;
+    }
+
+    /**
+     * Returns the id of the watched resource
+     */
+    public Integer getResourceId() {
+        return this.resourceId;
+    }
+
+    public void setResourceId(final Integer resourceId) {
+        this.resourceId = resourceId;
+    }
+
+    /**
+     * Returns the id of the watched part of the resource if any, e.g. a volume
+     * attachment of a machine
+     */
+    public Integer getSubResourceId() {
+        return this.subResourceId;
+    }
+
+    public void setSubResourceId(final Integer subResourceId) {
+        this.subResourceId = subResourceId;
+    }
+
+    public Integer getJobId() {
+        return this.jobId;
+    }
+
+    public void setJobId(final Integer jobId) {
+        this.jobId = jobId;
+    }
+
+    /**
+     * Returns the comma separated names of the expected states
+     */
+    public String getExpectedStates() {
+        return this.expectedStates;
+    }
+
+    public void setExpectedStates(final String expectedStates) {
+        this.expectedStates = expectedStates;
+    }
+
+    @Temporal(TemporalType.TIMESTAMP)
+    public Date getDeadline() {
+        return this.deadline;
+    }
+
+    public void setDeadline(final Date deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Returns the id of the node polling this watch
+     */
+    public String getOwner() {
+        return this.owner;
+    }
+
+    public void setOwner(final String owner) {
+        this.owner = owner;
+    }
+
+    @Temporal(TemporalType.TIMESTAMP)
+    public Date getLeaseExpiration() {
+        return this.leaseExpiration;
+    }
+
+    public void setLeaseExpiration(final Date leaseExpiration) {
+        this.leaseExpiration = leaseExpiration;
+    }
+
+}
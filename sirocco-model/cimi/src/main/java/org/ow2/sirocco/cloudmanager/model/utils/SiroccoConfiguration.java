@@ -26,13 +26,19 @@
 package org.ow2.sirocco.cloudmanager.model.utils;
 
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
 
+import javax.persistence.Cacheable;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 
 @Entity
+@Cacheable
 public class SiroccoConfiguration implements Serializable {
     private static final long serialVersionUID = 1L;
 
@@ -44,6 +50,18 @@ public class SiroccoConfiguration implements Serializable {
 
     private String httpNonProxyHosts;
 
+    private Map<String, String> pollPolicies = new HashMap<String, String>();
+
+    private Map<String, String> rateLimits = new HashMap<String, String>();
+
+    private String reaperBatchSize;
+
+    private String resourceRetentionDays;
+
+    private String archiveDirectory;
+
+    private String passwordHashAlgorithm;
+
     public SiroccoConfiguration() {
     }
 
@@ -81,4 +99,54 @@ public class SiroccoConfiguration implements Serializable {
         this.httpNonProxyHosts = httpNonProxyHosts;
     }
 
+    @ElementCollection(fetch = FetchType.EAGER, targetClass = java.lang.String.class)
+    public Map<String, String> getPollPolicies() {
+        return this.pollPolicies;
+    }
+
+    public void setPollPolicies(final Map<String, String> pollPolicies) {
+        this.pollPolicies = pollPolicies;
+    }
+
+    @ElementCollection(fetch = FetchType.EAGER, targetClass = java.lang.String.class)
+    public Map<String, String> getRateLimits() {
+        return this.rateLimits;
+    }
+
+    public void setRateLimits(final Map<String, String> rateLimits) {
+        this.rateLimits = rateLimits;
+    }
+
+    public String getReaperBatchSize() {
+        return this.reaperBatchSize;
+    }
+
+    public void setReaperBatchSize(final String reaperBatchSize) {
+        this.reaperBatchSize = reaperBatchSize;
+    }
+
+    public String getResourceRetentionDays() {
+        return this.resourceRetentionDays;
+    }
+
+    public void setResourceRetentionDays(final String resourceRetentionDays) {
+        this.resourceRetentionDays = resourceRetentionDays;
+    }
+
+    public String getArchiveDirectory() {
+        return this.archiveDirectory;
+    }
+
+    public void setArchiveDirectory(final String archiveDirectory) {
+        this.archiveDirectory = archiveDirectory;
+    }
+
+    public String getPasswordHashAlgorithm() {
+        return this.passwordHashAlgorithm;
+    }
+
+    public void setPasswordHashAlgorithm(final String passwordHashAlgorithm) {
+        this.passwordHashAlgorithm = passwordHashAlgorithm;
+    }
+
 }
@@ -0,0 +1,50 @@
+--
+--
+-- SIROCCO
+-- Copyright (C) 2013 Orange
+-- Contact: sirocco@ow2.org
+--
+-- This library is free software; you can redistribute it and/or
+-- modify it under the terms of the GNU Lesser General Public
+-- License as published by the Free Software Foundation; either
+-- version 2.1 of the License, or any later version.
+--
+-- This library is distributed in the hope that it will be useful,
+-- but WITHOUT ANY WARRANTY; without even the implied warranty of
+-- MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+-- Lesser General Public License for more details.
+--
+-- You should have received a copy of the GNU Lesser General Public
+-- License along with this library; if not, write to the Free Software
+-- Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+-- USA
+--
+--
+
+-- Adds to an existing MySQL database the lookup indexes declared in
+-- META-INF/eclipselink-orm.xml. Databases created by the generated DDL
+-- already have them. To be run once, with the application stopped:
+--
+--   mysql -u <user> -p <database> < add-lookup-indexes.sql
+--
+-- The creation of a unique index fails if the column holds duplicate
+-- values, which have to be removed first.
+
+CREATE UNIQUE INDEX IDX_CLOUDRESOURCE_UUID ON CLOUDRESOURCE (UUID);
+CREATE INDEX IDX_CLOUDRESOURCE_PROVIDERID ON CLOUDRESOURCE (PROVIDERASSIGNEDID);
+CREATE INDEX IDX_CLOUDRESOURCE_TENANT ON CLOUDRESOURCE (TENANT_ID);
+CREATE UNIQUE INDEX IDX_CLOUDCOLLECTIONITEM_UUID ON CLOUDCOLLECTIONITEM (UUID);
+CREATE INDEX IDX_CLOUDCOLLECTIONITEM_RESOURCE ON CLOUDCOLLECTIONITEM (cloudcoll_ent_id);
+CREATE UNIQUE INDEX IDX_JOB_UUID ON JOB (UUID);
+CREATE INDEX IDX_JOB_TENANT_STATE ON JOB (TENANT_ID, STATE);
+CREATE UNIQUE INDEX IDX_CLOUDTEMPLATE_UUID ON CLOUDTEMPLATE (UUID);
+CREATE UNIQUE INDEX IDX_VOLUMECONFIGURATION_UUID ON VOLUMECONFIGURATION (UUID);
+CREATE UNIQUE INDEX IDX_NETWORKCONFIGURATION_UUID ON NETWORKCONFIGURATION (UUID);
+CREATE UNIQUE INDEX IDX_TENANT_UUID ON TENANT (UUID);
+CREATE INDEX IDX_TENANT_NAME ON TENANT (NAME);
+CREATE UNIQUE INDEX IDX_USERS_UUID ON Users (UUID);
+CREATE UNIQUE INDEX IDX_CLOUDPROVIDERACCOUNT_UUID ON CLOUDPROVIDERACCOUNT (UUID);
+CREATE UNIQUE INDEX IDX_CLOUDPROVIDERPROFILE_UUID ON CLOUDPROVIDERPROFILE (UUID);
+CREATE UNIQUE INDEX IDX_CLOUDPROVIDER_UUID ON CLOUDPROVIDER (UUID);
+CREATE UNIQUE INDEX IDX_CLOUDPROVIDERLOCATION_UUID ON CLOUDPROVIDERLOCATION (UUID);
+CREATE UNIQUE INDEX IDX_MACHINECONFIGURATION_UUID ON MACHINECONFIGURATION (UUID);
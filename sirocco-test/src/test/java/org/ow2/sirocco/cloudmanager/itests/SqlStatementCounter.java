@@ -0,0 +1,85 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.itests;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.eclipse.persistence.jpa.JpaEntityManagerFactory;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+import org.eclipse.persistence.sessions.SessionEventListener;
+
+/**
+ * Counts the SQL statements executed by the persistence unit on behalf of the
+ * calling thread between {@link #start()} and {@link #stop()}, so that tests
+ * ignore the statements of the background timers
+ */
+@Singleton
+@Lock(LockType.READ)
+public class SqlStatementCounter {
+    @PersistenceUnit(unitName = "siroccoPersistenceUnit")
+    private EntityManagerFactory emf;
+
+    private final ThreadLocal<int[]> statementCount = new ThreadLocal<int[]>();
+
+    private final SessionEventListener listener = new SessionEventAdapter() {
+        @Override
+        public void postExecuteCall(final SessionEvent event) {
+            int[] count = SqlStatementCounter.this.statementCount.get();
+            if (count != null) {
+                count[0]++;
+            }
+        }
+    };
+
+    @PostConstruct
+    private void init() {
+        this.emf.unwrap(JpaEntityManagerFactory.class).getServerSession().getEventManager().addListener(this.listener);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        this.emf.unwrap(JpaEntityManagerFactory.class).getServerSession().getEventManager().removeListener(this.listener);
+    }
+
+    public void start() {
+        this.statementCount.set(new int[1]);
+    }
+
+    /**
+     * Returns the number of statements executed by the calling thread since
+     * {@link #start()}
+     */
+    public int stop() {
+        int[] count = this.statementCount.get();
+        this.statementCount.remove();
+        return count != null ? count[0] : 0;
+    }
+
+}
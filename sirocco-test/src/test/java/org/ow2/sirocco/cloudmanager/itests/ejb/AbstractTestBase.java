@@ -41,6 +41,7 @@ import org.ow2.sirocco.cloudmanager.core.api.ITenantManager;
 import org.ow2.sirocco.cloudmanager.core.api.IUserManager;
 import org.ow2.sirocco.cloudmanager.core.api.IdentityContext;
 import org.ow2.sirocco.cloudmanager.itests.DbManagerBean;
+import org.ow2.sirocco.cloudmanager.itests.SqlStatementCounter;
 import org.ow2.sirocco.cloudmanager.model.cimi.Job;
 import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
 import org.ow2.sirocco.cloudmanager.model.cimi.extension.CloudProvider;
@@ -151,7 +152,7 @@ public class AbstractTestBase {
             .resolve("org.ow2.sirocco.cloudmanager:sirocco-cloudmanager-connector-mock").withoutTransitivity().asFile();
 
         WebArchive war = ShrinkWrap.create(WebArchive.class).addAsLibraries(libs).addAsLibraries(libs2).addAsLibraries(libs3)
-            .addClass(DbManagerBean.class).addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
+            .addClass(DbManagerBean.class).addClass(SqlStatementCounter.class).addAsResource("META-INF/test-persistence.xml", "META-INF/persistence.xml")
             .addPackages(true, Machine.class.getPackage(), SiroccoConfiguration.class.getPackage())
             .addAsManifestResource("beans.xml");
         return war;
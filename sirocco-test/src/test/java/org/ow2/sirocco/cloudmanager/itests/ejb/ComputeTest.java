@@ -784,4 +784,36 @@ public class ComputeTest extends AbstractTestBase {
 
     }
 
+    @Test
+    public void testNetworkProperties() throws Exception {
+        NetworkCreate networkCreate = new NetworkCreate();
+        networkCreate.setName("NET1");
+        Map<String, String> networkProperties = Maps.newHashMap();
+        networkProperties.put("zone", "dmz");
+        networkCreate.setProperties(networkProperties);
+        NetworkTemplate template = new NetworkTemplate();
+        NetworkConfiguration config = new NetworkConfiguration();
+        SubnetConfig subnetConfig = new SubnetConfig();
+        subnetConfig.setCidr(this.CIDR0);
+        config.setSubnets(Collections.singletonList(subnetConfig));
+        template.setNetworkConfig(config);
+        networkCreate.setNetworkTemplate(template);
+
+        Job job = this.networkManager.createNetwork(networkCreate);
+        Network net = (Network) job.getTargetResource();
+        Assert.assertEquals(Job.Status.SUCCESS, this.waitForJobCompletion(job));
+
+        // the properties of a resource read remotely must have been loaded
+        net = this.networkManager.getNetworkByUuid(net.getUuid());
+        Assert.assertTrue(Maps.difference(networkProperties, net.getProperties()).areEqual());
+        for (Network listedNet : this.networkManager.getNetworks().getItems()) {
+            if (listedNet.getUuid().equals(net.getUuid())) {
+                Assert.assertTrue(Maps.difference(networkProperties, listedNet.getProperties()).areEqual());
+            }
+        }
+
+        job = this.networkManager.deleteNetwork(net.getUuid());
+        Assert.assertEquals(Job.Status.SUCCESS, this.waitForJobCompletion(job));
+    }
+
 }
@@ -0,0 +1,121 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.itests.ejb;
+
+import java.util.Collections;
+
+import javax.ejb.EJB;
+
+import org.jboss.arquillian.junit.Arquillian;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.ow2.sirocco.cloudmanager.connector.mock.MockCloudProviderConnector;
+import org.ow2.sirocco.cloudmanager.core.api.IMachineImageManager;
+import org.ow2.sirocco.cloudmanager.core.api.IMachineManager;
+import org.ow2.sirocco.cloudmanager.core.api.INetworkManager;
+import org.ow2.sirocco.cloudmanager.model.cimi.Job;
+import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineCreate;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineTemplate;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineTemplateNetworkInterface;
+
+/**
+ * Checks the completion of the parent job of a bulk machine creation
+ */
+@RunWith(Arquillian.class)
+public class MachineBatchTest extends AbstractTestBase {
+    private static final int MACHINE_COUNT = 3;
+
+    @EJB
+    IMachineManager machineManager;
+
+    @EJB
+    IMachineImageManager machineImageManager;
+
+    @EJB
+    INetworkManager networkManager;
+
+    @After
+    public void resetMachineQuota() {
+        MockCloudProviderConnector.setMachineQuota(-1);
+    }
+
+    private Job createMachines(final int count) throws Exception {
+        MachineCreate machineCreate = new MachineCreate();
+        machineCreate.setName("batchTestMachine");
+        MachineTemplate machineTemplate = new MachineTemplate();
+        machineTemplate.setMachineConfig(this.machineManager.getMachineConfigurations().getItems().get(0));
+        machineTemplate.setMachineImage(this.machineImageManager.getMachineImages().get(0));
+        MachineTemplateNetworkInterface nic = new MachineTemplateNetworkInterface();
+        nic.setNetwork(this.networkManager.getNetworks().getItems().get(0));
+        machineTemplate.setNetworkInterfaces(Collections.singletonList(nic));
+        machineTemplate.setInitialState(Machine.State.STARTED);
+        machineCreate.setMachineTemplate(machineTemplate);
+        return this.machineManager.createMachines(machineCreate, count);
+    }
+
+    @Test
+    public void testMachineBatch() throws Exception {
+        Job job = this.createMachines(MachineBatchTest.MACHINE_COUNT);
+        Assert.assertEquals(Job.Status.SUCCESS, this.waitForJobCompletion(job));
+
+        job = this.jobManager.getJobByUuid(job.getUuid());
+        Assert.assertEquals(MachineBatchTest.MACHINE_COUNT, job.getNestedJobs().size());
+        for (Job machineJob : job.getNestedJobs()) {
+            Assert.assertEquals(Job.Status.SUCCESS, machineJob.getState());
+            String machineUuid = machineJob.getTargetResource().getUuid();
+            Assert.assertEquals(Machine.State.STARTED, this.machineManager.getMachineByUuid(machineUuid).getState());
+            Assert.assertEquals(Job.Status.SUCCESS,
+                this.waitForJobCompletion(this.machineManager.deleteMachine(machineUuid)));
+        }
+    }
+
+    @Test
+    public void testPartialMachineBatchFailure() throws Exception {
+        MockCloudProviderConnector.setMachineQuota(MachineBatchTest.MACHINE_COUNT - 1);
+        Job job = this.createMachines(MachineBatchTest.MACHINE_COUNT);
+        // the parent job completes once the machines that were created are started
+        Assert.assertEquals(Job.Status.FAILED, this.waitForJobCompletion(job));
+
+        job = this.jobManager.getJobByUuid(job.getUuid());
+        Assert.assertEquals(MachineBatchTest.MACHINE_COUNT, job.getNestedJobs().size());
+        int failedJobs = 0;
+        for (Job machineJob : job.getNestedJobs()) {
+            String machineUuid = machineJob.getTargetResource().getUuid();
+            Machine machine = this.machineManager.getMachineByUuid(machineUuid);
+            if (machineJob.getState() == Job.Status.FAILED) {
+                failedJobs++;
+                Assert.assertEquals(Machine.State.ERROR, machine.getState());
+            } else {
+                Assert.assertEquals(Job.Status.SUCCESS, machineJob.getState());
+                Assert.assertEquals(Machine.State.STARTED, machine.getState());
+                Assert.assertEquals(Job.Status.SUCCESS,
+                    this.waitForJobCompletion(this.machineManager.deleteMachine(machineUuid)));
+            }
+        }
+        Assert.assertEquals(1, failedJobs);
+    }
+
+}
@@ -0,0 +1,135 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.itests.ejb;
+
+import java.util.Collections;
+
+import javax.ejb.EJB;
+
+import org.jboss.arquillian.junit.Arquillian;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.ow2.sirocco.cloudmanager.connector.mock.MockCloudProviderConnector;
+import org.ow2.sirocco.cloudmanager.core.api.IConfigManager;
+import org.ow2.sirocco.cloudmanager.core.api.IMachineImageManager;
+import org.ow2.sirocco.cloudmanager.core.api.IMachineManager;
+import org.ow2.sirocco.cloudmanager.core.api.INetworkManager;
+import org.ow2.sirocco.cloudmanager.core.impl.ResourceWatcherManager;
+import org.ow2.sirocco.cloudmanager.core.impl.watch.MachineWatch;
+import org.ow2.sirocco.cloudmanager.model.cimi.Job;
+import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineCreate;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineTemplate;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineTemplateNetworkInterface;
+
+/**
+ * Checks that the jobs of the mock provider, which pushes the state changes of
+ * its resources, complete on provider events and that polling takes over when
+ * an event is lost
+ */
+@RunWith(Arquillian.class)
+public class ProviderEventTest extends AbstractTestBase {
+    /**
+     * Machine poll policy whose first poll comes after the job completion wait
+     * time, so that only a provider event can complete a machine job in time
+     */
+    private static final String SLOW_POLL_POLICY = "60,60,600";
+
+    private static final String MACHINE_POLL_POLICY_KEY = IConfigManager.POLL_POLICY_PREFIX + MachineWatch.MACHINE_WATCH;
+
+    @EJB
+    IMachineManager machineManager;
+
+    @EJB
+    IMachineImageManager machineImageManager;
+
+    @EJB
+    INetworkManager networkManager;
+
+    @EJB
+    IConfigManager configManager;
+
+    @EJB
+    ResourceWatcherManager resourceWatcherManager;
+
+    @After
+    public void resetProviderEvents() throws Exception {
+        MockCloudProviderConnector.setEventsDropped(false);
+        this.configManager.setConfigParameter(ProviderEventTest.MACHINE_POLL_POLICY_KEY, "");
+        this.resourceWatcherManager.loadPollPolicies();
+    }
+
+    private Job createMachine() throws Exception {
+        MachineCreate machineCreate = new MachineCreate();
+        machineCreate.setName("eventTestMachine");
+        MachineTemplate machineTemplate = new MachineTemplate();
+        machineTemplate.setMachineConfig(this.machineManager.getMachineConfigurations().getItems().get(0));
+        machineTemplate.setMachineImage(this.machineImageManager.getMachineImages().get(0));
+        MachineTemplateNetworkInterface nic = new MachineTemplateNetworkInterface();
+        nic.setNetwork(this.networkManager.getNetworks().getItems().get(0));
+        machineTemplate.setNetworkInterfaces(Collections.singletonList(nic));
+        machineTemplate.setInitialState(Machine.State.STARTED);
+        machineCreate.setMachineTemplate(machineTemplate);
+        return this.machineManager.createMachine(machineCreate);
+    }
+
+    private void assertMachineLifecycle(final boolean completedByEvents) throws Exception {
+        long notifiedCompletions = this.resourceWatcherManager.getNotifiedWatchCompletionCount();
+        Job job = this.createMachine();
+        Assert.assertEquals(Job.Status.SUCCESS, this.waitForJobCompletion(job));
+        String machineUuid = job.getTargetResource().getUuid();
+        Assert.assertEquals(Machine.State.STARTED, this.machineManager.getMachineByUuid(machineUuid).getState());
+
+        job = this.machineManager.stopMachine(machineUuid);
+        Assert.assertEquals(Job.Status.SUCCESS, this.waitForJobCompletion(job));
+        Assert.assertEquals(Machine.State.STOPPED, this.machineManager.getMachineByUuid(machineUuid).getState());
+
+        job = this.machineManager.deleteMachine(machineUuid);
+        Assert.assertEquals(Job.Status.SUCCESS, this.waitForJobCompletion(job));
+        Assert.assertEquals(Machine.State.DELETED, this.machineManager.getMachineByUuid(machineUuid).getState());
+
+        long eventCompletions = this.resourceWatcherManager.getNotifiedWatchCompletionCount() - notifiedCompletions;
+        if (completedByEvents) {
+            Assert.assertTrue("expected 3 jobs completed by provider events, got " + eventCompletions,
+                eventCompletions >= 3);
+        } else {
+            Assert.assertEquals(0, eventCompletions);
+        }
+    }
+
+    @Test
+    public void testMachineLifecycleCompletedByProviderEvents() throws Exception {
+        this.configManager.setConfigParameter(ProviderEventTest.MACHINE_POLL_POLICY_KEY, ProviderEventTest.SLOW_POLL_POLICY);
+        this.resourceWatcherManager.loadPollPolicies();
+        this.assertMachineLifecycle(true);
+    }
+
+    @Test
+    public void testMachineLifecycleCompletedByPollWhenEventIsLost() throws Exception {
+        MockCloudProviderConnector.setEventsDropped(true);
+        this.assertMachineLifecycle(false);
+    }
+
+}
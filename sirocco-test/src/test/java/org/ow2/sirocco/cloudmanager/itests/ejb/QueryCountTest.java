@@ -0,0 +1,157 @@
+/**
+ *
+ * SIROCCO
+ * Copyright (C) 2013 Orange
+ * Contact: sirocco@ow2.org
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ */
+package org.ow2.sirocco.cloudmanager.itests.ejb;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.ejb.EJB;
+
+import org.jboss.arquillian.junit.Arquillian;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.ow2.sirocco.cloudmanager.core.api.IMachineImageManager;
+import org.ow2.sirocco.cloudmanager.core.api.IMachineManager;
+import org.ow2.sirocco.cloudmanager.core.api.INetworkManager;
+import org.ow2.sirocco.cloudmanager.itests.SqlStatementCounter;
+import org.ow2.sirocco.cloudmanager.model.cimi.Job;
+import org.ow2.sirocco.cloudmanager.model.cimi.Machine;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineCreate;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineTemplate;
+import org.ow2.sirocco.cloudmanager.model.cimi.MachineTemplateNetworkInterface;
+import org.ow2.sirocco.cloudmanager.model.cimi.extension.Tenant;
+
+/**
+ * Checks that listing machines, jobs and tenants along with their relations
+ * costs a number of SQL statements that does not grow with the number of
+ * listed entities
+ */
+@RunWith(Arquillian.class)
+public class QueryCountTest extends AbstractTestBase {
+    private static final int SMALL_COUNT = 2;
+
+    private static final int LARGE_COUNT = 6;
+
+    @EJB
+    IMachineManager machineManager;
+
+    @EJB
+    IMachineImageManager machineImageManager;
+
+    @EJB
+    INetworkManager networkManager;
+
+    @EJB
+    SqlStatementCounter sqlStatementCounter;
+
+    private void createMachines(final int count) throws Exception {
+        MachineTemplate machineTemplate = new MachineTemplate();
+        machineTemplate.setMachineConfig(this.machineManager.getMachineConfigurations().getItems().get(0));
+        machineTemplate.setMachineImage(this.machineImageManager.getMachineImages().get(0));
+        MachineTemplateNetworkInterface nic = new MachineTemplateNetworkInterface();
+        nic.setNetwork(this.networkManager.getNetworks().getItems().get(0));
+        machineTemplate.setNetworkInterfaces(Collections.singletonList(nic));
+        machineTemplate.setInitialState(Machine.State.STARTED);
+        for (int i = 0; i < count; i++) {
+            MachineCreate machineCreate = new MachineCreate();
+            machineCreate.setName("queryCountMachine" + i);
+            Map<String, String> properties = new HashMap<>();
+            properties.put("index", String.valueOf(i));
+            machineCreate.setProperties(properties);
+            machineCreate.setMachineTemplate(machineTemplate);
+            Job job = this.machineManager.createMachine(machineCreate);
+            Assert.assertEquals(Job.Status.SUCCESS, this.waitForJobCompletion(job));
+        }
+    }
+
+    private void createTenants(final int count) throws Exception {
+        String guestUuid = this.userManager.getUserByUsername("guest").getUuid();
+        for (int i = 0; i < count; i++) {
+            Tenant tenant = new Tenant();
+            tenant.setName("queryCountTenant" + i);
+            Map<String, String> properties = new HashMap<>();
+            properties.put("index", String.valueOf(i));
+            tenant.setProperties(properties);
+            tenant = this.tenantManager.createTenant(tenant);
+            this.tenantManager.addUserToTenant(tenant.getUuid(), guestUuid);
+        }
+    }
+
+    private int countMachineListingStatements() throws Exception {
+        this.sqlStatementCounter.start();
+        for (Machine machine : this.machineManager.getMachines().getItems()) {
+            machine.getDisks().size();
+            machine.getVolumes().size();
+            machine.getNetworkInterfaces().size();
+            machine.getProperties().size();
+        }
+        return this.sqlStatementCounter.stop();
+    }
+
+    private int countJobListingStatements() throws Exception {
+        this.sqlStatementCounter.start();
+        for (Job job : this.jobManager.getJobs().getItems()) {
+            job.getNestedJobs().size();
+            job.getAffectedResources().size();
+        }
+        return this.sqlStatementCounter.stop();
+    }
+
+    private int countTenantListingStatements() throws Exception {
+        this.sqlStatementCounter.start();
+        for (Tenant tenant : this.tenantManager.getTenants()) {
+            tenant.getProperties().size();
+        }
+        return this.sqlStatementCounter.stop();
+    }
+
+    private void assertNotGrowing(final String listing, final int smallListingStatements, final int largeListingStatements) {
+        Assert.assertTrue(listing + " listing took " + smallListingStatements + " SQL statements for "
+            + QueryCountTest.SMALL_COUNT + " entities but " + largeListingStatements + " for " + QueryCountTest.LARGE_COUNT,
+            largeListingStatements <= smallListingStatements);
+    }
+
+    @Test
+    public void testMachineAndJobListingStatementCount() throws Exception {
+        this.createMachines(QueryCountTest.SMALL_COUNT);
+        int smallMachineListing = this.countMachineListingStatements();
+        int smallJobListing = this.countJobListingStatements();
+
+        this.createMachines(QueryCountTest.LARGE_COUNT - QueryCountTest.SMALL_COUNT);
+        Assert.assertEquals(QueryCountTest.LARGE_COUNT, this.machineManager.getMachines().getItems().size());
+        this.assertNotGrowing("Machine", smallMachineListing, this.countMachineListingStatements());
+        this.assertNotGrowing("Job", smallJobListing, this.countJobListingStatements());
+    }
+
+    @Test
+    public void testTenantListingStatementCount() throws Exception {
+        this.createTenants(QueryCountTest.SMALL_COUNT);
+        int smallTenantListing = this.countTenantListingStatements();
+
+        this.createTenants(QueryCountTest.LARGE_COUNT - QueryCountTest.SMALL_COUNT);
+        this.assertNotGrowing("Tenant", smallTenantListing, this.countTenantListingStatements());
+    }
+
+}